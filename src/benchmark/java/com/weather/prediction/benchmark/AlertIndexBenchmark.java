@@ -0,0 +1,121 @@
+package com.weather.prediction.benchmark;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.impl.HighTemperatureCondition;
+import com.weather.prediction.conditions.impl.HighWindCondition;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.conditions.impl.ThunderstormCondition;
+import com.weather.prediction.model.AlertQueryResponse;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.AlertIndex;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link AlertIndex}: a "thunderstorm or high wind in the next 3 days" query over
+ * {@code cities} cached forecasts of 5 days, where about 10% of the city-days have a storm and 30%
+ * high wind, as the first page of 100 and as all pages; and re-indexing one refreshed forecast.
+ * Scores are microseconds per operation.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.args="AlertIndexBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertIndexBenchmark {
+
+    private static final List<WeatherCondition> CONDITIONS = List.of(
+            new HighTemperatureCondition(), new HighWindCondition(), new RainCondition(), new ThunderstormCondition());
+
+    private static final List<String> QUERY = List.of("thunderstorm", "highwind");
+
+    @Param({"10000", "100000"})
+    public int cities;
+
+    private ForecastCache forecastCache;
+
+    private AlertIndex alertIndex;
+
+    private WeatherResponse[] refreshed;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        forecastCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        forecastCache.maxEntries = cities;
+        forecastCache.init();
+        alertIndex = new AlertIndex(forecastCache, CONDITIONS, new SimpleMeterRegistry());
+        alertIndex.init();
+        Random random = new Random(42);
+        for (int i = 0; i < cities; i++) forecastCache.put("city " + i, forecast("City " + i, random));
+        refreshed = new WeatherResponse[1024];
+        for (int i = 0; i < refreshed.length; i++) refreshed[i] = forecast("City " + i, random);
+        System.out.printf("%d cities indexed in %d KB of bitmaps%n", alertIndex.size(), alertIndex.sizeInBytes() / 1024);
+    }
+
+    @Benchmark
+    public AlertQueryResponse firstPage() {
+        return alertIndex.query(QUERY, 3, 0, 100);
+    }
+
+    @Benchmark
+    public int allPages() {
+        int found = 0;
+        Integer cursor = 0;
+        while (cursor != null) {
+            AlertQueryResponse page = alertIndex.query(QUERY, 3, cursor, 500);
+            found += page.getCities().size();
+            cursor = page.getNextCursor();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public void update() {
+        int i = next++ & refreshed.length - 1;
+        forecastCache.put("city " + i, refreshed[i]);
+    }
+
+    private static WeatherResponse forecast(String city, Random random) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<ForecastData> days = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            List<String> alerts = new ArrayList<>();
+            if (random.nextInt(10) == 0) alerts.add(CONDITIONS.get(3).getAlert());
+            if (random.nextInt(10) < 3) alerts.add(CONDITIONS.get(1).getAlert());
+            if (random.nextInt(2) == 0) alerts.add(CONDITIONS.get(2).getAlert());
+            days.add(new ForecastData(280, 290, today.plusDays(day).toString(), alerts));
+        }
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod("200");
+        wr.setCity(city);
+        wr.setForecastData(days);
+        return wr;
+    }
+}
@@ -0,0 +1,121 @@
+package com.weather.prediction.benchmark;
+
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.conditions.impl.HighTemperatureCondition;
+import com.weather.prediction.conditions.impl.HighWindCondition;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.conditions.impl.ThunderstormCondition;
+import com.weather.prediction.conditions.rules.AlertRuleSet;
+import com.weather.prediction.conditions.rules.AlertRules;
+import com.weather.prediction.model.ForecastSlot;
+import com.weather.prediction.parser.ForecastParser;
+import com.weather.prediction.parser.ForecastPayload;
+import com.weather.prediction.support.StubForecastServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the per-slot cost of alert evaluation: the four hand-written condition beans
+ * against the same thresholds as configured {@link AlertRules}, and a set of rules with combinators,
+ * over the 40 slots of {@code /payloads/forecast-40.json}. Scores are nanoseconds per slot.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.args="AlertRuleBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertRuleBenchmark {
+
+    private static final int SLOTS = 40;
+
+    private static final String BUILT_IN_RULES = """
+            [{"name": "HighTemperatureCondition", "alert": "Use sunscreen lotion", "when": {"field": "temp_c", "op": ">", "value": 40}},
+             {"name": "HighWindCondition", "alert": "It’s too windy, watch out!", "when": {"field": "wind_speed", "op": ">", "value": 4.47}},
+             {"name": "RainCondition", "alert": "Carry umbrella", "when": {"field": "rain_3h", "op": ">", "value": 0}},
+             {"name": "ThunderstormCondition", "alert": "Don’t step out! A Storm is brewing!", "when": {"field": "weather", "op": "contains", "value": "Thunderstorm"}}]
+            """;
+
+    private static final String COMBINED_RULES = """
+            [{"name": "FreezingWind", "alert": "Freezing wind", "when": {"all": [{"field": "temp_c", "op": "<", "value": 0}, {"field": "wind_speed", "op": ">", "value": 8}]}},
+             {"name": "Wintry", "alert": "Wintry", "when": {"any": [{"field": "weather", "op": "equals", "value": "Snow"}, {"field": "weather", "op": "contains", "value": "Sleet"}, {"field": "temp_c", "op": "<=", "value": -10}]}},
+             {"name": "Muggy", "alert": "Muggy", "when": {"all": [{"field": "temp_c", "op": ">=", "value": 28}, {"field": "rain_3h", "op": ">", "value": 0}, {"not": {"field": "wind_speed", "op": ">", "value": 3}}]}},
+             {"name": "Calm", "alert": "Calm", "when": {"field": "wind_speed", "op": "<", "value": 1}}]
+            """;
+
+    private ForecastSlot[] slots;
+
+    private ForecastSlotCondition[] conditions;
+
+    private AlertRuleSet builtInRules;
+
+    private AlertRuleSet combinedRules;
+
+    @Setup
+    public void setup() throws IOException {
+        ForecastPayload payload = ForecastParser.parse(new ByteArrayInputStream(StubForecastServer.readResource("/payloads/forecast-" + SLOTS + ".json")));
+        slots = new ForecastSlot[payload.size()];
+        for (int i = 0; i < slots.length; i++) slots[i] = payload.slot(i);
+        if (slots.length != SLOTS) throw new IllegalStateException("Expected " + SLOTS + " slots, got " + slots.length);
+
+        conditions = new ForecastSlotCondition[]{new HighTemperatureCondition(), new HighWindCondition(),
+                new RainCondition(), new ThunderstormCondition()};
+        builtInRules = AlertRuleSet.of(AlertRules.compile(new StringReader(BUILT_IN_RULES)), new SimpleMeterRegistry());
+        combinedRules = AlertRuleSet.of(AlertRules.compile(new StringReader(COMBINED_RULES)), new SimpleMeterRegistry());
+
+        for (ForecastSlot slot : slots) {
+            if (handWrittenMask(slot) != builtInRules.mask(slot)) throw new IllegalStateException("Rules disagree with the condition classes");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long handWritten() {
+        long alerts = 0;
+        for (ForecastSlot slot : slots) alerts |= handWrittenMask(slot);
+        return alerts;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long builtInRules() {
+        long alerts = 0;
+        for (ForecastSlot slot : slots) alerts |= builtInRules.mask(slot);
+        return alerts;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SLOTS)
+    public long combinedRules() {
+        long alerts = 0;
+        for (ForecastSlot slot : slots) alerts |= combinedRules.mask(slot);
+        return alerts;
+    }
+
+    private long handWrittenMask(ForecastSlot slot) {
+        long mask = 0;
+        for (int i = 0; i < conditions.length; i++) {
+            if (conditions[i].isApplicable(slot)) mask |= 1L << i;
+        }
+        return mask;
+    }
+}
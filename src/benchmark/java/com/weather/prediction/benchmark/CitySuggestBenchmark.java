@@ -0,0 +1,106 @@
+package com.weather.prediction.benchmark;
+
+import com.weather.prediction.model.CitySuggestion;
+import com.weather.prediction.service.CityDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link CityDirectory#suggest(String, int)} over a synthetic city list of the size
+ * of the full OpenWeatherMap {@code city.list.json} (about 200k cities), with prefixes of one to six
+ * characters. Setup prints the heap retained by the loaded directory.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.args="CitySuggestBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CitySuggestBenchmark {
+
+    private static final String[] SYLLABLES = {"san", "ta", "mo", "ri", "ber", "lin", "ko", "vo", "port", "land",
+            "ville", "burg", "do", "ne", "ca", "sa", "ão", "kö", "wa", "ham", "ton", "gu", "ha", "ti"};
+
+    private static final String[] COUNTRIES = {"US", "GB", "DE", "IN", "BR", "FR", "RU", "CN", "CA", "PL"};
+
+    @Param({"200000"})
+    public int cities;
+
+    @Param({"10"})
+    public int limit;
+
+    private CityDirectory directory;
+
+    private String[] queries;
+
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        byte[] body = cityList(random);
+
+        long before = usedHeap();
+        directory = new CityDirectory();
+        directory.load(new ByteArrayInputStream(body));
+        long after = usedHeap();
+        System.out.printf("%n%d cities (%.1f MB of JSON) retained about %.1f MB%n",
+                directory.size(), body.length / 1e6, (after - before) / 1e6);
+
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String name = SYLLABLES[random.nextInt(SYLLABLES.length)] + SYLLABLES[random.nextInt(SYLLABLES.length)];
+            queries[i] = name.substring(0, 1 + random.nextInt(Math.min(6, name.length())));
+        }
+    }
+
+    @Benchmark
+    public List<CitySuggestion> suggest() {
+        return directory.suggest(queries[next++ & (queries.length - 1)], limit);
+    }
+
+    private byte[] cityList(Random random) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < cities; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(1_000_000 + i)
+                    .append(",\"name\":\"").append(name)
+                    .append("\",\"state\":\"").append(country.equals("US") ? "S" + random.nextInt(50) : "")
+                    .append("\",\"country\":\"").append(country)
+                    .append("\",\"coord\":{\"lon\":").append(random.nextDouble() * 360 - 180)
+                    .append(",\"lat\":").append(random.nextDouble() * 180 - 90).append("}}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
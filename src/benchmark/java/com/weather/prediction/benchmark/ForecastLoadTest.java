@@ -0,0 +1,214 @@
+package com.weather.prediction.benchmark;
+
+import com.weather.prediction.WeatherPredictionApplication;
+import com.weather.prediction.support.StubForecastServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end load test: starts a {@link StubForecastServer} and the application wired to it, then
+ * sends {@code GET /forecast} at a fixed rate (open loop) and reports throughput, latency
+ * percentiles, response codes and the number of upstream calls.
+ *
+ * Latency is measured from when each request was scheduled to be sent, not from when it was
+ * actually sent, so a stalled server shows up in the percentiles instead of silently lowering
+ * the request rate. Cities are drawn from a Zipf distribution, so some are much more popular than
+ * others, as with real traffic.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.weather.prediction.benchmark.ForecastLoadTest \
+ *     -Dbenchmark.args="rate=200 seconds=30 cities=500 latency=lognormal:40:0.5,tail:0.01:2000 errors=0.01 unknown=0.02"
+ * </pre>
+ *
+ * Arguments (key=value): {@code rate} requests/s, {@code seconds} measured, {@code warmup} seconds,
+ * {@code cities} distinct cities, {@code zipf} exponent, {@code unknown} fraction of requests for cities
+ * the stub answers with 404, {@code latency} stub latency (see {@link StubForecastServer.Latency#parse}),
+ * {@code errors} / {@code unauthorized} stub 500 / 401 rates, {@code payload} recorded payload resource,
+ * {@code path} the endpoint ({@code /forecast} or {@code /reactive/forecast}).
+ * Arguments starting with {@code --} are passed to the application, e.g.
+ * {@code --spring.weather.cache.enabled=false} or {@code --spring.weather.http.client=jdk}.
+ */
+public class ForecastLoadTest {
+
+    private static final int UNKNOWN_CITIES = 10;
+
+    private static final Pattern COD = Pattern.compile("\"cod\":\"?(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) appArgs.add(arg);
+            else if (arg.contains("=")) options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int cities = Integer.parseInt(options.getOrDefault("cities", "500"));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+        double unknown = Double.parseDouble(options.getOrDefault("unknown", "0.0"));
+        String latency = options.getOrDefault("latency", "lognormal:40:0.5");
+        String payload = options.getOrDefault("payload", "/payloads/forecast-40.json");
+        String path = options.getOrDefault("path", "/forecast");
+
+        Set<String> unknownCities = IntStream.range(0, UNKNOWN_CITIES).mapToObj(i -> "atlantis-" + i).collect(Collectors.toSet());
+        try (StubForecastServer stub = new StubForecastServer(payload, 256)
+                .latency(StubForecastServer.Latency.parse(latency))
+                .errorRate(Double.parseDouble(options.getOrDefault("errors", "0")))
+                .unauthorizedRate(Double.parseDouble(options.getOrDefault("unauthorized", "0")))
+                .unknownCities(unknownCities)
+                .start();
+             ConfigurableApplicationContext app = startApplication(stub, appArgs)) {
+
+            String base = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port") + path + "?city=";
+            CityPicker picker = new CityPicker(cities, zipf, unknown);
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            System.out.printf("%s rate=%d/s, warmup=%ds, measured=%ds, cities=%d (zipf %.2f, unknown %.1f%%), stub latency=%s, errors=%s, unauthorized=%s %s%n",
+                    path, rate, warmup, seconds, cities, zipf, unknown * 100, latency,
+                    options.getOrDefault("errors", "0"), options.getOrDefault("unauthorized", "0"), appArgs);
+            if (warmup > 0) run(client, base, picker, rate, warmup);
+            stub.resetRequestCount();
+            Result result = run(client, base, picker, rate, seconds);
+            result.print(seconds);
+            System.out.printf("upstream calls=%d (%.3f per request), upstream responses: 200=%d 401=%d 404=%d 500=%d%n",
+                    stub.requestCount(), (double) stub.requestCount() / Math.max(1, result.sent.get()),
+                    stub.responseCount(200), stub.responseCount(401), stub.responseCount(404), stub.responseCount(500));
+        }
+    }
+
+    /**
+     * System properties override the profile yml files but not the {@code --} arguments.
+     */
+    private static ConfigurableApplicationContext startApplication(StubForecastServer stub, List<String> appArgs) {
+        System.setProperty("server.port", "0");
+        System.setProperty("spring.weather.api.url", stub.forecastUrl());
+        System.setProperty("spring.weather.api.key", "loadtest");
+        System.setProperty("spring.weather.snapshot.enabled", "false");
+        // the stub has no quota; pass --spring.weather.ratelimit.enabled=true to load the limiter itself
+        System.setProperty("spring.weather.ratelimit.enabled", "false");
+        System.setProperty("spring.weather.refresh.warm-cities", "");
+        System.setProperty("logging.level.com.weather.prediction", "WARN");
+        return new SpringApplicationBuilder(WeatherPredictionApplication.class).run(appArgs.toArray(String[]::new));
+    }
+
+    private static Result run(HttpClient client, String base, CityPicker picker, int rate, int seconds) throws InterruptedException {
+        Result result = new Result();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) break;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + URLEncoder.encode(picker.next(), StandardCharsets.UTF_8)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            result.sent.incrementAndGet();
+            result.inFlight.increment();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                result.latency.recordValue(Math.max(1, (System.nanoTime() - intended) / 1000));
+                String outcome = error != null ? error.getClass().getSimpleName() : outcome(response);
+                result.outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+                result.inFlight.decrement();
+            });
+        }
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (result.inFlight.sum() > 0 && System.nanoTime() < drainUntil) Thread.sleep(10);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * The HTTP status, followed by the body's {@code cod} when they differ (e.g. "200/503" for an
+     * unavailable upstream, which is answered with 200).
+     */
+    private static String outcome(HttpResponse<String> response) {
+        String status = String.valueOf(response.statusCode());
+        Matcher cod = COD.matcher(response.body());
+        return cod.find() && !cod.group(1).equals(status) ? status + "/" + cod.group(1) : status;
+    }
+
+    private static final class Result {
+
+        final AtomicLong sent = new AtomicLong();
+
+        final LongAdder inFlight = new LongAdder();
+
+        final Histogram latency = new ConcurrentHistogram(3);
+
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+        long elapsedNanos;
+
+        void print(int seconds) {
+            System.out.printf("%10s %10s %12s %10s %10s %10s %10s %10s%n",
+                    "sent", "completed", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "mean(ms)");
+            System.out.printf("%10d %10d %12.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    sent.get(), latency.getTotalCount(), latency.getTotalCount() / (elapsedNanos / 1e9),
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0, latency.getMaxValue() / 1000.0, latency.getMean() / 1000.0);
+            Map<String, Long> sorted = new LinkedHashMap<>();
+            outcomes.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> sorted.put(e.getKey(), e.getValue().sum()));
+            System.out.printf("responses over %ds: %s%n", seconds, sorted);
+        }
+    }
+
+    /**
+     * Draws "city-K" with probability proportional to 1/(K+1)^s, or an unknown city.
+     */
+    private static final class CityPicker {
+
+        private final double[] cumulative;
+
+        private final double unknown;
+
+        CityPicker(int cities, double s, double unknown) {
+            this.unknown = unknown;
+            this.cumulative = new double[cities];
+            double sum = 0;
+            for (int k = 0; k < cities; k++) {
+                sum += 1 / Math.pow(k + 1, s);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < cities; k++) cumulative[k] /= sum;
+        }
+
+        String next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < unknown) return "atlantis-" + random.nextInt(UNKNOWN_CITIES);
+            int k = Arrays.binarySearch(cumulative, random.nextDouble());
+            return "city-" + (k >= 0 ? k : Math.min(-k - 1, cumulative.length - 1));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.weather.prediction.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.config.EncodedResponseHttpMessageConverter;
+import com.weather.prediction.conditions.impl.HighTemperatureCondition;
+import com.weather.prediction.conditions.impl.HighWindCondition;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.conditions.impl.ThunderstormCondition;
+import com.weather.prediction.model.EncodedResponse;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.ForecastSlot;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.parser.ForecastParser;
+import com.weather.prediction.parser.ForecastPayload;
+import com.weather.prediction.service.WeatherService;
+import com.weather.prediction.support.StubForecastServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the per-request forecast pipeline on recorded upstream payloads
+ * ({@code /payloads/forecast-<cnt>.json}): parsing, day bucketing, condition evaluation,
+ * response serialization, writing a response body serialized per request against the copy of a cached
+ * forecast's encoded bytes, and the parse + aggregate path end to end.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@jmh                                   # all, with -prof gc
+ * mvn -Pbenchmark test-compile exec:exec@jmh -Djmh.args="ForecastPipelineBenchmark.parse -p cnt=40 -prof gc"
+ * </pre>
+ *
+ * Compare {@code ops/s} and {@code gc.alloc.rate.norm} (bytes per operation) against a run on the
+ * base branch; the latter is stable across machines and is the first number to check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForecastPipelineBenchmark {
+
+    @Param({"8", "40", "100"})
+    public int cnt;
+
+    private byte[] body;
+
+    private ForecastPayload payload;
+
+    private ForecastSlot[] slots;
+
+    private List<ForecastSlotCondition> conditions;
+
+    private WeatherService weatherService;
+
+    private WeatherResponse response;
+
+    private ObjectMapper objectMapper;
+
+    private WeatherResponse encodedResponse;
+
+    private EncodedResponseHttpMessageConverter converter;
+
+    @Setup
+    public void setup() throws IOException {
+        body = StubForecastServer.readResource("/payloads/forecast-" + cnt + ".json");
+        payload = ForecastParser.parse(new ByteArrayInputStream(body));
+        slots = new ForecastSlot[payload.size()];
+        for (int i = 0; i < slots.length; i++) slots[i] = payload.slot(i);
+
+        conditions = List.of(new HighTemperatureCondition(), new HighWindCondition(),
+                new RainCondition(), new ThunderstormCondition());
+        weatherService = new WeatherService(List.copyOf(conditions), null, null, new SimpleMeterRegistry());
+
+        response = new WeatherResponse();
+        response.setCity("Guwahati");
+        response.setCod(payload.getCod());
+        response.setForecastData(weatherService.aggregate(payload));
+        objectMapper = new ObjectMapper();
+
+        encodedResponse = new WeatherResponse();
+        encodedResponse.setCity(response.getCity());
+        encodedResponse.setCod(response.getCod());
+        encodedResponse.setForecastData(response.getForecastData());
+        encodedResponse.setEncoded(EncodedResponse.of(objectMapper, encodedResponse));
+        converter = new EncodedResponseHttpMessageConverter(objectMapper, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public ForecastPayload parse() throws IOException {
+        return ForecastParser.parse(new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public List<ForecastData> aggregate() {
+        return weatherService.aggregate(payload);
+    }
+
+    @Benchmark
+    public long evaluateConditions() {
+        long alerts = 0;
+        for (ForecastSlot slot : slots) {
+            for (int i = 0; i < conditions.size(); i++) {
+                if (conditions.get(i).isApplicable(slot)) alerts |= 1L << i;
+            }
+        }
+        return alerts;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage writeSerialized() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(response, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage writeEncoded() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(encodedResponse, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+
+    @Benchmark
+    public List<ForecastData> parseAndAggregate() throws IOException {
+        return weatherService.aggregate(ForecastParser.parse(new ByteArrayInputStream(body)));
+    }
+}
@@ -0,0 +1,110 @@
+package com.weather.prediction.benchmark;
+
+import com.weather.prediction.config.AppConfig;
+import com.weather.prediction.support.StubForecastServer;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the upstream HTTP clients built by {@link AppConfig} against the previous
+ * {@code new RestTemplate()} (SimpleClientHttpRequestFactory) on a local stub server.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.weather.prediction.benchmark.HttpClientBenchmark \
+ *     -Dbenchmark.args="32 10 2"     # threads, seconds per client, stub latency ms
+ * </pre>
+ */
+public class HttpClientBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 2;
+
+        try (StubForecastServer stub = new StubForecastServer("/payloads/forecast-40.json", threads * 2).latencyMs(latencyMs).start()) {
+            String url = stub.forecastUrl() + "?q=guwahati&appid=bench&cnt=40";
+
+            System.out.printf("threads=%d, duration=%ds, stub latency=%dms%n", threads, seconds, latencyMs);
+            System.out.printf("%-12s %12s %10s %10s %10s %12s%n", "client", "req/s", "p50(ms)", "p99(ms)", "max(ms)", "upstream");
+            run("simple", simpleFactory(), url, threads, seconds, stub);
+            run("apache", factory("apache", false), url, threads, seconds, stub);
+            run("jdk", factory("jdk", false), url, threads, seconds, stub);
+        }
+    }
+
+    private static ClientHttpRequestFactory simpleFactory() {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(2000);
+        factory.setReadTimeout(5000);
+        return factory;
+    }
+
+    private static ClientHttpRequestFactory factory(String client, boolean http2) {
+        AppConfig config = new AppConfig();
+        config.client = client;
+        config.http2 = http2;
+        return config.upstreamRequestFactory();
+    }
+
+    private static void run(String name, ClientHttpRequestFactory factory, String url, int threads, int seconds,
+                            StubForecastServer stub) throws InterruptedException {
+        RestTemplate restTemplate = new RestTemplate(factory);
+        measure(restTemplate, url, threads, 2);   // warm-up
+        stub.resetRequestCount();
+        Result result = measure(restTemplate, url, threads, seconds);
+        long[] latencies = result.latencies;
+        System.out.printf("%-12s %12.0f %10.2f %10.2f %10.2f %12d%n", name,
+                latencies.length / (double) seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0),
+                stub.requestCount());
+    }
+
+    private static Result measure(RestTemplate restTemplate, String url, int threads, int seconds) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long[][] perThread = new long[threads][];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int t = 0; t < threads; t++) {
+            int slot = t;
+            executor.execute(() -> {
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        restTemplate.getForObject(url, String.class);
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = System.nanoTime() - start;
+                }
+                perThread[slot] = Arrays.copyOf(samples, n);
+                done.countDown();
+            });
+        }
+        done.await();
+        executor.shutdown();
+        if (errors.get() > 0) System.out.printf("  (%d errors)%n", errors.get());
+        return new Result(Arrays.stream(perThread).flatMapToLong(Arrays::stream).sorted().toArray());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private record Result(long[] latencies) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.weather.prediction.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.weather.prediction.parser.ForecastParser;
+import com.weather.prediction.parser.ForecastPayload;
+import com.weather.prediction.support.StubForecastServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bytes allocated and time per parse of a recorded upstream payload: the previous
+ * String + {@code new Gson().fromJson(..., JsonObject.class)} tree walk versus {@link ForecastParser}.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.weather.prediction.benchmark.ParseAllocationBenchmark \
+ *     -Dbenchmark.args="/payloads/forecast-40.json"
+ * </pre>
+ */
+public class ParseAllocationBenchmark {
+
+    private static final int WARMUP = 20_000;
+
+    private static final int ITERATIONS = 50_000;
+
+    private static double sink;
+
+    public static void main(String[] args) throws IOException {
+        String resource = args.length > 0 ? args[0] : "/payloads/forecast-40.json";
+        byte[] body = StubForecastServer.readResource(resource);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.out.printf("payload=%s (%d bytes)%n", resource, body.length);
+        System.out.printf("%-10s %14s %12s%n", "path", "bytes/op", "us/op");
+        for (int round = 0; round < 2; round++) {
+            report("tree", threads, () -> tree(body));
+            report("streaming", threads, () -> streaming(body));
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static void report(String name, com.sun.management.ThreadMXBean threads, ParseCall call) throws IOException {
+        for (int i = 0; i < WARMUP; i++) call.run();
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) call.run();
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        System.out.printf("%-10s %14d %12.2f%n", name, bytes / ITERATIONS, elapsed / 1000.0 / ITERATIONS);
+    }
+
+    private static void tree(byte[] body) {
+        String res = new String(body, StandardCharsets.UTF_8);
+        JsonObject jsonObject = new Gson().fromJson(res, JsonObject.class);
+        JsonArray list = jsonObject.getAsJsonArray("list");
+        double acc = 0;
+        for (JsonElement element : list) {
+            JsonObject jo = element.getAsJsonObject();
+            acc += jo.get("dt").getAsLong();
+            acc += jo.get("main").getAsJsonObject().get("temp").getAsDouble();
+            acc += jo.get("wind").getAsJsonObject().get("speed").getAsDouble();
+            if (jo.get("rain") != null) acc += jo.get("rain").getAsJsonObject().get("3h").getAsDouble();
+            acc += jo.getAsJsonArray("weather").get(0).getAsJsonObject().get("main").getAsString().length();
+        }
+        sink += acc;
+    }
+
+    private static void streaming(byte[] body) throws IOException {
+        ForecastPayload payload = ForecastParser.parse(new ByteArrayInputStream(body));
+        double acc = 0;
+        for (int i = 0; i < payload.size(); i++) {
+            acc += payload.dt(i) + payload.temp(i) + payload.windSpeed(i);
+            if (!Double.isNaN(payload.rain3h(i))) acc += payload.rain3h(i);
+            acc += payload.weatherMain(i)[0].length();
+        }
+        sink += acc;
+    }
+
+    private interface ParseCall {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,82 @@
+package com.weather.prediction.cache;
+
+import com.weather.prediction.model.WeatherResponse;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A processed forecast held by {@link ForecastCache} together with the
+ * timestamps needed to decide whether it is fresh, stale or expired.
+ */
+@Getter
+public class CachedForecast {
+
+    private final WeatherResponse response;
+
+    private final long fetchedAt;
+
+    private final long expiresAt;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    @Getter(AccessLevel.NONE)
+    private volatile String eTag;
+
+    public CachedForecast(WeatherResponse response, long fetchedAt, long expiresAt) {
+        this.response = response;
+        this.fetchedAt = fetchedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    /**
+     * Strong entity tag of this forecast: the first 64 bits of a SHA-256 over its content, computed
+     * once per entry. Identical forecasts get the same tag on every instance.
+     */
+    public String getETag() {
+        String tag = eTag;
+        if (tag == null) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(response.toString().getBytes(StandardCharsets.UTF_8));
+                tag = '"' + HexFormat.of().formatHex(digest, 0, 8) + '"';
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            eTag = tag;
+        }
+        return tag;
+    }
+
+    /**
+     * @param eTag a strong entity tag, as returned by {@link #getETag()}
+     * @return the strong tag of the gzip-encoded representation with that tag, which must differ from it
+     */
+    public static String gzipETag(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + GZIP_SUFFIX + '"';
+    }
+
+    /**
+     * Rough heap footprint used by the cache weigher: a fixed overhead plus
+     * one unit per forecast day and alert string.
+     */
+    public int weight() {
+        int weight = 1;
+        if (response.getForecastData() != null) {
+            for (var day : response.getForecastData()) {
+                weight += 1 + day.getAlerts().size();
+            }
+        }
+        return weight;
+    }
+}
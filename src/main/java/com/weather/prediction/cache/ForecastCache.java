@@ -0,0 +1,497 @@
+package com.weather.prediction.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.weather.prediction.model.EncodedResponse;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.SingleFlight;
+import com.weather.prediction.utils.UpstreamPriority;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of processed {@link WeatherResponse} objects keyed by normalized city.
+ *
+ * An entry is fresh for {@code ttl-seconds} after it was fetched. For a further
+ * {@code stale-while-revalidate-seconds} it is still served immediately while a single
+ * background refresh replaces it; after that window the caller loads it synchronously. Entries are
+ * retained for {@code retain-stale-seconds} so that {@link #getLastKnownGood(String)} can serve them
+ * when the upstream is unavailable.
+ * Only successful ("200") responses are cached. Concurrent loads of the same key, including a
+ * background refresh, are collapsed into one upstream call by {@link SingleFlight}.
+ *
+ * With a {@link ForecastSnapshotStore}, every cached forecast is also persisted, the cache is
+ * warmed from the persisted snapshots at startup (keeping their original fetch time, so old ones
+ * start out stale) and {@link #getLastKnownGood(String)} falls back to the store for evicted keys.
+ *
+ * With {@code encode-responses}, each forecast is encoded to JSON once when it is cached and keeps
+ * the bytes as its {@link WeatherResponse#getEncoded() encoded} body, so that responses written
+ * from the cache are copied rather than serialized again.
+ *
+ * With an enabled {@link SharedForecastTier}, this cache is the near-cache of every instance in
+ * front of a shared one: loads look in the shared tier before the upstream and take its lease before
+ * calling the upstream, every forecast cached from the upstream is written to it, and an entry is
+ * replaced in the background when another instance announces a newer version of it.
+ *
+ * Listeners added with {@link #addListener(BiConsumer)} are told about every forecast put into
+ * the cache, on the thread that loaded it, and about every key that left the cache (with a null entry).
+ */
+@Component
+@Slf4j
+public class ForecastCache {
+
+    @Value("${spring.weather.cache.enabled:true}")
+    public boolean enabled = true;
+
+    @Value("${spring.weather.cache.ttl-seconds:1800}")
+    public long ttlSeconds = 1800;
+
+    @Value("${spring.weather.cache.stale-while-revalidate-seconds:600}")
+    public long staleWhileRevalidateSeconds = 600;
+
+    @Value("${spring.weather.cache.retain-stale-seconds:86400}")
+    public long retainStaleSeconds = 86400;
+
+    @Value("${spring.weather.cache.max-entries:10000}")
+    public long maxEntries = 10000;
+
+    @Value("${spring.weather.cache.max-weight:0}")
+    public long maxWeight = 0;
+
+    @Value("${spring.weather.cache.encode-responses:true}")
+    public boolean encodeResponses = true;
+
+    private final Executor refreshExecutor;
+
+    private final SingleFlight singleFlight;
+
+    private final Clock clock;
+
+    private Cache<String, CachedForecast> cache;
+
+    private ForecastSnapshotStore snapshotStore;
+
+    private ObjectMapper objectMapper;
+
+    private SharedForecastTier sharedTier;
+
+    /** Loads waiting for the instance holding the shared lease of their key to announce its forecast. */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> sharedUpdates = new ConcurrentHashMap<>();
+
+    private final List<BiConsumer<String, CachedForecast>> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public ForecastCache(@Qualifier("forecastRefreshExecutor") Executor refreshExecutor, SingleFlight singleFlight) {
+        this(refreshExecutor, singleFlight, Clock.systemUTC());
+    }
+
+    public ForecastCache(Executor refreshExecutor, SingleFlight singleFlight, Clock clock) {
+        this.refreshExecutor = refreshExecutor;
+        this.singleFlight = singleFlight;
+        this.clock = clock;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotStore(ForecastSnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired(required = false)
+    public void setSharedTier(SharedForecastTier sharedTier) {
+        this.sharedTier = sharedTier;
+    }
+
+    /**
+     * Registers a callback run with the key and new entry after each successful forecast is cached,
+     * and with the key and null after an entry was evicted, expired or invalidated (not when it was
+     * replaced by a newer one). It runs on the loading or evicting thread, so it must not block;
+     * exceptions are logged and ignored.
+     */
+    public void addListener(BiConsumer<String, CachedForecast> listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void init() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfterWrite(ttlSeconds + Math.max(staleWhileRevalidateSeconds, retainStaleSeconds), TimeUnit.SECONDS)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .executor(Runnable::run);
+        builder.removalListener((String key, CachedForecast value, RemovalCause cause) -> {
+            if (cause != RemovalCause.REPLACED) notifyListeners(key, null);
+        });
+        if (maxWeight > 0) {
+            builder.maximumWeight(maxWeight).weigher((String key, CachedForecast value) -> value.weight());
+        } else {
+            builder.maximumSize(maxEntries);
+        }
+        cache = builder.build();
+        log.info("Forecast cache initialised: enabled={}, ttl={}s, swr={}s, maxEntries={}, maxWeight={}",
+                enabled, ttlSeconds, staleWhileRevalidateSeconds, maxEntries, maxWeight);
+        restoreSnapshots();
+        if (isShared()) sharedTier.onUpdate(this::onSharedUpdate);
+    }
+
+    /**
+     * Normalizes a city name into a cache key: trimmed, lower-cased and with inner whitespace collapsed,
+     * so that "London", " london " and "LONDON" share one entry.
+     */
+    public static String normalize(String city) {
+        if (city == null) return "";
+        return city.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the cached forecast for the key, or loads it with the given loader.
+     *
+     * @param key    normalized city key, see {@link #normalize(String)}
+     * @param loader fetches and processes a fresh forecast from the upstream API
+     * @return a fresh or (within the stale-while-revalidate window) stale forecast, or the loader's result
+     */
+    public WeatherResponse get(String key, Supplier<WeatherResponse> loader) {
+        if (!enabled) return singleFlight.execute(key, loader);
+
+        long now = clock.millis();
+        CachedForecast entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.isFresh(now)) return entry.getResponse();
+            if (now < entry.getExpiresAt() + TimeUnit.SECONDS.toMillis(staleWhileRevalidateSeconds)) {
+                refreshAsync(key, entry, loader);
+                return entry.getResponse();
+            }
+        }
+        return load(key, loader);
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(String, Supplier)} for loaders returning a future: a fresh or
+     * stale-while-revalidate entry is returned completed, and the background refresh of a stale one
+     * holds no thread while the loader runs.
+     *
+     * @return the cached forecast, or the result of {@link #loadAsync(String, Supplier)}
+     */
+    public CompletableFuture<WeatherResponse> getAsync(String key, Supplier<CompletableFuture<WeatherResponse>> loader) {
+        if (!enabled) return singleFlight.executeAsync(key, loader);
+
+        long now = clock.millis();
+        CachedForecast entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.isFresh(now)) return CompletableFuture.completedFuture(entry.getResponse());
+            if (now < entry.getExpiresAt() + TimeUnit.SECONDS.toMillis(staleWhileRevalidateSeconds)) {
+                revalidateAsync(key, entry, loader);
+                return CompletableFuture.completedFuture(entry.getResponse());
+            }
+        }
+        return loadAsync(key, loader);
+    }
+
+    public CachedForecast getEntry(String key) {
+        return enabled ? cache.getIfPresent(key) : null;
+    }
+
+    /**
+     * @return the most recent successful forecast for the key regardless of its age, or null
+     */
+    public WeatherResponse getLastKnownGood(String key) {
+        CachedForecast entry = getEntry(key);
+        if (entry != null) return entry.getResponse();
+        ForecastSnapshotStore.Snapshot snapshot = snapshotStore == null ? null : snapshotStore.get(key);
+        if (snapshot == null && isShared()) snapshot = sharedTier.get(key);
+        return snapshot == null ? null : snapshot.response();
+    }
+
+    /**
+     * @return true if the entry is fresh or within the stale-while-revalidate window
+     */
+    public boolean isServable(CachedForecast entry) {
+        return clock.millis() < entry.getExpiresAt() + TimeUnit.SECONDS.toMillis(staleWhileRevalidateSeconds);
+    }
+
+    /**
+     * @return how long the entry stays fresh from now, 0 if it is already stale
+     */
+    public long remainingFreshMillis(CachedForecast entry) {
+        return Math.max(0, entry.getExpiresAt() - clock.millis());
+    }
+
+    /**
+     * @return true if the key has no entry or its entry stops being fresh within {@code aheadMillis}
+     */
+    public boolean needsRefresh(String key, long aheadMillis) {
+        if (!enabled) return false;
+        CachedForecast entry = cache.getIfPresent(key);
+        return entry == null || clock.millis() >= entry.getExpiresAt() - aheadMillis;
+    }
+
+    /**
+     * Loads the key now, regardless of the current entry, and caches the result if it succeeded.
+     * Shares the upstream call with any concurrent load of the same key.
+     */
+    public WeatherResponse refresh(String key, Supplier<WeatherResponse> loader) {
+        return load(key, loader);
+    }
+
+    /**
+     * Non-blocking variant of {@link #refresh(String, Supplier)} for loaders returning a future. Shares
+     * the upstream call with any concurrent load of the same key, blocking or not, and goes through the
+     * shared tier like blocking loads do; waiting for another instance's lease holds no thread, while
+     * the shared lookup and lease themselves are short commands bounded by the tier's timeout. The loader
+     * runs with the caller's {@link UpstreamPriority}, even when it is started after waiting for the lease.
+     */
+    public CompletableFuture<WeatherResponse> loadAsync(String key, Supplier<CompletableFuture<WeatherResponse>> loader) {
+        if (!enabled) return singleFlight.executeAsync(key, loader);
+        UpstreamPriority priority = UpstreamPriority.current();
+        return singleFlight.executeAsync(key, () -> {
+            if (!isShared()) return fetchAsync(key, loader, false, priority);
+            WeatherResponse shared = loadShared(key);
+            if (shared != null) return CompletableFuture.completedFuture(shared);
+            if (sharedTier.tryLease(key)) return fetchAsync(key, loader, true, priority);
+            CompletableFuture<Void> update = sharedUpdates.computeIfAbsent(key, k -> new CompletableFuture<>());
+            shared = loadShared(key);
+            if (shared != null) {
+                sharedUpdates.remove(key, update);
+                return CompletableFuture.completedFuture(shared);
+            }
+            return update.copy()
+                    .completeOnTimeout(null, sharedTier.leaseWaitMs, TimeUnit.MILLISECONDS)
+                    .thenApplyAsync(ignored -> loadShared(key), refreshExecutor)
+                    .exceptionally(e -> null)
+                    .whenComplete((response, e) -> sharedUpdates.remove(key, update))
+                    .thenCompose(response -> response != null ? CompletableFuture.completedFuture(response) : fetchAsync(key, loader, false, priority));
+        });
+    }
+
+    public void put(String key, WeatherResponse response) {
+        if (!enabled || !isCacheable(response)) return;
+        long now = clock.millis();
+        cacheLocally(key, response, now);
+        if (isShared()) {
+            sharedTier.put(key, response, now, TimeUnit.SECONDS.toMillis(ttlSeconds + Math.max(staleWhileRevalidateSeconds, retainStaleSeconds)));
+        }
+    }
+
+    /**
+     * Calls the action for every cached entry, e.g. to build an index of the entries cached before
+     * a listener was added.
+     */
+    public void forEach(BiConsumer<String, CachedForecast> action) {
+        cache.asMap().forEach(action);
+    }
+
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    private void cacheLocally(String key, WeatherResponse response, long fetchedAt) {
+        encode(key, response);
+        CachedForecast entry = new CachedForecast(response, fetchedAt, fetchedAt + TimeUnit.SECONDS.toMillis(ttlSeconds));
+        cache.put(key, entry);
+        if (snapshotStore != null) snapshotStore.save(key, response, fetchedAt);
+        notifyListeners(key, entry);
+    }
+
+    private static boolean isCacheable(WeatherResponse response) {
+        return response != null && "200".equals(response.getCod());
+    }
+
+    private boolean isShared() {
+        return enabled && sharedTier != null && sharedTier.isEnabled();
+    }
+
+    private void encode(String key, WeatherResponse response) {
+        if (!encodeResponses || objectMapper == null || response.getEncoded() != null) return;
+        try {
+            response.setEncoded(EncodedResponse.of(objectMapper, response));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not encode forecast for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void notifyListeners(String key, CachedForecast entry) {
+        for (BiConsumer<String, CachedForecast> listener : listeners) {
+            try {
+                listener.accept(key, entry);
+            } catch (RuntimeException e) {
+                log.warn("Forecast cache listener failed for {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private void restoreSnapshots() {
+        if (!enabled || snapshotStore == null) return;
+        long oldest = clock.millis() - TimeUnit.SECONDS.toMillis(ttlSeconds + Math.max(staleWhileRevalidateSeconds, retainStaleSeconds));
+        int restored = 0;
+        for (String key : snapshotStore.keys()) {
+            ForecastSnapshotStore.Snapshot snapshot = snapshotStore.get(key);
+            if (snapshot == null || snapshot.fetchedAt() < oldest) continue;
+            long expiresAt = snapshot.fetchedAt() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+            encode(snapshot.key(), snapshot.response());
+            cache.put(snapshot.key(), new CachedForecast(snapshot.response(), snapshot.fetchedAt(), expiresAt));
+            restored++;
+        }
+        if (restored > 0) log.info("Warmed forecast cache with {} persisted snapshots", restored);
+    }
+
+    private WeatherResponse load(String key, Supplier<WeatherResponse> loader) {
+        return singleFlight.execute(key, () -> {
+            boolean leased = false;
+            if (isShared()) {
+                WeatherResponse shared = loadShared(key);
+                if (shared != null) return shared;
+                leased = sharedTier.tryLease(key);
+                if (!leased && (shared = awaitShared(key)) != null) return shared;
+            }
+            WeatherResponse response;
+            try {
+                response = loader.get();
+            } catch (RuntimeException e) {
+                if (leased) sharedTier.release(key);
+                throw e;
+            }
+            put(key, response);
+            if (leased && !isCacheable(response)) sharedTier.release(key);
+            return response;
+        });
+    }
+
+    /**
+     * Starts the loader with the given priority and caches its result; releases the lease if it yields nothing to share.
+     */
+    private CompletableFuture<WeatherResponse> fetchAsync(String key, Supplier<CompletableFuture<WeatherResponse>> loader,
+                                                          boolean leased, UpstreamPriority priority) {
+        CompletableFuture<WeatherResponse> fetched;
+        try {
+            fetched = priority.call(loader);
+        } catch (RuntimeException e) {
+            fetched = CompletableFuture.failedFuture(e);
+        }
+        return fetched.whenComplete((response, error) -> {
+            if (error == null) put(key, response);
+            if (leased && (error != null || !isCacheable(response))) sharedTier.release(key);
+        });
+    }
+
+    /**
+     * Caches the shared tier's forecast for the key if it is fresh and newer than the local entry.
+     *
+     * @return the shared forecast if it was cached, otherwise null
+     */
+    private WeatherResponse loadShared(String key) {
+        ForecastSnapshotStore.Snapshot snapshot = sharedTier.get(key);
+        if (snapshot == null || !isCacheable(snapshot.response())) return null;
+        if (clock.millis() >= snapshot.fetchedAt() + TimeUnit.SECONDS.toMillis(ttlSeconds)) return null;
+        CachedForecast local = cache.getIfPresent(key);
+        if (local != null && local.getFetchedAt() >= snapshot.fetchedAt()) return null;
+        cacheLocally(key, snapshot.response(), snapshot.fetchedAt());
+        return snapshot.response();
+    }
+
+    /**
+     * Waits up to {@code lease-wait-ms} for the instance holding the key's lease to announce its forecast.
+     *
+     * @return the announced forecast, or null if none came in time and the caller should load the key itself
+     */
+    private WeatherResponse awaitShared(String key) {
+        CompletableFuture<Void> update = sharedUpdates.computeIfAbsent(key, k -> new CompletableFuture<>());
+        try {
+            WeatherResponse shared = loadShared(key);
+            if (shared != null) return shared;
+            update.get(sharedTier.leaseWaitMs, TimeUnit.MILLISECONDS);
+            return loadShared(key);
+        } catch (TimeoutException | ExecutionException e) {
+            log.debug("No shared forecast for {} within {}ms", key, sharedTier.leaseWaitMs);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            sharedUpdates.remove(key, update);
+        }
+    }
+
+    /**
+     * Wakes loads waiting for the key and, if the local entry is older than the announced forecast,
+     * replaces it from the shared tier in the background; an entry that cannot be replaced is invalidated.
+     */
+    private void onSharedUpdate(String key, long fetchedAt) {
+        CompletableFuture<Void> waiting = sharedUpdates.get(key);
+        if (waiting != null) waiting.complete(null);
+        if (!isOlder(key, fetchedAt)) return;
+        try {
+            refreshExecutor.execute(() -> {
+                if (loadShared(key) == null && isOlder(key, fetchedAt)) cache.invalidate(key);
+            });
+        } catch (RejectedExecutionException e) {
+            cache.invalidate(key);
+        }
+    }
+
+    private boolean isOlder(String key, long fetchedAt) {
+        CachedForecast local = cache.getIfPresent(key);
+        return local != null && local.getFetchedAt() < fetchedAt;
+    }
+
+    private void revalidateAsync(String key, CachedForecast entry, Supplier<CompletableFuture<WeatherResponse>> loader) {
+        if (!entry.getRefreshing().compareAndSet(false, true)) return;
+        UpstreamPriority.BACKGROUND.call(() -> loadAsync(key, loader)).whenComplete((response, error) -> {
+            entry.getRefreshing().set(false);
+            if (error != null) log.warn("Background refresh failed for {}: {}", key, error.getMessage());
+        });
+    }
+
+    private void refreshAsync(String key, CachedForecast entry, Supplier<WeatherResponse> loader) {
+        if (!entry.getRefreshing().compareAndSet(false, true)) return;
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    UpstreamPriority.BACKGROUND.call(() -> load(key, loader));
+                } catch (RuntimeException e) {
+                    log.warn("Background refresh failed for {}: {}", key, e.getMessage());
+                } finally {
+                    entry.getRefreshing().set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.getRefreshing().set(false);
+            log.warn("Background refresh rejected for {}", key);
+        }
+    }
+}
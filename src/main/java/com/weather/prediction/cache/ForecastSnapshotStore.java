@@ -0,0 +1,348 @@
+package com.weather.prediction.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.model.WeatherResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the latest processed forecast per city on local disk so that a restarted instance can
+ * serve (and fall back to) forecasts before its first upstream call.
+ *
+ * The store is an append-only log with one JSON record per line. It is read once at startup,
+ * indexing the newest record per city that is younger than {@code max-age-seconds}. Only the index
+ * (fetch time and position of each city's record) stays in memory; records are read back from the
+ * log when asked for, so the heap holds forecasts only in the bounded {@link ForecastCache} and in
+ * saves still waiting for the writer. Records are appended by a single background writer, off the
+ * request path. Once the log holds more than {@code compact-ratio} times as many records as there
+ * are cities (and at least {@code compact-min-records}), the writer rewrites it with only the live
+ * records and atomically replaces the old file. A torn last line left by a crash is skipped on load.
+ */
+@Component
+@Slf4j
+public class ForecastSnapshotStore {
+
+    @Value("${spring.weather.snapshot.enabled:false}")
+    public boolean enabled = false;
+
+    @Value("${spring.weather.snapshot.path:data/forecast-snapshots.log}")
+    public String path = "data/forecast-snapshots.log";
+
+    @Value("${spring.weather.snapshot.max-age-seconds:86400}")
+    public long maxAgeSeconds = 86400;
+
+    @Value("${spring.weather.snapshot.compact-ratio:4}")
+    public int compactRatio = 4;
+
+    @Value("${spring.weather.snapshot.compact-min-records:1000}")
+    public int compactMinRecords = 1000;
+
+    @Value("${spring.weather.snapshot.queue:10000}")
+    public int queue = 10000;
+
+    private final Clock clock;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** Position of the newest logged record per city; only changed by the writer thread after {@link #init()}. */
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+
+    /** Saved snapshots the writer has not logged yet. */
+    private final ConcurrentHashMap<String, Snapshot> pending = new ConcurrentHashMap<>();
+
+    /** Held to read records, and exclusively to swap in a compacted log. */
+    private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+
+    private ThreadPoolExecutor writer;
+
+    private FileChannel channel;
+
+    /** Size of the log file, only touched by the writer thread after {@link #init()}. */
+    private long end;
+
+    /** Records in the log file, only touched by the writer thread after {@link #init()}. */
+    private long records;
+
+    /**
+     * One line of the log: a processed forecast and when it was fetched from the upstream.
+     */
+    public record Snapshot(String key, long fetchedAt, WeatherResponse response) {
+    }
+
+    /**
+     * Where a record is in the log: {@code length} bytes from {@code offset}, not counting the line break.
+     */
+    private record Location(long fetchedAt, long offset, int length) {
+    }
+
+    @Autowired
+    public ForecastSnapshotStore() {
+        this(Clock.systemUTC());
+    }
+
+    public ForecastSnapshotStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        Path file = Path.of(path);
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            load(file);
+            channel = open(file);
+            end = channel.size();
+            if (endsWithTornRecord()) write(new byte[]{'\n'});
+        } catch (IOException e) {
+            log.warn("Forecast snapshots disabled, cannot use {}: {}", file.toAbsolutePath(), e.getMessage());
+            enabled = false;
+            return;
+        }
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue), r -> {
+            Thread thread = new Thread(r, "forecast-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Forecast snapshots: loaded {} cities from {} ({} records)", index.size(), file.toAbsolutePath(), records);
+    }
+
+    /**
+     * @return the keys with a snapshot
+     */
+    public Set<String> keys() {
+        if (!enabled) return Set.of();
+        Set<String> keys = new HashSet<>(index.keySet());
+        keys.addAll(pending.keySet());
+        return keys;
+    }
+
+    /**
+     * Reads the newest snapshot of every city from the log, e.g. to inspect it; to go through them
+     * without holding all at once, use {@link #keys()} and {@link #get(String)}.
+     */
+    public List<Snapshot> snapshots() {
+        return keys().stream().map(this::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * @return the newest snapshot for the key, read from the log unless it is still being written, or null
+     */
+    public Snapshot get(String key) {
+        if (!enabled) return null;
+        Snapshot unwritten = pending.get(key);
+        fileLock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            if (location == null || unwritten != null && unwritten.fetchedAt() >= location.fetchedAt()) return unwritten;
+            return objectMapper.readValue(read(location), Snapshot.class);
+        } catch (IOException e) {
+            log.warn("Snapshot read for {} failed: {}", key, e.getMessage());
+            return unwritten;
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the forecast for the key to the log in the background; until then it is kept in
+     * memory. If the writer is backed up the save is dropped.
+     */
+    public void save(String key, WeatherResponse response, long fetchedAt) {
+        if (!enabled) return;
+        Snapshot snapshot = new Snapshot(key, fetchedAt, response);
+        pending.merge(key, snapshot, (old, now) -> now.fetchedAt() >= old.fetchedAt() ? now : old);
+        try {
+            writer.execute(() -> append(snapshot));
+        } catch (RejectedExecutionException e) {
+            pending.remove(key, snapshot);
+            log.warn("Snapshot write for {} dropped, writer queue full", key);
+        }
+    }
+
+    /**
+     * Waits until every snapshot saved so far has been written.
+     */
+    public void flush() {
+        if (!enabled) return;
+        try {
+            Future<?> barrier = writer.submit(() -> { });
+            barrier.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Snapshot flush did not complete: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) return;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) log.warn("Snapshot writer did not drain in time");
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Closing snapshot log failed: {}", e.getMessage());
+        }
+    }
+
+    private void load(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        long minFetchedAt = clock.millis() - TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        int skipped = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = 0;
+            long lineStart = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') continue;
+                    line.write(buffer, from, i - from);
+                    if (!index(line.toByteArray(), lineStart, minFetchedAt)) skipped++;
+                    line.reset();
+                    from = i + 1;
+                    lineStart = position + from;
+                }
+                line.write(buffer, from, read - from);
+                position += read;
+            }
+            if (line.size() > 0 && !index(line.toByteArray(), lineStart, minFetchedAt)) skipped++;
+        }
+        if (skipped > 0) log.warn("Skipped {} unreadable records in {}", skipped, file);
+    }
+
+    /**
+     * Indexes one line of the log read at startup.
+     *
+     * @return false if the line is not a readable record
+     */
+    private boolean index(byte[] line, long offset, long minFetchedAt) {
+        if (new String(line, StandardCharsets.UTF_8).isBlank()) return true;
+        records++;
+        Snapshot snapshot;
+        try {
+            snapshot = objectMapper.readValue(line, Snapshot.class);
+        } catch (IOException e) {
+            return false;
+        }
+        if (snapshot.key() == null || snapshot.response() == null || snapshot.fetchedAt() < minFetchedAt) return true;
+        index.merge(snapshot.key(), new Location(snapshot.fetchedAt(), offset, line.length), ForecastSnapshotStore::newer);
+        return true;
+    }
+
+    private void append(Snapshot snapshot) {
+        try {
+            byte[] record = objectMapper.writeValueAsBytes(snapshot);
+            long offset = end;
+            write(record);
+            write(new byte[]{'\n'});
+            index.merge(snapshot.key(), new Location(snapshot.fetchedAt(), offset, record.length), ForecastSnapshotStore::newer);
+            records++;
+            if (records >= compactMinRecords && records > (long) compactRatio * index.size()) compact();
+        } catch (IOException e) {
+            log.warn("Snapshot write for {} failed: {}", snapshot.key(), e.getMessage());
+        } finally {
+            pending.remove(snapshot.key(), snapshot);
+        }
+    }
+
+    /**
+     * Rewrites the log with the live records only, copied as they are. Runs on the writer thread.
+     */
+    private void compact() throws IOException {
+        Path file = Path.of(path);
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        long minFetchedAt = clock.millis() - TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        Map<String, Location> live = new HashMap<>();
+        long size = 0;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (location.fetchedAt() < minFetchedAt) continue;
+                ByteBuffer record = ByteBuffer.allocate(location.length() + 1);
+                record.put(read(location)).put((byte) '\n').flip();
+                live.put(entry.getKey(), new Location(location.fetchedAt(), size, location.length()));
+                while (record.hasRemaining()) size += out.write(record);
+            }
+        }
+        fileLock.writeLock().lock();
+        try {
+            channel.close();
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                channel = open(file);
+                end = channel.size();
+            }
+            index.keySet().retainAll(live.keySet());
+            index.putAll(live);
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+        log.info("Compacted forecast snapshots: {} records -> {}", records, live.size());
+        records = live.size();
+    }
+
+    private byte[] read(Location location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length());
+        while (record.hasRemaining()) {
+            if (channel.read(record, location.offset() + record.position()) < 0) throw new IOException("Snapshot log truncated");
+        }
+        return record.array();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) end += channel.write(buffer, end);
+    }
+
+    private boolean endsWithTornRecord() throws IOException {
+        if (end == 0) return false;
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, end - 1);
+        return last.get(0) != '\n';
+    }
+
+    private static Location newer(Location old, Location now) {
+        return now.fetchedAt() >= old.fetchedAt() ? now : old;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,74 @@
+package com.weather.prediction.cache;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedForecastStore} held in this JVM, standing in for Redis: several {@link SharedForecastTier}s
+ * over one instance behave like instances sharing a Redis server, so the shared tier can be run and
+ * tested on one machine without outside services. Expired keys are dropped when they are read.
+ * Messages are delivered to the listeners synchronously, on the publishing thread.
+ */
+public class InMemorySharedForecastStore implements SharedForecastStore {
+
+    private final Clock clock;
+
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemorySharedForecastStore() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemorySharedForecastStore(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Value value = values.get(key);
+        if (value == null) return null;
+        if (clock.millis() < value.expiresAt()) return value.bytes().clone();
+        values.remove(key, value);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> put(String key, byte[] value, long ttlMillis) {
+        values.put(key, new Value(value.clone(), clock.millis() + ttlMillis));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] value, long ttlMillis) {
+        long now = clock.millis();
+        Value mine = new Value(value.clone(), now + ttlMillis);
+        return values.compute(key, (k, current) -> current == null || now >= current.expiresAt() ? mine : current) == mine;
+    }
+
+    @Override
+    public CompletionStage<?> publish(String message) {
+        for (Consumer<String> listener : listeners) listener.accept(message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+
+    private record Value(byte[] bytes, long expiresAt) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.weather.prediction.cache;
+
+import com.weather.prediction.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers normalized city names the upstream answered with "404", so that repeated lookups of
+ * unknown cities (typos, bots) are answered without an upstream call.
+ *
+ * Names are kept in two {@link BloomFilter} generations: new names go into the current one, and
+ * lookups check both. The current generation becomes the previous one (dropping the old previous)
+ * every {@code window-seconds}, or earlier once {@code capacity} names were added to it, so a name
+ * is remembered for one to two windows and the false positive rate stays near
+ * {@code false-positive-rate}. A false positive answers a lookup of an uncached, existing city with
+ * "404" until it ages out; cached cities are never checked.
+ */
+@Component
+@Slf4j
+public class NegativeCache {
+
+    @Value("${spring.weather.negative-cache.enabled:true}")
+    public boolean enabled = true;
+
+    @Value("${spring.weather.negative-cache.capacity:100000}")
+    public int capacity = 100000;
+
+    @Value("${spring.weather.negative-cache.false-positive-rate:0.001}")
+    public double falsePositiveRate = 0.001;
+
+    @Value("${spring.weather.negative-cache.window-seconds:3600}")
+    public long windowSeconds = 3600;
+
+    private final Clock clock;
+
+    private final Counter hits;
+
+    private final Counter additions;
+
+    private volatile Generations generations;
+
+    @Autowired
+    public NegativeCache(MeterRegistry meterRegistry) {
+        this(meterRegistry, Clock.systemUTC());
+    }
+
+    public NegativeCache(MeterRegistry meterRegistry, Clock clock) {
+        this.clock = clock;
+        this.hits = Counter.builder("weather.negative.hits")
+                .description("Lookups answered as unknown city without an upstream call")
+                .register(meterRegistry);
+        this.additions = Counter.builder("weather.negative.additions")
+                .description("City names added to the negative cache after an upstream 404")
+                .register(meterRegistry);
+        Gauge.builder("weather.negative.entries", this, cache -> cache.generations == null ? 0 : cache.generations.current.insertions())
+                .description("Names in the current negative cache generation")
+                .register(meterRegistry);
+        Gauge.builder("weather.negative.false.positive.rate", this,
+                        cache -> cache.generations == null ? 0 : cache.generations.current.expectedFalsePositiveProbability())
+                .description("Expected false positive rate of the current negative cache generation")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        generations = new Generations(new BloomFilter(capacity, falsePositiveRate), null, clock.millis());
+        log.info("Negative cache initialised: enabled={}, capacity={}, fpp={}, window={}s",
+                enabled, capacity, falsePositiveRate, windowSeconds);
+    }
+
+    /**
+     * @param key normalized city key, see {@link ForecastCache#normalize(String)}
+     * @return true if the upstream answered "404" for the key within the last one to two windows
+     *         (or, with the configured probability, if it did not)
+     */
+    public boolean isKnownMissing(String key) {
+        if (!enabled) return false;
+        Generations current = rotateIfDue();
+        boolean missing = current.current.mightContain(key)
+                || (current.previous != null && current.previous.mightContain(key));
+        if (missing) hits.increment();
+        return missing;
+    }
+
+    /**
+     * Records that the upstream answered "404" for the key.
+     */
+    public void add(String key) {
+        if (!enabled) return;
+        if (rotateIfDue().current.put(key)) additions.increment();
+    }
+
+    private Generations rotateIfDue() {
+        Generations current = generations;
+        long now = clock.millis();
+        if (now < current.startedAt + TimeUnit.SECONDS.toMillis(windowSeconds) && !current.current.isFull()) return current;
+        synchronized (this) {
+            if (generations != current) return generations;
+            generations = new Generations(new BloomFilter(capacity, falsePositiveRate), current.current, now);
+            log.debug("Negative cache rotated after {} names", current.current.insertions());
+            return generations;
+        }
+    }
+
+    private record Generations(BloomFilter current, BloomFilter previous, long startedAt) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.weather.prediction.cache;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedForecastStore} on a Redis server (or anything speaking its protocol, e.g. Valkey or
+ * KeyDB), through one multiplexed Lettuce connection for commands and one for the subscription.
+ * Lettuce reconnects and re-subscribes on its own after a connection loss; commands issued
+ * meanwhile fail after {@code timeout}, asynchronous ones included.
+ */
+public class RedisSharedForecastStore implements SharedForecastStore {
+
+    private final RedisClient client;
+
+    private final String channel;
+
+    private final StatefulRedisConnection<String, byte[]> connection;
+
+    private StatefulRedisPubSubConnection<String, String> subscription;
+
+    /**
+     * Connects right away.
+     *
+     * @param uri e.g. {@code redis://localhost:6379/0} or {@code rediss://:password@host:6380}
+     * @throws io.lettuce.core.RedisConnectionException if the server cannot be reached
+     */
+    public RedisSharedForecastStore(String uri, String channel, Duration timeout) {
+        RedisURI redisUri = RedisURI.create(uri);
+        redisUri.setTimeout(timeout);
+        this.client = RedisClient.create(redisUri);
+        this.client.setOptions(ClientOptions.builder().timeoutOptions(TimeoutOptions.enabled(timeout)).build());
+        this.channel = channel;
+        try {
+            this.connection = client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+        } catch (RuntimeException e) {
+            client.shutdown();
+            throw e;
+        }
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return connection.sync().get(key);
+    }
+
+    @Override
+    public CompletionStage<?> put(String key, byte[] value, long ttlMillis) {
+        return connection.async().set(key, value, SetArgs.Builder.px(ttlMillis));
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] value, long ttlMillis) {
+        return "OK".equals(connection.sync().set(key, value, SetArgs.Builder.nx().px(ttlMillis)));
+    }
+
+    @Override
+    public CompletionStage<?> publish(String message) {
+        return connection.async().publish(channel, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> listener) {
+        boolean first = subscription == null;
+        if (first) subscription = client.connectPubSub();
+        subscription.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String from, String message) {
+                listener.accept(message);
+            }
+        });
+        if (first) subscription.sync().subscribe(channel);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (subscription != null) subscription.close();
+        connection.close();
+        client.shutdown();
+    }
+}
@@ -0,0 +1,46 @@
+package com.weather.prediction.cache;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * Transport of the shared tier behind every instance's {@link ForecastCache}: a key-value store
+ * with per-key expiry and a broadcast channel, the subset of Redis that {@link SharedForecastTier}
+ * needs. Implementations must be safe for concurrent use; failures are reported as exceptions (or
+ * failed stages) and never retried here.
+ *
+ * @see RedisSharedForecastStore
+ * @see InMemorySharedForecastStore
+ */
+public interface SharedForecastStore extends AutoCloseable {
+
+    /**
+     * @return the value of the key, or null if it is absent or expired
+     */
+    byte[] get(String key);
+
+    /**
+     * Sets the key, replacing any value, to expire after {@code ttlMillis}.
+     */
+    CompletionStage<?> put(String key, byte[] value, long ttlMillis);
+
+    /**
+     * Sets the key to expire after {@code ttlMillis} unless it already has a value.
+     *
+     * @return true if the key was set
+     */
+    boolean putIfAbsent(String key, byte[] value, long ttlMillis);
+
+    /**
+     * Sends the message to the listeners of every instance, this one included.
+     */
+    CompletionStage<?> publish(String message);
+
+    /**
+     * Registers a listener for published messages. It may run on an I/O thread, so it must not block.
+     */
+    void subscribe(Consumer<String> listener);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,220 @@
+package com.weather.prediction.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.model.WeatherResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Second cache level shared by all instances, behind the local {@link ForecastCache} of each:
+ * a forecast one instance fetched is found by the others instead of being fetched again, so upstream
+ * calls do not grow with the number of replicas.
+ *
+ * Every forecast an instance gets from the upstream is written to the {@link SharedForecastStore}
+ * together with its fetch time, which serves as its version, and its key and fetch time are then
+ * broadcast. Instances holding an older version of the key replace it from the store in the
+ * background; instances without a fresh entry look in the store before calling the upstream. Before
+ * that call an instance takes a lease of {@code lease-ms} on the key, and instances finding it taken
+ * wait up to {@code lease-wait-ms} for the holder's broadcast instead of calling the upstream as well.
+ *
+ * {@code type} selects the store: {@code none} (the default; each instance caches alone),
+ * {@code redis} for a server at {@code redis-uri}, or {@code memory} for an in-process stand-in.
+ * Store failures are logged, counted and treated as misses, so an instance that loses the store
+ * carries on as if it were alone.
+ */
+@Component
+@Slf4j
+public class SharedForecastTier {
+
+    @Value("${spring.weather.shared-cache.type:none}")
+    public String type = "none";
+
+    @Value("${spring.weather.shared-cache.redis-uri:redis://localhost:6379}")
+    public String redisUri = "redis://localhost:6379";
+
+    @Value("${spring.weather.shared-cache.timeout-ms:250}")
+    public long timeoutMs = 250;
+
+    @Value("${spring.weather.shared-cache.key-prefix:weather:forecast:}")
+    public String keyPrefix = "weather:forecast:";
+
+    @Value("${spring.weather.shared-cache.lease-ms:5000}")
+    public long leaseMs = 5000;
+
+    @Value("${spring.weather.shared-cache.lease-wait-ms:2000}")
+    public long leaseWaitMs = 2000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /** Identifies this instance's broadcasts, which it ignores. */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter updates;
+
+    private SharedForecastStore store;
+
+    private boolean ownsStore;
+
+    @Autowired
+    public SharedForecastTier(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.updates = Counter.builder("weather.cache.shared.updates")
+                .description("Forecasts other instances announced in the shared cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A tier over the given store, e.g. one of several tiers sharing an {@link InMemorySharedForecastStore}.
+     */
+    public SharedForecastTier(SharedForecastStore store, MeterRegistry meterRegistry) {
+        this(meterRegistry);
+        this.store = store;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (store != null) return;
+        switch (type) {
+            case "none" -> {
+                return;
+            }
+            case "memory" -> store = new InMemorySharedForecastStore();
+            case "redis" -> {
+                try {
+                    store = new RedisSharedForecastStore(redisUri, keyPrefix + "updates", Duration.ofMillis(timeoutMs));
+                } catch (RuntimeException e) {
+                    log.warn("Shared forecast cache disabled, cannot connect to {}: {}", redacted(redisUri), e.getMessage());
+                    return;
+                }
+            }
+            default -> throw new IllegalStateException("Unknown spring.weather.shared-cache.type: " + type);
+        }
+        ownsStore = true;
+        log.info("Shared forecast cache initialised: type={}, uri={}, timeout={}ms, lease={}ms",
+                type, "redis".equals(type) ? redacted(redisUri) : "-", timeoutMs, leaseMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (ownsStore) store.close();
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /**
+     * @return the forecast another instance stored for the key, or null if there is none or the store failed
+     */
+    public ForecastSnapshotStore.Snapshot get(String key) {
+        try {
+            byte[] value = store.get(keyPrefix + key);
+            count("weather.cache.shared.lookups", "result", value == null ? "miss" : "hit");
+            return value == null ? null : objectMapper.readValue(value, ForecastSnapshotStore.Snapshot.class);
+        } catch (IOException | RuntimeException e) {
+            count("weather.cache.shared.lookups", "result", "error");
+            log.warn("Shared cache lookup of {} failed: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the forecast for {@code ttlMillis} and then tells the other instances about it, without
+     * waiting for either.
+     */
+    public void put(String key, WeatherResponse response, long fetchedAt, long ttlMillis) {
+        try {
+            byte[] value = objectMapper.writeValueAsBytes(new ForecastSnapshotStore.Snapshot(key, fetchedAt, response));
+            store.put(keyPrefix + key, value, ttlMillis)
+                    .thenCompose(stored -> store.publish(message(fetchedAt, key)))
+                    .whenComplete((published, e) -> written(key, e));
+        } catch (JsonProcessingException | RuntimeException e) {
+            written(key, e);
+        }
+    }
+
+    /**
+     * @return true if this instance may call the upstream for the key: it got the lease, or the store failed
+     */
+    public boolean tryLease(String key) {
+        try {
+            boolean acquired = store.putIfAbsent(keyPrefix + "lease:" + key, nodeId.getBytes(StandardCharsets.UTF_8), leaseMs);
+            count("weather.cache.shared.leases", "result", acquired ? "acquired" : "busy");
+            return acquired;
+        } catch (RuntimeException e) {
+            count("weather.cache.shared.leases", "result", "error");
+            log.warn("Shared cache lease of {} failed: {}", key, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Wakes the instances waiting for the key after the lease holder got no forecast to share.
+     */
+    public void release(String key) {
+        try {
+            store.publish(message(0, key));
+        } catch (RuntimeException e) {
+            log.debug("Shared cache release of {} failed: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Registers a callback run with the key and fetch time of every forecast another instance stores,
+     * and with the key and 0 when it released a lease without one. It runs on the store's I/O thread.
+     */
+    public void onUpdate(BiConsumer<String, Long> listener) {
+        store.subscribe(message -> {
+            String[] parts = message.split(" ", 3);
+            if (parts.length < 3 || parts[0].equals(nodeId)) return;
+            try {
+                long fetchedAt = Long.parseLong(parts[1]);
+                updates.increment();
+                listener.accept(parts[2], fetchedAt);
+            } catch (RuntimeException e) {
+                log.warn("Shared cache update {} not applied: {}", message, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Broadcast of a stored forecast: {@code <node id> <fetched at> <key>}; keys may contain spaces, so they come last.
+     */
+    private String message(long fetchedAt, String key) {
+        return nodeId + " " + fetchedAt + " " + key;
+    }
+
+    private void written(String key, Throwable e) {
+        count("weather.cache.shared.writes", "outcome", e == null ? "ok" : "error");
+        if (e != null) log.warn("Shared cache write of {} failed: {}", key, e.getMessage());
+    }
+
+    private void count(String name, String tag, String value) {
+        Counter.builder(name)
+                .description("Shared forecast cache operations by result")
+                .tag(tag, value)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static String redacted(String uri) {
+        return uri.replaceAll("//[^@/]*@", "//***@");
+    }
+}
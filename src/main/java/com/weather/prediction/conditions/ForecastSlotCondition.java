@@ -0,0 +1,19 @@
+package com.weather.prediction.conditions;
+
+import com.google.gson.JsonObject;
+import com.weather.prediction.model.ForecastSlot;
+
+/**
+ * A {@link WeatherCondition} evaluated against a typed {@link ForecastSlot} instead of walking
+ * the upstream JSON. The JSON variant is kept working by extracting a slot from the object.
+ */
+public interface ForecastSlotCondition extends WeatherCondition {
+
+    public boolean isApplicable(ForecastSlot slot);
+
+    @Override
+    public default boolean isApplicable(JsonObject jsonObject) {
+        return isApplicable(ForecastSlot.fromJson(jsonObject));
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.weather.prediction.conditions;
+
+import com.google.gson.JsonObject;
+import com.weather.prediction.model.ForecastSlot;
+
+/**
+ * Lets a {@link WeatherCondition} that only understands the upstream JSON take part in
+ * slot-based evaluation, by handing it a minimal {@link JsonObject} rebuilt from the slot.
+ */
+public class JsonConditionAdapter implements ForecastSlotCondition {
+
+    private final WeatherCondition delegate;
+
+    public JsonConditionAdapter(WeatherCondition delegate) {
+        this.delegate = delegate;
+    }
+
+    public static ForecastSlotCondition adapt(WeatherCondition condition) {
+        return condition instanceof ForecastSlotCondition slotCondition ? slotCondition : new JsonConditionAdapter(condition);
+    }
+
+    @Override
+    public boolean isApplicable(ForecastSlot slot) {
+        return delegate.isApplicable(slot.toJson());
+    }
+
+    @Override
+    public boolean isApplicable(JsonObject jsonObject) {
+        return delegate.isApplicable(jsonObject);
+    }
+
+    @Override
+    public String getAlert() {
+        return delegate.getAlert();
+    }
+}
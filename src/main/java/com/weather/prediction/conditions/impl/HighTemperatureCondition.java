@@ -1,15 +1,14 @@
 package com.weather.prediction.conditions.impl;
 
-import com.google.gson.JsonObject;
-import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.model.ForecastSlot;
 import org.springframework.stereotype.Component;
 
 @Component
-public class HighTemperatureCondition implements WeatherCondition {
+public class HighTemperatureCondition implements ForecastSlotCondition {
     @Override
-    public boolean isApplicable(JsonObject jsonObject) {
-        double temp = jsonObject.get("main").getAsJsonObject().get("temp").getAsDouble();
-        return temp - 273.15 > 40 ; //kelvin to celsius
+    public boolean isApplicable(ForecastSlot slot) {
+        return slot.getTemp() - 273.15 > 40 ; //kelvin to celsius
     }
 
     @Override
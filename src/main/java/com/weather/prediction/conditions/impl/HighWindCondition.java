@@ -1,15 +1,14 @@
 package com.weather.prediction.conditions.impl;
 
-import com.google.gson.JsonObject;
-import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.model.ForecastSlot;
 import org.springframework.stereotype.Component;
 
 @Component
-public class HighWindCondition implements WeatherCondition {
+public class HighWindCondition implements ForecastSlotCondition {
     @Override
-    public boolean isApplicable(JsonObject jsonObject) {
-        double speed = jsonObject.get("wind").getAsJsonObject().get("speed").getAsDouble();
-        return speed  > 4.47;  //mph to m/s
+    public boolean isApplicable(ForecastSlot slot) {
+        return slot.getWindSpeed()  > 4.47;  //mph to m/s
     }
 
     @Override
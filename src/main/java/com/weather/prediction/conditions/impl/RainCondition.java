@@ -1,14 +1,14 @@
 package com.weather.prediction.conditions.impl;
 
-import com.google.gson.JsonObject;
-import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.model.ForecastSlot;
 import org.springframework.stereotype.Component;
 
 @Component
-public class RainCondition implements WeatherCondition {
+public class RainCondition implements ForecastSlotCondition {
     @Override
-    public boolean isApplicable(JsonObject jsonObject) {
-        return  jsonObject.get("rain") != null && jsonObject.get("rain").getAsJsonObject().get("3h").getAsDouble() > 0;
+    public boolean isApplicable(ForecastSlot slot) {
+        return slot.getRain3h() > 0; // NaN (no rain block) is never > 0
     }
 
     @Override
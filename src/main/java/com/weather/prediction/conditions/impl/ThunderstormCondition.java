@@ -1,18 +1,14 @@
 package com.weather.prediction.conditions.impl;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.model.ForecastSlot;
 import org.springframework.stereotype.Component;
 
 @Component
-public class ThunderstormCondition implements WeatherCondition {
+public class ThunderstormCondition implements ForecastSlotCondition {
     @Override
-    public boolean isApplicable(JsonObject jsonObject) {
-        JsonArray weather = jsonObject.getAsJsonArray("weather");
-        return  weather != null &&
-                weather.asList().stream().
-                        anyMatch(w -> w.getAsJsonObject().get("main").getAsString().contains("Thunderstorm"));
+    public boolean isApplicable(ForecastSlot slot) {
+        return slot.weatherContains("Thunderstorm");
     }
 
     @Override
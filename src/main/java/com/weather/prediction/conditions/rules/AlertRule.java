@@ -0,0 +1,44 @@
+package com.weather.prediction.conditions.rules;
+
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.model.ForecastSlot;
+
+import java.util.function.Predicate;
+
+/**
+ * A configured alert rule, compiled by {@link AlertRules} into a predicate over {@link ForecastSlot}
+ * fields with its thresholds already converted to the slot's units.
+ */
+public final class AlertRule implements ForecastSlotCondition {
+
+    private final String name;
+
+    private final String alert;
+
+    private final Predicate<ForecastSlot> predicate;
+
+    public AlertRule(String name, String alert, Predicate<ForecastSlot> predicate) {
+        this.name = name;
+        this.alert = alert;
+        this.predicate = predicate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isApplicable(ForecastSlot slot) {
+        return predicate.test(slot);
+    }
+
+    @Override
+    public String getAlert() {
+        return alert;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,148 @@
+package com.weather.prediction.conditions.rules;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the {@link AlertRuleSet} compiled from the rule definitions at {@code path} (see
+ * {@link AlertRules} for the format), evaluated by the forecast aggregation next to the
+ * {@link com.weather.prediction.conditions.WeatherCondition} beans. A rule named like the simple class
+ * name of a built-in condition (e.g. {@code HighWindCondition}) replaces it.
+ *
+ * When {@code path} is a file, it is checked for changes every {@code reload-seconds}; a changed file
+ * is compiled completely before the new set replaces the old one in a single volatile write, so
+ * requests in flight finish with the set they started with. A file that fails to compile is
+ * logged and the previous rules stay active. Invalid rules at startup fail the startup.
+ */
+@Component
+@Slf4j
+public class AlertRuleEngine {
+
+    /** Rule definitions, e.g. {@code file:/etc/weather/alert-rules.json}; none when empty. */
+    @Value("${spring.weather.rules.path:}")
+    public String path = "";
+
+    @Value("${spring.weather.rules.reload-seconds:10}")
+    public long reloadSeconds = 10;
+
+    private final MeterRegistry meterRegistry;
+
+    private volatile AlertRuleSet rules = AlertRuleSet.EMPTY;
+
+    private long lastModified;
+
+    private ScheduledExecutorService watcher;
+
+    public AlertRuleEngine(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("weather.rules.active", this, engine -> engine.rules.size())
+                .description("Configured alert rules in effect")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (path == null || path.isBlank()) return;
+        Resource resource = resource();
+        try {
+            load(resource);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to load alert rules from " + path + ": " + e.getMessage(), e);
+        }
+        if (reloadSeconds <= 0 || !resource.isFile()) return;
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alert-rule-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watcher != null) watcher.shutdownNow();
+    }
+
+    /**
+     * @return the rules in effect; evaluate a whole forecast against the one set returned
+     */
+    public AlertRuleSet current() {
+        return rules;
+    }
+
+    /**
+     * Reloads the rules if their file changed since it was last read.
+     *
+     * @return true if new rules were loaded
+     */
+    public synchronized boolean reloadIfChanged() {
+        long modified;
+        try {
+            modified = resource().lastModified();
+        } catch (IOException e) {
+            log.warn("Cannot check alert rules {}: {}", path, e.getMessage());
+            return false;
+        }
+        if (modified == lastModified) return false;
+        boolean reloaded = reload();
+        // a file that failed to compile is not retried until it changes again
+        lastModified = modified;
+        return reloaded;
+    }
+
+    /**
+     * Compiles the rules again and swaps them in, keeping the current rules if that fails.
+     *
+     * @return true if new rules were loaded
+     */
+    public synchronized boolean reload() {
+        try {
+            load(resource());
+            count("ok");
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            count("failed");
+            log.error("Alert rules {} not reloaded, keeping {} active rules: {}", path, rules.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void load(Resource resource) throws IOException {
+        long modified = resource.isFile() ? resource.lastModified() : 0;
+        AlertRuleSet compiled;
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            compiled = AlertRuleSet.of(AlertRules.compile(reader), meterRegistry);
+        }
+        rules = compiled;
+        lastModified = modified;
+        log.info("Loaded {} alert rules from {}", compiled.size(), path);
+    }
+
+    private Resource resource() {
+        return new DefaultResourceLoader().getResource(path);
+    }
+
+    private void count(String outcome) {
+        Counter.builder("weather.rules.reloads")
+                .description("Alert rule reloads by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
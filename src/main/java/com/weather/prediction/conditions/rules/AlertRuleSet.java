@@ -0,0 +1,82 @@
+package com.weather.prediction.conditions.rules;
+
+import com.weather.prediction.model.ForecastSlot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+
+/**
+ * An immutable, compiled set of at most 64 {@link AlertRule}s, swapped as a whole by
+ * {@link AlertRuleEngine}. A forecast is evaluated against one set from start to end, so a reload
+ * never mixes old and new rules within a response.
+ */
+public final class AlertRuleSet {
+
+    public static final AlertRuleSet EMPTY = new AlertRuleSet(List.of(), new Counter[0]);
+
+    private final AlertRule[] rules;
+
+    private final Counter[] counters;
+
+    private AlertRuleSet(List<AlertRule> rules, Counter[] counters) {
+        this.rules = rules.toArray(AlertRule[]::new);
+        this.counters = counters;
+    }
+
+    /**
+     * @param meterRegistry registry of the {@code weather.forecast.alerts} counter of each rule
+     * @throws IllegalArgumentException for more than 64 rules or duplicate names
+     */
+    public static AlertRuleSet of(List<AlertRule> rules, MeterRegistry meterRegistry) {
+        if (rules.size() > Long.SIZE) {
+            throw new IllegalArgumentException(String.format("At most %d alert rules are supported, found %d", Long.SIZE, rules.size()));
+        }
+        if (rules.stream().map(AlertRule::getName).distinct().count() < rules.size()) {
+            throw new IllegalArgumentException("Alert rule names must be unique");
+        }
+        Counter[] counters = rules.stream()
+                .map(rule -> Counter.builder("weather.forecast.alerts")
+                        .description("Forecast days for which the condition raised its alert")
+                        .tag("condition", rule.getName())
+                        .register(meterRegistry))
+                .toArray(Counter[]::new);
+        return new AlertRuleSet(rules, counters);
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    public AlertRule get(int index) {
+        return rules[index];
+    }
+
+    /**
+     * @return true if a rule has the given name, i.e. replaces the built-in condition class of that simple name
+     */
+    public boolean defines(String name) {
+        for (AlertRule rule : rules) {
+            if (rule.getName().equals(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a bitmask with bit {@code i} set when rule {@code i} applies to the slot
+     */
+    public long mask(ForecastSlot slot) {
+        long mask = 0;
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].isApplicable(slot)) mask |= 1L << i;
+        }
+        return mask;
+    }
+
+    /**
+     * Counts a forecast day for which rule {@code index} raised its alert.
+     */
+    public void count(int index) {
+        counters[index].increment();
+    }
+}
@@ -0,0 +1,192 @@
+package com.weather.prediction.conditions.rules;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.weather.prediction.model.ForecastSlot;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Parses alert rule definitions and compiles them into {@link AlertRule}s.
+ *
+ * A definition is a JSON array of rules:
+ * <pre>
+ * [{"name": "FreezingWind", "alert": "Wrap up, freezing wind!",
+ *   "when": {"all": [{"field": "temp_c", "op": "&lt;", "value": 0},
+ *                    {"field": "wind_speed", "op": "&gt;", "value": 8}]}}]
+ * </pre>
+ * A condition compares a slot field with a constant, or combines conditions with {@code all},
+ * {@code any} and {@code not}. Numeric fields are {@code temp} (K), {@code temp_c} (°C),
+ * {@code wind_speed} (m/s) and {@code rain_3h} (mm), compared with {@code >}, {@code >=}, {@code <}
+ * or {@code <=}; a field missing from the slot never matches. {@code weather} is matched against
+ * each {@code weather[].main} value with {@code contains} or {@code equals}.
+ *
+ * Each condition becomes one small lambda reading the slot field directly, with units converted at
+ * compile time, so evaluating a slot costs no more than a hand-written {@link
+ * com.weather.prediction.conditions.ForecastSlotCondition}.
+ */
+public final class AlertRules {
+
+    private static final double KELVIN_OFFSET = 273.15;
+
+    private AlertRules() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the definition is not valid, naming the offending element
+     */
+    public static List<AlertRule> compile(Reader definition) {
+        JsonElement root;
+        try {
+            root = JsonParser.parseReader(definition);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Alert rules are not valid JSON: " + e.getMessage(), e);
+        }
+        if (!root.isJsonArray()) throw new IllegalArgumentException("Alert rules must be a JSON array");
+        List<AlertRule> rules = new ArrayList<>();
+        JsonArray array = root.getAsJsonArray();
+        for (int i = 0; i < array.size(); i++) {
+            String path = "rules[" + i + "]";
+            JsonObject rule = object(array.get(i), path);
+            String name = string(rule, "name", path);
+            String alert = string(rule, "alert", path);
+            rules.add(new AlertRule(name, alert, condition(object(rule.get("when"), path + ".when"), path + ".when")));
+        }
+        return rules;
+    }
+
+    private static Predicate<ForecastSlot> condition(JsonObject condition, String path) {
+        if (condition.has("all")) return all(conditions(condition, "all", path));
+        if (condition.has("any")) return any(conditions(condition, "any", path));
+        if (condition.has("not")) {
+            Predicate<ForecastSlot> negated = condition(object(condition.get("not"), path + ".not"), path + ".not");
+            return slot -> !negated.test(slot);
+        }
+        String field = string(condition, "field", path);
+        String op = string(condition, "op", path);
+        JsonElement value = condition.get("value");
+        if (value == null || !value.isJsonPrimitive()) throw new IllegalArgumentException(path + ": 'value' is required");
+        try {
+            return switch (field) {
+                case "temp" -> temp(op, value.getAsDouble(), path);
+                case "temp_c" -> temp(op, value.getAsDouble() + KELVIN_OFFSET, path);
+                case "wind_speed" -> windSpeed(op, value.getAsDouble(), path);
+                case "rain_3h" -> rain3h(op, value.getAsDouble(), path);
+                case "weather" -> weather(op, value.getAsString(), path);
+                default -> throw new IllegalArgumentException(path + ": unknown field '" + field + "'");
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(path + ": '" + field + "' needs a numeric value");
+        }
+    }
+
+    private static Predicate<ForecastSlot> temp(String op, double threshold, String path) {
+        return switch (op) {
+            case ">" -> slot -> slot.getTemp() > threshold;
+            case ">=" -> slot -> slot.getTemp() >= threshold;
+            case "<" -> slot -> slot.getTemp() < threshold;
+            case "<=" -> slot -> slot.getTemp() <= threshold;
+            default -> throw unknownOperator(op, path);
+        };
+    }
+
+    private static Predicate<ForecastSlot> windSpeed(String op, double threshold, String path) {
+        return switch (op) {
+            case ">" -> slot -> slot.getWindSpeed() > threshold;
+            case ">=" -> slot -> slot.getWindSpeed() >= threshold;
+            case "<" -> slot -> slot.getWindSpeed() < threshold;
+            case "<=" -> slot -> slot.getWindSpeed() <= threshold;
+            default -> throw unknownOperator(op, path);
+        };
+    }
+
+    private static Predicate<ForecastSlot> rain3h(String op, double threshold, String path) {
+        return switch (op) {
+            case ">" -> slot -> slot.getRain3h() > threshold;
+            case ">=" -> slot -> slot.getRain3h() >= threshold;
+            case "<" -> slot -> slot.getRain3h() < threshold;
+            case "<=" -> slot -> slot.getRain3h() <= threshold;
+            default -> throw unknownOperator(op, path);
+        };
+    }
+
+    private static Predicate<ForecastSlot> weather(String op, String text, String path) {
+        return switch (op) {
+            case "contains" -> slot -> slot.weatherContains(text);
+            case "equals" -> slot -> slot.weatherEquals(text);
+            default -> throw unknownOperator(op, path);
+        };
+    }
+
+    private static Predicate<ForecastSlot> all(List<Predicate<ForecastSlot>> conditions) {
+        if (conditions.size() == 1) return conditions.get(0);
+        if (conditions.size() == 2) {
+            Predicate<ForecastSlot> first = conditions.get(0), second = conditions.get(1);
+            return slot -> first.test(slot) && second.test(slot);
+        }
+        Predicate<ForecastSlot>[] array = toArray(conditions);
+        return slot -> {
+            for (Predicate<ForecastSlot> condition : array) {
+                if (!condition.test(slot)) return false;
+            }
+            return true;
+        };
+    }
+
+    private static Predicate<ForecastSlot> any(List<Predicate<ForecastSlot>> conditions) {
+        if (conditions.size() == 1) return conditions.get(0);
+        if (conditions.size() == 2) {
+            Predicate<ForecastSlot> first = conditions.get(0), second = conditions.get(1);
+            return slot -> first.test(slot) || second.test(slot);
+        }
+        Predicate<ForecastSlot>[] array = toArray(conditions);
+        return slot -> {
+            for (Predicate<ForecastSlot> condition : array) {
+                if (condition.test(slot)) return true;
+            }
+            return false;
+        };
+    }
+
+    private static List<Predicate<ForecastSlot>> conditions(JsonObject condition, String combinator, String path) {
+        JsonElement element = condition.get(combinator);
+        if (!element.isJsonArray() || element.getAsJsonArray().isEmpty()) {
+            throw new IllegalArgumentException(path + "." + combinator + ": needs a non-empty array of conditions");
+        }
+        List<Predicate<ForecastSlot>> conditions = new ArrayList<>();
+        JsonArray array = element.getAsJsonArray();
+        for (int i = 0; i < array.size(); i++) {
+            String elementPath = path + "." + combinator + "[" + i + "]";
+            conditions.add(condition(object(array.get(i), elementPath), elementPath));
+        }
+        return conditions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<ForecastSlot>[] toArray(List<Predicate<ForecastSlot>> conditions) {
+        return conditions.toArray(new Predicate[0]);
+    }
+
+    private static JsonObject object(JsonElement element, String path) {
+        if (element == null || !element.isJsonObject()) throw new IllegalArgumentException(path + ": must be an object");
+        return element.getAsJsonObject();
+    }
+
+    private static String string(JsonObject object, String member, String path) {
+        JsonElement element = object.get(member);
+        if (element == null || !element.isJsonPrimitive() || element.getAsString().isBlank()) {
+            throw new IllegalArgumentException(path + ": '" + member + "' is required");
+        }
+        return element.getAsString();
+    }
+
+    private static IllegalArgumentException unknownOperator(String op, String path) {
+        return new IllegalArgumentException(path + ": unknown operator '" + op + "'");
+    }
+}
@@ -1,20 +1,306 @@
 package com.weather.prediction.config;
 
-import org.springframework.boot.http.client.HttpClientSettings;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Configuration
+@Slf4j
 public class AppConfig {
 
+    public static final String UPSTREAM = "openweathermap";
+
+    /** Bulkhead of the non-blocking client, sized for in-flight requests rather than threads. */
+    public static final String UPSTREAM_REACTIVE = "openweathermap-reactive";
+
+    @Value("${spring.weather.http.client:apache}")
+    public String client = "apache";
+
+    @Value("${spring.weather.http.max-connections:200}")
+    public int maxConnections = 200;
+
+    @Value("${spring.weather.http.max-connections-per-route:50}")
+    public int maxConnectionsPerRoute = 50;
+
+    @Value("${spring.weather.http.keep-alive-seconds:60}")
+    public long keepAliveSeconds = 60;
+
+    @Value("${spring.weather.http.idle-eviction-seconds:30}")
+    public long idleEvictionSeconds = 30;
+
+    @Value("${spring.weather.http.connect-timeout-ms:2000}")
+    public long connectTimeoutMs = 2000;
+
+    @Value("${spring.weather.http.read-timeout-ms:5000}")
+    public long readTimeoutMs = 5000;
+
+    @Value("${spring.weather.http.pool-acquire-timeout-ms:1000}")
+    public long poolAcquireTimeoutMs = 1000;
+
+    @Value("${spring.weather.http.http2:false}")
+    public boolean http2 = false;
+
+    @Value("${spring.weather.http.gzip:true}")
+    public boolean gzip = true;
+
+    @Value("${spring.weather.reactive.max-connections:1000}")
+    public int reactiveMaxConnections = 1000;
+
+    @Value("${spring.weather.reactive.pending-acquire-max:5000}")
+    public int reactivePendingAcquireMax = 5000;
+
+    @Value("${spring.weather.reactive.max-in-memory-kb:1024}")
+    public int reactiveMaxInMemoryKb = 1024;
+
+    @Bean
+    public RestTemplate restTemplate(ClientHttpRequestFactory upstreamRequestFactory){
+        RestTemplate restTemplate = new RestTemplate(upstreamRequestFactory);
+        if ("jdk".equals(client) && gzip) {
+            restTemplate.getInterceptors().add(new GzipDecodingInterceptor());
+        }
+        return restTemplate;
+    }
+
+    /**
+     * Request factory for calls to the upstream weather API.
+     *
+     * "apache" (the default) uses a pooled Apache HttpClient 5 with keep-alive, idle eviction and
+     * transparent gzip/deflate decoding. "jdk" uses the JDK {@link HttpClient}, which multiplexes
+     * requests over HTTP/2 when {@code http2} is set; there the read timeout bounds the whole
+     * exchange up to the response headers.
+     */
     @Bean
-    public RestTemplate restTemplate(){
+    public ClientHttpRequestFactory upstreamRequestFactory() {
+        log.info("Upstream HTTP client: {} (maxConnections={}, perRoute={}, connectTimeout={}ms, readTimeout={}ms, http2={}, gzip={})",
+                client, maxConnections, maxConnectionsPerRoute, connectTimeoutMs, readTimeoutMs, http2, gzip);
+        if ("jdk".equals(client)) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+            factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+            return factory;
+        }
+        return new HttpComponentsClientHttpRequestFactory(pooledHttpClient());
+    }
+
+    CloseableHttpClient pooledHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setConnectionKeepAlive(TimeValue.ofSeconds(keepAliveSeconds))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds));
+        if (!gzip) builder.disableContentCompression();
+        return builder.build();
+    }
+
+    /**
+     * Connection pool of {@link #upstreamWebClient}. At most {@code reactive.max-connections} are open;
+     * up to {@code reactive.pending-acquire-max} requests wait for one (for at most the pool acquire
+     * timeout), beyond that a request fails immediately instead of queueing without bound.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider() {
+        return ConnectionProvider.builder(UPSTREAM)
+                .maxConnections(reactiveMaxConnections)
+                .pendingAcquireMaxCount(reactivePendingAcquireMax)
+                .pendingAcquireTimeout(Duration.ofMillis(poolAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(idleEvictionSeconds))
+                .maxLifeTime(Duration.ofSeconds(keepAliveSeconds))
+                .evictInBackground(Duration.ofSeconds(idleEvictionSeconds))
+                .build();
+    }
 
+    /**
+     * Non-blocking client for the upstream weather API on Reactor Netty's event loops, used by
+     * {@link com.weather.prediction.service.ReactiveWeatherService}. Shares the connect / read timeouts
+     * and gzip setting of {@link #upstreamRequestFactory()}; bodies above {@code reactive.max-in-memory-kb}
+     * are rejected. The client is warmed up at startup so that the first requests do not pay for
+     * initialising Netty.
+     */
+    @Bean
+    public WebClient upstreamWebClient(ConnectionProvider upstreamConnectionProvider) {
+        reactor.netty.http.client.HttpClient httpClient = reactor.netty.http.client.HttpClient.create(upstreamConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs))
+                .compress(gzip);
+        httpClient.warmup().block();
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(reactiveMaxInMemoryKb * 1024))
+                .build();
+    }
+
+    /**
+     * Circuit breaker around upstream attempts, configured under
+     * {@code resilience4j.circuitbreaker.instances.openweathermap} and exposed through the
+     * {@code circuitbreakers} / {@code circuitbreakerevents} actuator endpoints.
+     */
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(CircuitBreakerRegistry registry) {
+        CircuitBreaker circuitBreaker = registry.circuitBreaker(UPSTREAM);
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Upstream circuit breaker {}: {}", event.getCircuitBreakerName(), event.getStateTransition()));
+        return circuitBreaker;
+    }
+
+    /**
+     * Bulkhead bounding concurrent upstream attempts, configured under
+     * {@code resilience4j.bulkhead.instances.openweathermap}.
+     */
+    @Bean
+    public Bulkhead upstreamBulkhead(BulkheadRegistry registry) {
+        return registry.bulkhead(UPSTREAM);
+    }
+
+    /**
+     * Bulkhead bounding concurrent non-blocking upstream calls, configured under
+     * {@code resilience4j.bulkhead.instances.openweathermap-reactive}. No thread is held per call,
+     * so its limit can be much higher than {@link #upstreamBulkhead}'s.
+     */
+    @Bean
+    public Bulkhead upstreamReactiveBulkhead(BulkheadRegistry registry) {
+        return registry.bulkhead(UPSTREAM_REACTIVE);
+    }
+
+    /**
+     * Small bounded pool for stale-while-revalidate refreshes. Refreshes beyond the
+     * queue capacity are rejected and the stale entry keeps being served.
+     */
+    @Bean(name = "forecastRefreshExecutor")
+    public Executor forecastRefreshExecutor(@Value("${spring.weather.cache.refresh-threads:4}") int threads,
+                                            @Value("${spring.weather.cache.refresh-queue:1000}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setThreadNamePrefix("forecast-refresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bounded pool for proactive refreshes of popular cities, see
+     * {@link com.weather.prediction.service.ForecastRefresher}. Refreshes beyond the queue are
+     * rejected and retried on the next run.
+     */
+    @Bean(name = "forecastPrefetchExecutor")
+    public Executor forecastPrefetchExecutor(@Value("${spring.weather.refresh.concurrency:4}") int threads,
+                                             @Value("${spring.weather.refresh.queue:500}") int queue) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setThreadNamePrefix("forecast-prefetch-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for batch fan-out, see {@link #virtualOrPlatformExecutor(String, int)}.
+     */
+    @Bean(name = "batchForecastExecutor", destroyMethod = "shutdown")
+    public ExecutorService batchForecastExecutor(@Value("${spring.weather.batch.threads:64}") int threads) {
+        return virtualOrPlatformExecutor("forecast-batch-", threads);
+    }
+
+    /**
+     * Executor sending queued events to forecast subscribers, see
+     * {@link com.weather.prediction.service.ForecastSubscriptions} and {@link #virtualOrPlatformExecutor(String, int)}.
+     */
+    @Bean(name = "subscriptionExecutor", destroyMethod = "shutdown")
+    public ExecutorService subscriptionExecutor(@Value("${spring.weather.subscriptions.threads:16}") int threads) {
+        return virtualOrPlatformExecutor("forecast-push-", threads);
+    }
+
+    /**
+     * Executor closing dropped forecast subscriptions, see {@link com.weather.prediction.service.ForecastSubscriptions}.
+     * Closing waits for a send stuck on a client that stopped reading, so it gets its own threads instead of
+     * queueing behind the sends on {@link #subscriptionExecutor(int)}; there is at most one close per subscription.
+     */
+    @Bean(name = "subscriptionCloseExecutor", destroyMethod = "shutdown")
+    public ExecutorService subscriptionCloseExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "forecast-close-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Executor running the (blocking) upstream attempts scheduled by
+     * {@link com.weather.prediction.utils.AsyncRetry}, see {@link #virtualOrPlatformExecutor(String, int)}.
+     */
+    @Bean(name = "upstreamExecutor", destroyMethod = "shutdown")
+    public ExecutorService upstreamExecutor(@Value("${spring.weather.retry.threads:64}") int threads) {
+        return virtualOrPlatformExecutor("upstream-", threads);
+    }
 
-        return new RestTemplate();
+    /**
+     * One virtual thread per task when the runtime supports them (Java 21+); otherwise
+     * a fixed pool of platform threads.
+     */
+    static ExecutorService virtualOrPlatformExecutor(String prefix, int threads) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("{}* tasks run on virtual threads", prefix);
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.info("Virtual threads not available on Java {}, {}* tasks use {} platform threads",
+                    Runtime.version().feature(), prefix, threads);
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.weather.prediction.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.cache.CachedForecast;
+import com.weather.prediction.model.EncodedResponse;
+import com.weather.prediction.model.WeatherResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Writes {@link WeatherResponse} bodies as JSON, copying the bytes a cached forecast was encoded to
+ * once (see {@link EncodedResponse}) instead of serializing its object graph on every request.
+ * Responses built per request, such as errors and stale copies, are serialized with the application's
+ * {@link ObjectMapper}, so both produce the same JSON as the Jackson converter this one runs ahead of.
+ *
+ * When the request accepts gzip and the JSON is at least {@code gzip-min-bytes}, the gzipped copy of
+ * the encoded body is sent with {@code Content-Encoding: gzip} and its own strong ETag
+ * ({@link CachedForecast#gzipETag(String)}); the server's own response compression leaves such responses
+ * alone. Both representations of an encoded forecast carry {@code Vary: Accept-Encoding}, so shared
+ * caches keep them apart.
+ */
+@Component
+public class EncodedResponseHttpMessageConverter extends AbstractHttpMessageConverter<WeatherResponse> {
+
+    @Value("${spring.weather.cache.gzip-min-bytes:1024}")
+    public int gzipMinBytes = 1024;
+
+    private final ObjectMapper objectMapper;
+
+    private final Counter copied;
+
+    private final Counter gzipped;
+
+    private final Counter serialized;
+
+    public EncodedResponseHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(MediaType.APPLICATION_JSON);
+        this.objectMapper = objectMapper;
+        this.copied = writes(meterRegistry, "encoded");
+        this.gzipped = writes(meterRegistry, "encoded_gzip");
+        this.serialized = writes(meterRegistry, "serialized");
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return WeatherResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected WeatherResponse readInternal(Class<? extends WeatherResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Forecast responses are written only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(WeatherResponse response, HttpOutputMessage outputMessage) throws IOException {
+        EncodedResponse encoded = response.getEncoded();
+        byte[] body;
+        if (encoded == null) {
+            body = objectMapper.writeValueAsBytes(response);
+            serialized.increment();
+        } else if (encoded.json().length >= gzipMinBytes && acceptsGzip()) {
+            body = encoded.gzip();
+            HttpHeaders headers = outputMessage.getHeaders();
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String eTag = headers.getETag();
+            if (eTag != null && !eTag.startsWith("W/")) headers.setETag(CachedForecast.gzipETag(eTag));
+            gzipped.increment();
+        } else {
+            body = encoded.json();
+            outputMessage.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            copied.increment();
+        }
+        outputMessage.getHeaders().setContentLength(body.length);
+        outputMessage.getBody().write(body);
+    }
+
+    /**
+     * @return true if the current request lists gzip in Accept-Encoding (without {@code q=0})
+     */
+    private static boolean acceptsGzip() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) return false;
+        String acceptEncoding = attributes.getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equals("gzip")) continue;
+            return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private static Counter writes(MeterRegistry meterRegistry, String body) {
+        return Counter.builder("weather.forecast.writes")
+                .description("Forecast response bodies written, by whether they were copied from the cached encoding")
+                .tag("body", body)
+                .register(meterRegistry);
+    }
+}
@@ -9,5 +9,11 @@ public class Message {
 
     public static String CITY_NOT_FOUND = "City Not Found.";
 
+    public static String INVALID_COORDINATES = "Latitude must be within -90..90 and longitude within -180..180.";
+
     public static String SUCCESS = "Successfully retrieved forecast data.";
+
+    public static String STALE_DATA = "Weather service unavailable, serving last known forecast.";
+
+    public static String GATEWAY_TIMEOUT = "Timed out waiting for forecast data.";
 }
@@ -0,0 +1,57 @@
+package com.weather.prediction.controller;
+
+import com.weather.prediction.model.AlertQueryResponse;
+import com.weather.prediction.service.AlertIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+
+@RestController
+@Slf4j
+@CrossOrigin(origins = "*")
+public class AlertController {
+
+    @Value("${spring.weather.alert-index.max-page-size:500}")
+    public int maxPageSize = 500;
+
+    public final AlertIndex alertIndex;
+
+    public AlertController(AlertIndex alertIndex) {
+        this.alertIndex = alertIndex;
+    }
+
+    @Operation(summary = "Find the cached cities with any of the alerts in the next days, e.g. /alerts/cities?alert=thunderstorm&alert=highwind&days=3" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "One page of matching cities; pass nextCursor as cursor for the next one"),
+            @ApiResponse(responseCode = "400", description = "No alert, or days or cursor out of range"),
+            @ApiResponse(responseCode = "503", description = "The alert index is disabled")
+    })
+    @GetMapping(path = "/alerts/cities")
+    public ResponseEntity<AlertQueryResponse> findCities(@RequestParam(value = "alert") List<String> alerts,
+                                                         @RequestParam(value = "days", defaultValue = "3") int days,
+                                                         @RequestParam(value = "cursor", defaultValue = "0") int cursor,
+                                                         @RequestParam(value = "limit", defaultValue = "100") int limit){
+        try{
+            return ResponseEntity.ok(alertIndex.query(alerts, days, cursor, Math.max(1, Math.min(limit, maxPageSize))));
+        }
+        catch (IllegalArgumentException e) {
+            log.warn("Rejected alert query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        catch (IllegalStateException e) {
+            log.warn("Rejected alert query: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.weather.prediction.controller;
+
+import com.weather.prediction.model.BatchForecastResponse;
+import com.weather.prediction.service.BatchForecastService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+
+@RestController
+@Slf4j
+@CrossOrigin(origins = "*")
+public class BatchForecastController {
+
+    public final BatchForecastService batchForecastService;
+
+    public BatchForecastController(BatchForecastService batchForecastService) {
+        this.batchForecastService = batchForecastService;
+    }
+
+    @Operation(summary = "Get weather forecasts for several cities, e.g. /forecasts?city=london,paris" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Forecasts retrieved; each city carries its own cod"),
+            @ApiResponse(responseCode = "400", description = "No city or too many cities")
+    })
+    @GetMapping(path = "/forecasts")
+    public ResponseEntity<BatchForecastResponse> getWeatherForecasts(@RequestParam(value = "city") List<String> cities){
+        return forecasts(cities);
+    }
+
+    @Operation(summary = "Get weather forecasts for a JSON array of cities" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Forecasts retrieved; each city carries its own cod"),
+            @ApiResponse(responseCode = "400", description = "No city or too many cities")
+    })
+    @PostMapping(path = "/forecasts")
+    public ResponseEntity<BatchForecastResponse> postWeatherForecasts(@RequestBody List<String> cities){
+        return forecasts(cities);
+    }
+
+    private ResponseEntity<BatchForecastResponse> forecasts(List<String> cities){
+        try{
+            log.info("Received batch request for {} cities", cities.size());
+            BatchForecastResponse response = batchForecastService.getWeatherForecasts(cities);
+            log.info("Batch fetched: {} succeeded, {} failed", response.getSucceeded(), response.getFailed());
+            return ResponseEntity.ok(response);
+        }
+        catch (IllegalArgumentException e) {
+            log.warn("Rejected batch request: {}", e.getMessage());
+            BatchForecastResponse response = new BatchForecastResponse();
+            response.setCod("400");
+            response.setMessage(e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.weather.prediction.controller;
+
+import com.weather.prediction.model.CitySuggestion;
+import com.weather.prediction.service.CityDirectory;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+@RestController
+@Slf4j
+@CrossOrigin(origins = "*")
+public class CityController {
+
+    @Value("${spring.weather.cities.max-suggestions:20}")
+    public int maxSuggestions = 20;
+
+    public final CityDirectory cityDirectory;
+
+    public CityController(CityDirectory cityDirectory) {
+        this.cityDirectory = cityDirectory;
+    }
+
+    @Operation(summary = "Suggest cities whose name starts with the query, e.g. /cities/suggest?q=portl or ?q=portland,or" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Matching cities, best first; use their id with /forecast?id=")
+    })
+    @GetMapping(path = "/cities/suggest")
+    public ResponseEntity<List<CitySuggestion>> suggest(@RequestParam(value = "q") String query,
+                                                        @RequestParam(value = "limit", defaultValue = "10") int limit){
+        List<CitySuggestion> suggestions = cityDirectory.suggest(query, Math.max(1, Math.min(limit, maxSuggestions)));
+        return ResponseEntity.ok().cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic()).body(suggestions);
+    }
+}
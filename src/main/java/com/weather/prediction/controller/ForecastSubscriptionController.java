@@ -0,0 +1,56 @@
+package com.weather.prediction.controller;
+
+import com.weather.prediction.service.ForecastSubscriptions;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+
+@RestController
+@Slf4j
+@CrossOrigin(origins = "*")
+public class ForecastSubscriptionController {
+
+    public final ForecastSubscriptions forecastSubscriptions;
+
+    public ForecastSubscriptionController(ForecastSubscriptions forecastSubscriptions) {
+        this.forecastSubscriptions = forecastSubscriptions;
+    }
+
+    @Operation(summary = "Subscribe to forecast updates of cities as Server-Sent Events, e.g. /forecast/subscribe?city=london,paris&id=5746545" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Event stream: the current forecast of each city, then one event per changed forecast"),
+            @ApiResponse(responseCode = "400", description = "No city or too many cities"),
+            @ApiResponse(responseCode = "503", description = "Subscriptions are disabled or at their limit")
+    })
+    @GetMapping(path = "/forecast/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@RequestParam(value = "city", required = false) List<String> cities,
+                                                @RequestParam(value = "id", required = false) List<Integer> ids,
+                                                @RequestParam(value = "alertsOnly", defaultValue = "false") boolean alertsOnly){
+        try{
+            List<String> names = cities == null ? List.of() : cities;
+            List<Integer> cityIds = ids == null ? List.of() : ids;
+            log.info("Received subscription for {} cities and {} city ids", names.size(), cityIds.size());
+            return ResponseEntity.ok(forecastSubscriptions.subscribe(names, cityIds, alertsOnly));
+        }
+        catch (IllegalArgumentException e) {
+            log.warn("Rejected subscription: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        catch (IllegalStateException e) {
+            log.warn("Rejected subscription: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        }
+    }
+
+}
@@ -1,20 +1,33 @@
 package com.weather.prediction.controller;
 
+import com.weather.prediction.cache.CachedForecast;
 import com.weather.prediction.constant.Message;
 import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.ForecastRefresher;
+import com.weather.prediction.service.ReactiveWeatherService;
 import com.weather.prediction.service.WeatherService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 
 
@@ -23,37 +36,214 @@ import org.springframework.web.bind.annotation.RestController;
 @CrossOrigin(origins = "*")
 public class WeatherController {
 
+    /** Optional request header with the client's remaining time budget in milliseconds, bounding upstream retries. */
+    public static final String REQUEST_TIMEOUT = "X-Request-Timeout-Ms";
+
     public final WeatherService weatherService;
 
-    public WeatherController(WeatherService weatherService) {
+    public final ReactiveWeatherService reactiveWeatherService;
+
+    public final ForecastRefresher forecastRefresher;
+
+    private final MeterRegistry meterRegistry;
+
+    public WeatherController(WeatherService weatherService, ReactiveWeatherService reactiveWeatherService,
+                             ForecastRefresher forecastRefresher, MeterRegistry meterRegistry) {
         this.weatherService = weatherService;
+        this.reactiveWeatherService = reactiveWeatherService;
+        this.forecastRefresher = forecastRefresher;
+        this.meterRegistry = meterRegistry;
     }
 
     @Operation(summary = "Get weather forecast for a city" )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",  description = "Successfully retrieved forecast"),
+            @ApiResponse(responseCode = "304",  description = "Forecast unchanged since the If-None-Match ETag"),
             @ApiResponse(responseCode = "401", description = "Invalid api key"),
             @ApiResponse(responseCode = "404", description = "City not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping(path = "/forecast")
-    public ResponseEntity<WeatherResponse> getWeatherForecast(@RequestParam(value = "city", required = true) String city){
+    public CompletableFuture<ResponseEntity<WeatherResponse>> getWeatherForecast(@RequestParam(value = "city", required = true) String city,
+                                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                                 @RequestHeader(value = REQUEST_TIMEOUT, required = false) Long timeoutMs){
         try{
             log.info("Received request for city: {}", city);
-            WeatherResponse wr = weatherService.getWeatherForecast(city);
-            log.info("Successfully fetched");
-            if(wr.getCod().equals("401")) return new ResponseEntity<>(wr, HttpStatus.UNAUTHORIZED);
-            if(wr.getCod().equals("404")) return new ResponseEntity<>(wr, HttpStatus.NOT_FOUND);
-            return ResponseEntity.ok(wr);
+            forecastRefresher.recordRequest(city);
+            ResponseEntity<WeatherResponse> notModified = notModified(weatherService.getCachedForecast(city), ifNoneMatch);
+            if(notModified != null) return CompletableFuture.completedFuture(notModified);
+            return weatherService.getWeatherForecastAsync(city, weatherService.deadline(timeoutMs))
+                    .thenApply(wr -> {
+                        log.info("Successfully fetched");
+                        return toResponseEntity(weatherService.getCachedForecast(city), wr);
+                    })
+                    .exceptionally(e -> internalServerError(city, e));
         }
         catch (Exception e) {
-            log.error("Exception occurred, ", e);
+            return CompletableFuture.completedFuture(internalServerError(city, e));
+        }
+    }
+
+    @Operation(summary = "Get weather forecast for coordinates, snapped to a grid cell or served from a nearby cached cell" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Successfully retrieved forecast"),
+            @ApiResponse(responseCode = "304",  description = "Forecast unchanged since the If-None-Match ETag"),
+            @ApiResponse(responseCode = "400", description = "Coordinates out of range"),
+            @ApiResponse(responseCode = "401", description = "Invalid api key"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(path = "/forecast", params = {"lat", "lon"})
+    public CompletableFuture<ResponseEntity<WeatherResponse>> getWeatherForecastByCoordinates(@RequestParam(value = "lat") double lat,
+                                                                                              @RequestParam(value = "lon") double lon,
+                                                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                                              @RequestHeader(value = REQUEST_TIMEOUT, required = false) Long timeoutMs){
+        String location = lat + "," + lon;
+        if(Math.abs(lat) > 90 || Math.abs(lon) > 180 || Double.isNaN(lat) || Double.isNaN(lon)){
             WeatherResponse wr = new WeatherResponse();
-            wr.setCity(city);
-            wr.setCod("500");
-            wr.setMessage(Message.INTERNAL_SERVER_ERROR);
-            return ResponseEntity.internalServerError().body(wr);
+            wr.setCity(location);
+            wr.setCod("400");
+            wr.setMessage(Message.INVALID_COORDINATES);
+            countResponse(wr.getCod(), false);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(wr));
+        }
+        try{
+            log.info("Received request for coordinates: {}", location);
+            ResponseEntity<WeatherResponse> notModified = notModified(weatherService.getCachedForecast(lat, lon), ifNoneMatch);
+            if(notModified != null) return CompletableFuture.completedFuture(notModified);
+            return weatherService.getWeatherForecastAsync(lat, lon, weatherService.deadline(timeoutMs))
+                    .thenApply(wr -> toResponseEntity(weatherService.getCachedForecast(lat, lon), wr))
+                    .exceptionally(e -> internalServerError(location, e));
+        }
+        catch (Exception e) {
+            return CompletableFuture.completedFuture(internalServerError(location, e));
+        }
+    }
+
+    @Operation(summary = "Get weather forecast for a city by the OpenWeatherMap id returned by /cities/suggest" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Successfully retrieved forecast"),
+            @ApiResponse(responseCode = "304",  description = "Forecast unchanged since the If-None-Match ETag"),
+            @ApiResponse(responseCode = "401", description = "Invalid api key"),
+            @ApiResponse(responseCode = "404", description = "Unknown city id"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(path = "/forecast", params = "id")
+    public CompletableFuture<ResponseEntity<WeatherResponse>> getWeatherForecastById(@RequestParam(value = "id") int id,
+                                                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                                     @RequestHeader(value = REQUEST_TIMEOUT, required = false) Long timeoutMs){
+        try{
+            log.info("Received request for city id: {}", id);
+            forecastRefresher.recordRequest(id);
+            ResponseEntity<WeatherResponse> notModified = notModified(weatherService.getCachedForecastById(id), ifNoneMatch);
+            if(notModified != null) return CompletableFuture.completedFuture(notModified);
+            return weatherService.getWeatherForecastByIdAsync(id, weatherService.deadline(timeoutMs))
+                    .thenApply(wr -> toResponseEntity(weatherService.getCachedForecastById(id), wr))
+                    .exceptionally(e -> internalServerError(String.valueOf(id), e));
         }
+        catch (Exception e) {
+            return CompletableFuture.completedFuture(internalServerError(String.valueOf(id), e));
+        }
+    }
+
+    @Operation(summary = "Get weather forecast for a city without holding a server thread while the upstream responds" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",  description = "Successfully retrieved forecast"),
+            @ApiResponse(responseCode = "304",  description = "Forecast unchanged since the If-None-Match ETag"),
+            @ApiResponse(responseCode = "401", description = "Invalid api key"),
+            @ApiResponse(responseCode = "404", description = "City not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping(path = "/reactive/forecast")
+    public Mono<ResponseEntity<WeatherResponse>> getWeatherForecastReactive(@RequestParam(value = "city", required = true) String city,
+                                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        return Mono.defer(() -> {
+                    log.info("Received reactive request for city: {}", city);
+                    forecastRefresher.recordRequest(city);
+                    ResponseEntity<WeatherResponse> notModified = notModified(weatherService.getCachedForecast(city), ifNoneMatch);
+                    if(notModified != null) return Mono.just(notModified);
+                    return reactiveWeatherService.getWeatherForecast(city)
+                            .map(wr -> toResponseEntity(weatherService.getCachedForecast(city), wr));
+                })
+                .onErrorResume(e -> Mono.just(internalServerError(city, e)));
+    }
+
+    /**
+     * @return a 304 when the cached forecast is fresh and matches the If-None-Match header, else null;
+     *         it carries the tag of the representation the client has, gzipped or not
+     */
+    private ResponseEntity<WeatherResponse> notModified(CachedForecast cached, String ifNoneMatch){
+        if(cached != null && ifNoneMatch != null){
+            long maxAge = weatherService.freshSeconds(cached);
+            String eTag = maxAge > 0 ? matches(ifNoneMatch, cached.getETag()) : null;
+            if(eTag != null){
+                countResponse("304", false);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag)
+                        .varyBy(HttpHeaders.ACCEPT_ENCODING).cacheControl(cacheControl(maxAge)).build();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param cached the cache entry of the requested location after the lookup; its ETag is sent when it holds {@code wr}
+     */
+    private ResponseEntity<WeatherResponse> toResponseEntity(CachedForecast cached, WeatherResponse wr){
+        countResponse(wr.getCod(), wr.isStale());
+        if(wr.getCod().equals("401")) return new ResponseEntity<>(wr, HttpStatus.UNAUTHORIZED);
+        if(wr.getCod().equals("404")) return new ResponseEntity<>(wr, HttpStatus.NOT_FOUND);
+        if(cached != null && cached.getResponse() == wr){
+            return ResponseEntity.ok().eTag(cached.getETag()).cacheControl(cacheControl(weatherService.freshSeconds(cached))).body(wr);
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(wr);
+    }
+
+    private ResponseEntity<WeatherResponse> internalServerError(String city, Throwable e){
+        if(e instanceof CompletionException && e.getCause() != null) e = e.getCause();
+        log.error("Exception occurred, ", e);
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod("500");
+        wr.setMessage(Message.INTERNAL_SERVER_ERROR);
+        countResponse(wr.getCod(), false);
+        return ResponseEntity.internalServerError().body(wr);
+    }
+
+    /**
+     * Cacheable by browsers and shared caches until the cached forecast stops being fresh.
+     */
+    private static CacheControl cacheControl(long maxAgeSeconds){
+        return CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header value (a list of tags or "*") with the current tag and
+     * the tag of its gzipped representation, see {@link CachedForecast#gzipETag(String)}.
+     *
+     * @return the current tag that matched, or null
+     */
+    private static String matches(String ifNoneMatch, String eTag){
+        String gzipETag = CachedForecast.gzipETag(eTag);
+        for(String candidate : ifNoneMatch.split(",")){
+            String tag = candidate.trim();
+            if(tag.startsWith("W/")) tag = tag.substring(2);
+            if(tag.equals("*") || tag.equals(eTag)) return eTag;
+            if(tag.equals(gzipETag)) return gzipETag;
+        }
+        return null;
+    }
+
+    /**
+     * Counts forecast responses by the upstream-style code in the body, which (unlike the HTTP status
+     * in {@code http.server.requests}) also distinguishes "503" and stale responses served with 200;
+     * "304" counts conditional requests answered without a body.
+     */
+    private void countResponse(String cod, boolean stale){
+        Counter.builder("weather.forecast.responses")
+                .description("Forecast responses by code")
+                .tag("cod", String.valueOf(cod))
+                .tag("stale", String.valueOf(stale))
+                .register(meterRegistry)
+                .increment();
     }
 
 }
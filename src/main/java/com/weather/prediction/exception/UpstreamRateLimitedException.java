@@ -0,0 +1,7 @@
+package com.weather.prediction.exception;
+
+public class UpstreamRateLimitedException extends CustomRuntimeException{
+    public UpstreamRateLimitedException(String message) {
+        super(message);
+    }
+}
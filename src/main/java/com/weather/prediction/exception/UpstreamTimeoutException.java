@@ -0,0 +1,11 @@
+package com.weather.prediction.exception;
+
+public class UpstreamTimeoutException extends CustomRuntimeException{
+    public UpstreamTimeoutException(String message) {
+        super(message);
+    }
+
+    public UpstreamTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
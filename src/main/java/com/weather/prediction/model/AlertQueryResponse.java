@@ -0,0 +1,34 @@
+package com.weather.prediction.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+public class AlertQueryResponse {
+    /** Alerts matched by the query terms. */
+    public List<String> alerts;
+    /** First day searched, yyyy-MM-dd (UTC). */
+    public String from;
+    /** Last day searched, yyyy-MM-dd (UTC). */
+    public String to;
+    /** Number of cities matching the query across all pages. */
+    public int total;
+    public List<AlertCity> cities;
+    /** Cursor of the next page, null on the last one. */
+    public Integer nextCursor;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class AlertCity {
+        /** City name as returned by {@code /forecast}. */
+        public String city;
+        /** Forecast cache key: a normalized city name, {@code id:<city id>} or {@code geo:<geohash>}. */
+        public String key;
+        /** Days, yyyy-MM-dd, on which one of the matched alerts is forecast. */
+        public List<String> dates;
+    }
+}
@@ -0,0 +1,19 @@
+package com.weather.prediction.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchForecastResponse {
+    /** Set, with {@link #message}, only when the whole batch is rejected. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String cod;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String message;
+    public int requested;
+    public int succeeded;
+    public int failed;
+    public List<WeatherResponse> forecasts;
+}
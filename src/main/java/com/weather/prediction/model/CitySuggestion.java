@@ -0,0 +1,19 @@
+package com.weather.prediction.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CitySuggestion {
+    /** OpenWeatherMap city id, accepted by {@code /forecast?id=}. */
+    public int id;
+    public String name;
+    /** State or region code, empty when the list has none. */
+    public String state;
+    public String country;
+    public double lat;
+    public double lon;
+}
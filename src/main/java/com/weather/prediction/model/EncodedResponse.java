@@ -0,0 +1,54 @@
+package com.weather.prediction.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The JSON encoding of a cached response, made once when it is cached so that every later write
+ * of the response is a byte copy. A gzipped copy is made on the first write to a client that
+ * accepts it.
+ */
+public final class EncodedResponse {
+
+    private final byte[] json;
+
+    private volatile byte[] gzip;
+
+    public EncodedResponse(byte[] json) {
+        this.json = json;
+    }
+
+    public static EncodedResponse of(ObjectMapper objectMapper, Object response) throws JsonProcessingException {
+        return new EncodedResponse(objectMapper.writeValueAsBytes(response));
+    }
+
+    /**
+     * @return the UTF-8 JSON; callers must not modify it
+     */
+    public byte[] json() {
+        return json;
+    }
+
+    /**
+     * @return the gzipped JSON; callers must not modify it
+     */
+    public byte[] gzip() {
+        byte[] compressed = gzip;
+        if (compressed == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                gzipOut.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            compressed = out.toByteArray();
+            gzip = compressed;
+        }
+        return compressed;
+    }
+}
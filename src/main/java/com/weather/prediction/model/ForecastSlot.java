@@ -0,0 +1,120 @@
+package com.weather.prediction.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One 3-hour slot of the upstream forecast, extracted once and evaluated by every
+ * {@link com.weather.prediction.conditions.ForecastSlotCondition}.
+ * Numeric fields missing from the payload are {@link Double#NaN}.
+ */
+@Getter
+public final class ForecastSlot {
+
+    private static final String[] NO_WEATHER = new String[0];
+
+    private final long dt;
+
+    private final double temp;
+
+    private final double windSpeed;
+
+    private final double rain3h;
+
+    @Getter(AccessLevel.NONE)
+    private final String[] weatherMain;
+
+    public ForecastSlot(long dt, double temp, double windSpeed, double rain3h, String[] weatherMain) {
+        this.dt = dt;
+        this.temp = temp;
+        this.windSpeed = windSpeed;
+        this.rain3h = rain3h;
+        this.weatherMain = weatherMain == null ? NO_WEATHER : weatherMain;
+    }
+
+    public List<String> getWeatherMain() {
+        return List.of(weatherMain);
+    }
+
+    /**
+     * @return true if any {@code weather[].main} value of this slot contains the given text
+     */
+    public boolean weatherContains(String text) {
+        for (String main : weatherMain) {
+            if (main.contains(text)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if any {@code weather[].main} value of this slot is the given text
+     */
+    public boolean weatherEquals(String text) {
+        for (String main : weatherMain) {
+            if (main.equals(text)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Extracts a slot from one element of the upstream {@code list} array.
+     */
+    public static ForecastSlot fromJson(JsonObject jo) {
+        JsonArray weather = jo.getAsJsonArray("weather");
+        String[] mains = NO_WEATHER;
+        if (weather != null) {
+            mains = new String[weather.size()];
+            int n = 0;
+            for (JsonElement w : weather) {
+                JsonElement main = w.getAsJsonObject().get("main");
+                if (main != null) mains[n++] = main.getAsString();
+            }
+            if (n < mains.length) mains = Arrays.copyOf(mains, n);
+        }
+        return new ForecastSlot(
+                jo.has("dt") ? jo.get("dt").getAsLong() : 0,
+                nested(jo, "main", "temp"),
+                nested(jo, "wind", "speed"),
+                nested(jo, "rain", "3h"),
+                mains);
+    }
+
+    /**
+     * Rebuilds a minimal upstream-shaped {@link JsonObject} holding only this slot's fields,
+     * for conditions that still evaluate JSON.
+     */
+    public JsonObject toJson() {
+        JsonObject jo = new JsonObject();
+        jo.addProperty("dt", dt);
+        jo.add("main", single("temp", temp));
+        if (!Double.isNaN(windSpeed)) jo.add("wind", single("speed", windSpeed));
+        if (!Double.isNaN(rain3h)) jo.add("rain", single("3h", rain3h));
+        JsonArray weather = new JsonArray();
+        for (String main : weatherMain) {
+            JsonObject w = new JsonObject();
+            w.addProperty("main", main);
+            weather.add(w);
+        }
+        jo.add("weather", weather);
+        return jo;
+    }
+
+    private static double nested(JsonObject jo, String object, String field) {
+        JsonElement outer = jo.get(object);
+        if (outer == null || !outer.isJsonObject()) return Double.NaN;
+        JsonElement value = outer.getAsJsonObject().get(field);
+        return value == null || value.isJsonNull() ? Double.NaN : value.getAsDouble();
+    }
+
+    private static JsonObject single(String name, double value) {
+        JsonObject jo = new JsonObject();
+        jo.addProperty(name, value);
+        return jo;
+    }
+}
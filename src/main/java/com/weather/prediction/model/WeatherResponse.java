@@ -1,6 +1,10 @@
 package com.weather.prediction.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.List;
 
@@ -9,5 +13,19 @@ public class WeatherResponse {
     public String cod;
     public String message;
     public String city;
+
+    /** OpenWeatherMap id of the forecast's city; 0 when the upstream did not send one. */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public int cityId;
     public List<ForecastData> forecastData;
+
+    /** True when the upstream was unavailable and this is the last known good forecast. */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean stale;
+
+    /** Encoded body of a cached response, set by the forecast cache; null for responses built per request. */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    public transient EncodedResponse encoded;
 }
@@ -0,0 +1,177 @@
+package com.weather.prediction.parser;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming parser for the upstream {@code /data/2.5/forecast} payload.
+ *
+ * Reads tokens straight off the response stream and keeps only {@code cod}, {@code message},
+ * {@code city.id}, {@code city.timezone} and, per slot, {@code dt}, {@code main.temp}, {@code wind.speed}, {@code rain.3h} and
+ * {@code weather[].main}; everything else is skipped without being materialized.
+ */
+public final class ForecastParser {
+
+    private static final int DEFAULT_CAPACITY = 40;
+
+    private ForecastParser() {
+    }
+
+    public static ForecastPayload parse(InputStream in) throws IOException {
+        return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static ForecastPayload parse(Reader reader) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        ForecastPayload payload = null;
+        int capacity = DEFAULT_CAPACITY;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            switch (name) {
+                case "cnt" -> {
+                    if (json.peek() == JsonToken.NUMBER) capacity = json.nextInt();
+                    else json.skipValue();
+                }
+                case "list" -> {
+                    if (payload == null) payload = new ForecastPayload(capacity);
+                    readList(json, payload);
+                }
+                case "city" -> {
+                    if (payload == null) payload = new ForecastPayload(capacity);
+                    readCity(json, payload);
+                }
+                case "cod", "message" -> {
+                    if (payload == null) payload = new ForecastPayload(capacity);
+                    String value = nextStringOrNull(json);
+                    if (name.equals("cod")) payload.setCod(value);
+                    else payload.setMessage(value);
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return payload == null ? new ForecastPayload(0) : payload;
+    }
+
+    private static void readList(JsonReader json, ForecastPayload payload) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return;
+        }
+        payload.markList();
+        json.beginArray();
+        while (json.hasNext()) {
+            readSlot(json, payload);
+        }
+        json.endArray();
+    }
+
+    private static void readCity(JsonReader json, ForecastPayload payload) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_OBJECT) {
+            json.skipValue();
+            return;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() != JsonToken.NUMBER) {
+                json.skipValue();
+            } else if (name.equals("timezone")) {
+                payload.setTimezoneOffsetSeconds(json.nextInt());
+            } else if (name.equals("id")) {
+                payload.setCityId(json.nextInt());
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private static void readSlot(JsonReader json, ForecastPayload payload) throws IOException {
+        long dt = 0;
+        double temp = Double.NaN;
+        double windSpeed = Double.NaN;
+        double rain3h = Double.NaN;
+        String[] weatherMain = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "dt" -> dt = json.nextLong();
+                case "main" -> temp = readDoubleField(json, "temp");
+                case "wind" -> windSpeed = readDoubleField(json, "speed");
+                case "rain" -> rain3h = readDoubleField(json, "3h");
+                case "weather" -> weatherMain = readWeatherMain(json);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        payload.add(dt, temp, windSpeed, rain3h, weatherMain);
+    }
+
+    private static double readDoubleField(JsonReader json, String field) throws IOException {
+        double value = Double.NaN;
+        if (json.peek() != JsonToken.BEGIN_OBJECT) {
+            json.skipValue();
+            return value;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals(field) && json.peek() == JsonToken.NUMBER) {
+                value = json.nextDouble();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return value;
+    }
+
+    private static String[] readWeatherMain(JsonReader json) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_ARRAY) {
+            json.skipValue();
+            return null;
+        }
+        String[] mains = null;
+        json.beginArray();
+        while (json.hasNext()) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (json.nextName().equals("main") && json.peek() == JsonToken.STRING) {
+                    String main = json.nextString();
+                    mains = mains == null ? new String[]{main} : append(mains, main);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray();
+        return mains;
+    }
+
+    private static String[] append(String[] values, String value) {
+        String[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
+    }
+
+    private static String nextStringOrNull(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        if (json.peek() == JsonToken.STRING || json.peek() == JsonToken.NUMBER) return json.nextString();
+        json.skipValue();
+        return null;
+    }
+}
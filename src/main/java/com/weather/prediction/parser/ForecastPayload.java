@@ -0,0 +1,120 @@
+package com.weather.prediction.parser;
+
+import com.weather.prediction.model.ForecastSlot;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The fields of an upstream forecast payload that the service actually uses, stored column-wise
+ * in primitive arrays: one index per 3-hour slot of the {@code list} array.
+ * A missing {@code rain.3h} is stored as {@link Double#NaN}; a missing {@code city.timezone} as
+ * offset 0 (UTC); a missing {@code city.id} as 0.
+ */
+public class ForecastPayload {
+
+    @Getter
+    private String cod;
+
+    @Getter
+    private String message;
+
+    /** OpenWeatherMap id of the city, from {@code city.id}. */
+    @Getter
+    private int cityId;
+
+    /** Shift in seconds from UTC of the city, from {@code city.timezone}. */
+    @Getter
+    private int timezoneOffsetSeconds;
+
+    private boolean hasList;
+
+    private int size;
+
+    private long[] dt;
+
+    private double[] temp;
+
+    private double[] windSpeed;
+
+    private double[] rain3h;
+
+    private String[][] weatherMain;
+
+    ForecastPayload(int capacity) {
+        ensureCapacity(Math.max(capacity, 8));
+    }
+
+    public boolean hasList() {
+        return hasList;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long dt(int slot) {
+        return dt[slot];
+    }
+
+    public double temp(int slot) {
+        return temp[slot];
+    }
+
+    public double windSpeed(int slot) {
+        return windSpeed[slot];
+    }
+
+    public double rain3h(int slot) {
+        return rain3h[slot];
+    }
+
+    public String[] weatherMain(int slot) {
+        return weatherMain[slot];
+    }
+
+    /**
+     * @return the typed, immutable view of one slot
+     */
+    public ForecastSlot slot(int slot) {
+        return new ForecastSlot(dt[slot], temp[slot], windSpeed[slot], rain3h[slot], weatherMain[slot]);
+    }
+
+    void setCod(String cod) {
+        this.cod = cod;
+    }
+
+    void setMessage(String message) {
+        this.message = message;
+    }
+
+    void setCityId(int cityId) {
+        this.cityId = cityId;
+    }
+
+    void setTimezoneOffsetSeconds(int timezoneOffsetSeconds) {
+        this.timezoneOffsetSeconds = timezoneOffsetSeconds;
+    }
+
+    void markList() {
+        this.hasList = true;
+    }
+
+    void add(long dt, double temp, double windSpeed, double rain3h, String[] weatherMain) {
+        if (size == this.dt.length) ensureCapacity(size * 2);
+        this.dt[size] = dt;
+        this.temp[size] = temp;
+        this.windSpeed[size] = windSpeed;
+        this.rain3h[size] = rain3h;
+        this.weatherMain[size] = weatherMain;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        dt = dt == null ? new long[capacity] : Arrays.copyOf(dt, capacity);
+        temp = temp == null ? new double[capacity] : Arrays.copyOf(temp, capacity);
+        windSpeed = windSpeed == null ? new double[capacity] : Arrays.copyOf(windSpeed, capacity);
+        rain3h = rain3h == null ? new double[capacity] : Arrays.copyOf(rain3h, capacity);
+        weatherMain = weatherMain == null ? new String[capacity][] : Arrays.copyOf(weatherMain, capacity);
+    }
+}
@@ -0,0 +1,426 @@
+package com.weather.prediction.service;
+
+import com.weather.prediction.cache.CachedForecast;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.rules.AlertRuleEngine;
+import com.weather.prediction.conditions.rules.AlertRuleSet;
+import com.weather.prediction.model.AlertQueryResponse;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.CompactBitmap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of the alerts of every cached forecast, answering "which cities have a storm or
+ * high-wind alert in the next 3 days" without looking at each city.
+ *
+ * Each cached city gets a small int id. For every (alert, day) pair the ids of the cities whose
+ * forecast has that alert on that day are kept in a {@link CompactBitmap}; a query unions the
+ * bitmaps of the matching alerts and days and pages through the result in id order, so it costs
+ * about the number of matching cities, not the number of cached ones. The index follows the
+ * {@link ForecastCache}: each cached forecast replaces the postings of its city, and a city whose
+ * entries all left the cache is dropped and its id reused. Days before yesterday (UTC) are pruned.
+ *
+ * A city is identified by its OpenWeatherMap id, or by its normalized name for forecasts without one,
+ * so the entries one city is cached under (its name, {@code id:<city id>}, {@code geo:<cell>}) are
+ * one result; the latest of their forecasts is the one indexed.
+ *
+ * Alerts are indexed by their text. A query term matches an alert whose text contains it, ignoring
+ * case, or whose condition or rule is named by it, e.g. {@code Thunderstorm}, {@code HighWind} or
+ * the name of an alert rule. Days are counted from today's UTC date; forecast days are the cities'
+ * local dates.
+ */
+@Component
+@Slf4j
+public class AlertIndex {
+
+    @Value("${spring.weather.alert-index.enabled:true}")
+    public boolean enabled = true;
+
+    @Value("${spring.weather.alert-index.max-days:5}")
+    public int maxDays = 5;
+
+    private final ForecastCache forecastCache;
+
+    private final List<WeatherCondition> weatherConditions;
+
+    private final Clock clock;
+
+    private final Timer queryTimer;
+
+    private AlertRuleEngine alertRuleEngine;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** City ids by {@link #identity(WeatherResponse) identity}. */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /** Identities of the indexed cities by the cache keys of their entries. */
+    private final Map<String, String> identities = new HashMap<>();
+
+    /** Indexed cities by id; null for ids in {@link #freeIds}. */
+    private final List<City> cities = new ArrayList<>();
+
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+
+    /** Alert texts by alert id. */
+    private final List<String> alerts = new ArrayList<>();
+
+    private final Map<String, Integer> alertIds = new HashMap<>();
+
+    /** City ids by {@link #posting(int, long)} of alert id and epoch day. */
+    private final Map<Long, CompactBitmap> postings = new HashMap<>();
+
+    /** Epoch day before which postings were last pruned. */
+    private volatile long prunedBefore = Long.MIN_VALUE;
+
+    @Autowired
+    public AlertIndex(ForecastCache forecastCache, List<WeatherCondition> weatherConditions, MeterRegistry meterRegistry) {
+        this(forecastCache, weatherConditions, meterRegistry, Clock.systemUTC());
+    }
+
+    public AlertIndex(ForecastCache forecastCache, List<WeatherCondition> weatherConditions, MeterRegistry meterRegistry, Clock clock) {
+        this.forecastCache = forecastCache;
+        this.weatherConditions = weatherConditions;
+        this.clock = clock;
+        this.queryTimer = Timer.builder("weather.alerts.queries")
+                .description("Time to answer a cross-city alert query from the index")
+                .register(meterRegistry);
+        Gauge.builder("weather.alerts.index.cities", this, AlertIndex::size)
+                .description("Cities with at least one indexed alert")
+                .register(meterRegistry);
+        Gauge.builder("weather.alerts.index.bytes", this, AlertIndex::sizeInBytes)
+                .description("Approximate heap used by the alert index bitmaps")
+                .register(meterRegistry);
+    }
+
+    @Autowired(required = false)
+    public void setAlertRuleEngine(AlertRuleEngine alertRuleEngine) {
+        this.alertRuleEngine = alertRuleEngine;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        forecastCache.addListener(this::update);
+        forecastCache.forEach(this::update);
+        log.info("Alert index initialised with {} cities, maxDays={}", size(), maxDays);
+    }
+
+    /**
+     * Replaces the indexed alerts of the entry's city with those of the entry, or detaches the key from
+     * its city if the entry is null; a city is dropped once none of its keys is cached.
+     */
+    public void update(String key, CachedForecast entry) {
+        long cutoff = cutoff();
+        pruneIfDue(cutoff);
+        WeatherResponse response = entry == null ? null : entry.getResponse();
+        lock.writeLock().lock();
+        try {
+            String previousIdentity = identities.get(key);
+            String identity = response == null ? null : identity(response);
+            if (previousIdentity != null && !previousIdentity.equals(identity)) detach(key, previousIdentity);
+            if (response == null) return;
+            long[] cityPostings = postings(response, cutoff);
+            Integer id = ids.get(identity);
+            if (cityPostings.length == 0) {
+                if (id != null) removeCity(id);
+                return;
+            }
+            if (id == null) {
+                id = freeIds.isEmpty() ? cities.size() : freeIds.poll();
+                ids.put(identity, id);
+                if (id == cities.size()) cities.add(null);
+            }
+            City previous = cities.get(id);
+            for (long posting : cityPostings) {
+                if (previous == null || Arrays.binarySearch(previous.postings, posting) < 0) {
+                    postings.computeIfAbsent(posting, p -> new CompactBitmap()).add(id);
+                }
+            }
+            if (previous != null) {
+                for (long posting : previous.postings) {
+                    if (Arrays.binarySearch(cityPostings, posting) < 0) removePosting(posting, id);
+                }
+            }
+            Set<String> keys = previous == null ? new HashSet<>() : previous.keys();
+            keys.add(key);
+            identities.put(key, identity);
+            cities.set(id, new City(identity, key, response.getCity(), cityPostings, keys));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the cities with any of the alerts matched by the terms on any of the next {@code days}
+     * days, including today.
+     *
+     * @param cursor first city id to return, 0 or the {@code nextCursor} of the previous page
+     * @throws IllegalArgumentException if no term is given, or days or cursor is out of range
+     * @throws IllegalStateException     if the index is disabled
+     */
+    public AlertQueryResponse query(List<String> terms, int days, int cursor, int limit) {
+        if (!enabled) throw new IllegalStateException("The alert index is disabled");
+        List<String> normalized = terms == null ? List.of() : terms.stream()
+                .filter(term -> term != null && !term.isBlank())
+                .map(term -> term.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        if (normalized.isEmpty()) throw new IllegalArgumentException("At least one alert must be given");
+        if (days < 1 || days > maxDays) throw new IllegalArgumentException("days must be within 1.." + maxDays + ": " + days);
+        if (cursor < 0) throw new IllegalArgumentException("cursor must not be negative: " + cursor);
+        pruneIfDue(cutoff());
+        long from = LocalDate.now(clock).toEpochDay();
+        long to = from + days - 1;
+        return queryTimer.record(() -> {
+            lock.readLock().lock();
+            try {
+                return query(matchingAlerts(normalized), from, to, cursor, Math.max(1, limit));
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return approximate heap footprint of the bitmaps in bytes
+     */
+    public long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (CompactBitmap bitmap : postings.values()) bytes += bitmap.sizeInBytes();
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private AlertQueryResponse query(Set<Integer> alertIdsMatched, long from, long to, int cursor, int limit) {
+        CompactBitmap matches = new CompactBitmap();
+        for (int alertId : alertIdsMatched) {
+            for (long day = from; day <= to; day++) {
+                CompactBitmap bitmap = postings.get(posting(alertId, day));
+                if (bitmap != null) matches.or(bitmap);
+            }
+        }
+        List<AlertQueryResponse.AlertCity> page = new ArrayList<>(Math.min(limit, matches.cardinality()));
+        int id = matches.nextValue(cursor);
+        for (; id >= 0 && page.size() < limit; id = matches.nextValue(id + 1)) {
+            City city = cities.get(id);
+            page.add(new AlertQueryResponse.AlertCity(city.name(), city.key(), city.dates(alertIdsMatched, from, to)));
+        }
+        AlertQueryResponse response = new AlertQueryResponse();
+        response.setAlerts(alertIdsMatched.stream().map(alerts::get).toList());
+        response.setFrom(LocalDate.ofEpochDay(from).toString());
+        response.setTo(LocalDate.ofEpochDay(to).toString());
+        response.setTotal(matches.cardinality());
+        response.setCities(page);
+        response.setNextCursor(id >= 0 ? id : null);
+        return response;
+    }
+
+    /**
+     * @return ids of the indexed alerts whose text contains one of the terms, or whose condition or rule one of them names
+     */
+    private Set<Integer> matchingAlerts(List<String> terms) {
+        Map<String, Set<String>> names = alertNames();
+        Set<Integer> matched = new HashSet<>();
+        for (int alertId = 0; alertId < alerts.size(); alertId++) {
+            String alert = alerts.get(alertId);
+            String text = alert.toLowerCase(Locale.ROOT);
+            Set<String> alertNames = names.getOrDefault(alert, Set.of());
+            for (String term : terms) {
+                if (text.contains(term) || alertNames.contains(term)) {
+                    matched.add(alertId);
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return lower-cased names of the conditions and rules by alert text; a condition is named by its
+     *         simple class name, with or without the "Condition" suffix
+     */
+    private Map<String, Set<String>> alertNames() {
+        Map<String, Set<String>> names = new HashMap<>();
+        for (WeatherCondition condition : weatherConditions) {
+            String name = condition.getClass().getSimpleName().toLowerCase(Locale.ROOT);
+            Set<String> alertNames = names.computeIfAbsent(condition.getAlert(), alert -> new HashSet<>());
+            alertNames.add(name);
+            if (name.endsWith("condition")) alertNames.add(name.substring(0, name.length() - "condition".length()));
+        }
+        AlertRuleSet rules = alertRuleEngine == null ? AlertRuleSet.EMPTY : alertRuleEngine.current();
+        for (int i = 0; i < rules.size(); i++) {
+            names.computeIfAbsent(rules.get(i).getAlert(), alert -> new HashSet<>()).add(rules.get(i).getName().toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    /**
+     * @return the sorted, distinct postings of the response's alerts on days from the cutoff on; assigns ids to new alerts
+     */
+    private long[] postings(WeatherResponse response, long cutoff) {
+        if (response.getForecastData() == null) return new long[0];
+        long[] cityPostings = new long[8];
+        int count = 0;
+        for (ForecastData data : response.getForecastData()) {
+            if (data.getAlerts() == null || data.getAlerts().isEmpty()) continue;
+            long day;
+            try {
+                day = LocalDate.parse(data.getDt_txt()).toEpochDay();
+            } catch (DateTimeParseException | NullPointerException e) {
+                continue;
+            }
+            if (day < cutoff) continue;
+            for (String alert : data.getAlerts()) {
+                if (count == cityPostings.length) cityPostings = Arrays.copyOf(cityPostings, count * 2);
+                cityPostings[count++] = posting(alertId(alert), day);
+            }
+        }
+        return Arrays.stream(cityPostings, 0, count).sorted().distinct().toArray();
+    }
+
+    private int alertId(String alert) {
+        Integer alertId = alertIds.get(alert);
+        if (alertId == null) {
+            alertId = alerts.size();
+            alerts.add(alert);
+            alertIds.put(alert, alertId);
+        }
+        return alertId;
+    }
+
+    /**
+     * @return the OpenWeatherMap city id key of the response, else its normalized city name
+     */
+    private static String identity(WeatherResponse response) {
+        return response.getCityId() > 0 ? WeatherService.cityIdKey(response.getCityId()) : ForecastCache.normalize(response.getCity());
+    }
+
+    /**
+     * Removes the key from the keys of the city, dropping the city if it was the last one.
+     */
+    private void detach(String key, String identity) {
+        identities.remove(key);
+        Integer id = ids.get(identity);
+        if (id == null) return;
+        City city = cities.get(id);
+        city.keys().remove(key);
+        if (city.keys().isEmpty()) {
+            removeCity(id);
+        } else if (city.key().equals(key)) {
+            cities.set(id, new City(identity, city.keys().iterator().next(), city.name(), city.postings(), city.keys()));
+        }
+    }
+
+    private void removeCity(int id) {
+        City city = cities.set(id, null);
+        for (long posting : city.postings()) removePosting(posting, id);
+        ids.remove(city.identity());
+        city.keys().forEach(identities::remove);
+        freeIds.push(id);
+    }
+
+    private void removePosting(long posting, int id) {
+        CompactBitmap bitmap = postings.get(posting);
+        if (bitmap != null && bitmap.remove(id) && bitmap.isEmpty()) postings.remove(posting);
+    }
+
+    /**
+     * Drops the postings of days before the cutoff, once per day.
+     */
+    private void pruneIfDue(long cutoff) {
+        if (cutoff <= prunedBefore) return;
+        lock.writeLock().lock();
+        try {
+            if (cutoff <= prunedBefore) return;
+            postings.keySet().removeIf(posting -> day(posting) < cutoff);
+            for (int id = 0; id < cities.size(); id++) {
+                City city = cities.get(id);
+                if (city == null) continue;
+                long[] kept = Arrays.stream(city.postings()).filter(posting -> day(posting) >= cutoff).toArray();
+                if (kept.length == 0) {
+                    removeCity(id);
+                } else if (kept.length < city.postings().length) {
+                    cities.set(id, new City(city.identity(), city.key(), city.name(), kept, city.keys()));
+                }
+            }
+            prunedBefore = cutoff;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the first epoch day kept in the index: yesterday in UTC, which is still today in western time zones
+     */
+    private long cutoff() {
+        return LocalDate.now(clock).toEpochDay() - 1;
+    }
+
+    /**
+     * Packs an alert id and an epoch day into one long that orders by alert, then day.
+     */
+    private static long posting(int alertId, long day) {
+        return (long) alertId << 32 | (day & 0xFFFFFFFFL);
+    }
+
+    private static int alertOf(long posting) {
+        return (int) (posting >>> 32);
+    }
+
+    private static long day(long posting) {
+        return (int) posting;
+    }
+
+    /**
+     * @param key  the cache key of the indexed forecast, or another of {@code keys} once it left the cache
+     * @param keys cache keys of the city's entries
+     */
+    private record City(String identity, String key, String name, long[] postings, Set<String> keys) {
+
+        List<String> dates(Set<Integer> alertIds, long from, long to) {
+            return Arrays.stream(postings)
+                    .filter(posting -> alertIds.contains(alertOf(posting)) && day(posting) >= from && day(posting) <= to)
+                    .map(AlertIndex::day)
+                    .sorted()
+                    .distinct()
+                    .mapToObj(day -> LocalDate.ofEpochDay(day).toString())
+                    .toList();
+        }
+    }
+}
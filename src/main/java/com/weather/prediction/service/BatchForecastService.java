@@ -0,0 +1,171 @@
+package com.weather.prediction.service;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.constant.Message;
+import com.weather.prediction.model.BatchForecastResponse;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.UpstreamPriority;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fans a batch of city lookups out over {@link WeatherService} concurrently, so a batch costs
+ * about one slow lookup instead of the sum of them. Concurrency is capped per batch and across
+ * all batches; cities that fail or do not finish before the batch timeout get their own error
+ * code in the response while the rest are still returned. Each lookup is given what is left of
+ * the batch timeout as its deadline, so no upstream attempt outlives the batch.
+ */
+@Component
+@Slf4j
+public class BatchForecastService {
+
+    @Value("${spring.weather.batch.max-cities:200}")
+    public int maxCities = 200;
+
+    @Value("${spring.weather.batch.max-concurrency-per-batch:32}")
+    public int maxConcurrencyPerBatch = 32;
+
+    @Value("${spring.weather.batch.max-concurrency:256}")
+    public int maxConcurrency = 256;
+
+    @Value("${spring.weather.batch.timeout-ms:10000}")
+    public long timeoutMs = 10000;
+
+    private final WeatherService weatherService;
+
+    private final ExecutorService executor;
+
+    private Semaphore globalPermits;
+
+    public BatchForecastService(WeatherService weatherService, @Qualifier("batchForecastExecutor") ExecutorService executor) {
+        this.weatherService = weatherService;
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        globalPermits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Retrieves forecasts for several cities at once.
+     *
+     * @param cities city names; duplicates (after normalization) are looked up once
+     * @return one {@link WeatherResponse} per distinct city, in request order, each with its own code
+     * @throws IllegalArgumentException if no city or more than {@code max-cities} cities are given
+     */
+    public BatchForecastResponse getWeatherForecasts(List<String> cities) {
+        Map<String, String> distinct = new LinkedHashMap<>();
+        for (String city : cities) {
+            String key = ForecastCache.normalize(city);
+            if (!key.isEmpty()) distinct.putIfAbsent(key, city.trim());
+        }
+        if (distinct.isEmpty()) throw new IllegalArgumentException("At least one city is required");
+        if (distinct.size() > maxCities) {
+            throw new IllegalArgumentException(String.format("At most %d cities per batch, got %d", maxCities, distinct.size()));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Semaphore batchPermits = new Semaphore(maxConcurrencyPerBatch);
+        Map<String, Future<WeatherResponse>> futures = new LinkedHashMap<>();
+        for (String city : distinct.values()) {
+            futures.put(city, submit(city, batchPermits, deadline));
+        }
+
+        List<WeatherResponse> forecasts = new ArrayList<>(futures.size());
+        futures.forEach((city, future) -> forecasts.add(await(city, future, deadline)));
+
+        BatchForecastResponse response = new BatchForecastResponse();
+        response.setRequested(forecasts.size());
+        response.setSucceeded((int) forecasts.stream().filter(wr -> "200".equals(wr.getCod())).count());
+        response.setFailed(response.getRequested() - response.getSucceeded());
+        response.setForecasts(forecasts);
+        return response;
+    }
+
+    private Future<WeatherResponse> submit(String city, Semaphore batchPermits, long deadline) {
+        try {
+            if (!batchPermits.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            return executor.submit(() -> {
+                try {
+                    if (!globalPermits.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                        return error(city, "504", Message.GATEWAY_TIMEOUT);
+                    }
+                    try {
+                        long lookupDeadline = weatherService.deadline(TimeUnit.NANOSECONDS.toMillis(remaining(deadline)));
+                        CompletableFuture<WeatherResponse> lookup =
+                                UpstreamPriority.BATCH.call(() -> weatherService.getWeatherForecastAsync(city, lookupDeadline));
+                        // wait interruptibly, so cancelling this task on batch timeout frees the worker and its permits
+                        try {
+                            return lookup.get(remaining(deadline), TimeUnit.NANOSECONDS);
+                        } catch (TimeoutException | InterruptedException e) {
+                            lookup.cancel(true);
+                            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                            return error(city, "504", Message.GATEWAY_TIMEOUT);
+                        } catch (ExecutionException e) {
+                            throw e.getCause() instanceof Exception cause ? cause : e;
+                        }
+                    } finally {
+                        globalPermits.release();
+                    }
+                } finally {
+                    batchPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            batchPermits.release();
+            log.warn("Batch lookup for {} rejected", city);
+            return null;
+        }
+    }
+
+    private WeatherResponse await(String city, Future<WeatherResponse> future, long deadline) {
+        if (future == null) return error(city, "504", Message.GATEWAY_TIMEOUT);
+        try {
+            return future.get(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return error(city, "504", Message.GATEWAY_TIMEOUT);
+        } catch (ExecutionException e) {
+            log.error("Batch lookup failed for {}", city, e.getCause());
+            return error(city, "500", Message.INTERNAL_SERVER_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return error(city, "504", Message.GATEWAY_TIMEOUT);
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static WeatherResponse error(String city, String cod, String message) {
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod(cod);
+        wr.setMessage(message);
+        return wr;
+    }
+}
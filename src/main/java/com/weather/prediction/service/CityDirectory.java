@@ -0,0 +1,366 @@
+package com.weather.prediction.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.weather.prediction.model.CitySuggestion;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Offline directory of cities in the OpenWeatherMap {@code city.list.json} format, used to suggest
+ * cities while the user types and to resolve them to their OpenWeatherMap id.
+ *
+ * Names are folded (accents stripped, lower-cased, whitespace collapsed) and kept sorted in one
+ * UTF-8 byte array, so a prefix query is two binary searches plus a scan of the matching range;
+ * the other columns are primitive arrays in the same order, with state and country codes
+ * dictionary-encoded. Matches are ranked exact match first, then by name length, then by position
+ * in the list.
+ */
+@Component
+@Slf4j
+public class CityDirectory {
+
+    @Value("${spring.weather.cities.path:classpath:cities/city.list.json}")
+    public String path = "classpath:cities/city.list.json";
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private volatile Index index = new Index(0);
+
+    @PostConstruct
+    public void init() {
+        Resource resource = new DefaultResourceLoader().getResource(path);
+        if (!resource.exists()) {
+            log.warn("City list {} not found, city suggestions are disabled", path);
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read city list " + path, e);
+        }
+        log.info("Loaded {} cities from {}", size(), path);
+    }
+
+    /**
+     * Replaces the directory with the cities of a {@code city.list.json} array.
+     */
+    public void load(InputStream in) throws IOException {
+        List<City> cities = new ArrayList<>();
+        JsonReader json = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        json.beginArray();
+        while (json.hasNext()) {
+            City city = readCity(json, cities.size());
+            if (city.key.length > 0) cities.add(city);
+        }
+        json.endArray();
+        index = Index.of(cities);
+    }
+
+    public int size() {
+        return index.size;
+    }
+
+    /**
+     * @param query a name prefix, optionally followed by a comma and a state or country code prefix ("portland, or")
+     * @return up to {@code limit} cities whose folded name starts with the folded prefix, best first
+     */
+    public List<CitySuggestion> suggest(String query, int limit) {
+        if (query == null || limit < 1) return List.of();
+        int comma = query.indexOf(',');
+        byte[] prefix = fold(comma < 0 ? query : query.substring(0, comma)).getBytes(StandardCharsets.UTF_8);
+        String qualifier = comma < 0 ? "" : fold(query.substring(comma + 1));
+        if (prefix.length == 0) return List.of();
+        return index.suggest(prefix, qualifier, limit);
+    }
+
+    /**
+     * @return the city with the OpenWeatherMap id, or null
+     */
+    public CitySuggestion get(int id) {
+        return index.get(id);
+    }
+
+    /**
+     * @return "name, state, country" without the empty parts, e.g. "Portland, OR, US"
+     */
+    public static String label(CitySuggestion city) {
+        StringBuilder label = new StringBuilder(city.getName());
+        if (city.getState() != null && !city.getState().isEmpty()) label.append(", ").append(city.getState());
+        if (city.getCountry() != null && !city.getCountry().isEmpty()) label.append(", ").append(city.getCountry());
+        return label.toString();
+    }
+
+    /**
+     * Folds a name for matching: accents stripped, lower-cased, trimmed and inner whitespace collapsed.
+     */
+    static String fold(String name) {
+        String stripped = MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(stripped.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static City readCity(JsonReader json, int order) throws IOException {
+        City city = new City();
+        city.order = order;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id" -> city.id = json.nextInt();
+                case "name" -> city.name = nextStringOrEmpty(json);
+                case "state" -> city.state = nextStringOrEmpty(json);
+                case "country" -> city.country = nextStringOrEmpty(json);
+                case "coord" -> {
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        String name = json.nextName();
+                        if (name.equals("lat")) city.lat = (float) json.nextDouble();
+                        else if (name.equals("lon")) city.lon = (float) json.nextDouble();
+                        else json.skipValue();
+                    }
+                    json.endObject();
+                }
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        city.key = city.name == null ? new byte[0] : fold(city.name).getBytes(StandardCharsets.UTF_8);
+        return city;
+    }
+
+    private static String nextStringOrEmpty(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return "";
+        }
+        return json.nextString();
+    }
+
+    private static final class City {
+        int id;
+        int order;
+        String name;
+        byte[] key;
+        String state = "";
+        String country = "";
+        float lat;
+        float lon;
+    }
+
+    /**
+     * Column-wise, immutable snapshot of the directory sorted by folded name.
+     */
+    private static final class Index {
+
+        final int size;
+
+        /** Folded names back to back, in sorted order; name i spans keyOffsets[i]..keyOffsets[i + 1]. */
+        byte[] keys;
+
+        int[] keyOffsets;
+
+        /** Display names back to back, UTF-8, in the same order. */
+        byte[] names;
+
+        int[] nameOffsets;
+
+        int[] ids;
+
+        int[] orders;
+
+        short[] states;
+
+        short[] countries;
+
+        float[] lats;
+
+        float[] lons;
+
+        String[] stateCodes;
+
+        String[] countryCodes;
+
+        /** Folded codes, matched against the qualifier of a query. */
+        String[] stateKeys;
+
+        String[] countryKeys;
+
+        /** Positions sorted by id, for {@link #get(int)}. */
+        int[] idPositions;
+
+        int[] sortedIds;
+
+        Index(int size) {
+            this.size = size;
+            this.keys = new byte[0];
+            this.keyOffsets = new int[]{0};
+            this.sortedIds = new int[0];
+        }
+
+        static Index of(List<City> cities) {
+            cities.sort((a, b) -> {
+                int byKey = Arrays.compareUnsigned(a.key, b.key);
+                return byKey != 0 ? byKey : Integer.compare(a.order, b.order);
+            });
+            int n = cities.size();
+            Index index = new Index(n);
+            byte[][] names = new byte[n][];
+            int keyLength = 0;
+            int nameLength = 0;
+            for (int i = 0; i < n; i++) {
+                names[i] = cities.get(i).name.getBytes(StandardCharsets.UTF_8);
+                keyLength += cities.get(i).key.length;
+                nameLength += names[i].length;
+            }
+            index.keys = new byte[keyLength];
+            index.keyOffsets = new int[n + 1];
+            index.names = new byte[nameLength];
+            index.nameOffsets = new int[n + 1];
+            index.ids = new int[n];
+            index.orders = new int[n];
+            index.states = new short[n];
+            index.countries = new short[n];
+            index.lats = new float[n];
+            index.lons = new float[n];
+            Map<String, Short> stateCodes = new HashMap<>();
+            Map<String, Short> countryCodes = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                City city = cities.get(i);
+                System.arraycopy(city.key, 0, index.keys, index.keyOffsets[i], city.key.length);
+                index.keyOffsets[i + 1] = index.keyOffsets[i] + city.key.length;
+                System.arraycopy(names[i], 0, index.names, index.nameOffsets[i], names[i].length);
+                index.nameOffsets[i + 1] = index.nameOffsets[i] + names[i].length;
+                index.ids[i] = city.id;
+                index.orders[i] = city.order;
+                index.states[i] = code(stateCodes, city.state);
+                index.countries[i] = code(countryCodes, city.country);
+                index.lats[i] = city.lat;
+                index.lons[i] = city.lon;
+            }
+            index.stateCodes = table(stateCodes);
+            index.countryCodes = table(countryCodes);
+            index.stateKeys = Arrays.stream(index.stateCodes).map(CityDirectory::fold).toArray(String[]::new);
+            index.countryKeys = Arrays.stream(index.countryCodes).map(CityDirectory::fold).toArray(String[]::new);
+
+            Integer[] byId = new Integer[n];
+            for (int i = 0; i < n; i++) byId[i] = i;
+            Arrays.sort(byId, (a, b) -> Integer.compare(index.ids[a], index.ids[b]));
+            index.idPositions = new int[n];
+            index.sortedIds = new int[n];
+            for (int i = 0; i < n; i++) {
+                index.idPositions[i] = byId[i];
+                index.sortedIds[i] = index.ids[byId[i]];
+            }
+            return index;
+        }
+
+        List<CitySuggestion> suggest(byte[] prefix, String qualifier, int limit) {
+            int from = bound(prefix, false);
+            int to = bound(prefix, true);
+            int[] best = new int[limit];
+            int found = 0;
+            for (int i = from; i < to; i++) {
+                if (!qualifier.isEmpty() && !qualifies(i, qualifier)) continue;
+                if (found == limit && !better(i, best[limit - 1])) continue;
+                int pos = Math.min(found, limit - 1);
+                while (pos > 0 && better(i, best[pos - 1])) {
+                    best[pos] = best[pos - 1];
+                    pos--;
+                }
+                best[pos] = i;
+                if (found < limit) found++;
+            }
+            List<CitySuggestion> suggestions = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) suggestions.add(suggestion(best[i]));
+            return suggestions;
+        }
+
+        CitySuggestion get(int id) {
+            int found = Arrays.binarySearch(sortedIds, id);
+            return found < 0 ? null : suggestion(idPositions[found]);
+        }
+
+        /**
+         * @return the first position whose key is not below the prefix ({@code after} false), or
+         *         the first whose key neither starts with nor is below the prefix ({@code after} true)
+         */
+        private int bound(byte[] prefix, boolean after) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = comparePrefix(mid, prefix);
+                if (cmp < 0 || (after && cmp == 0)) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * Compares the key at the position, cut to the prefix length, with the prefix.
+         */
+        private int comparePrefix(int position, byte[] prefix) {
+            int start = keyOffsets[position];
+            int length = keyOffsets[position + 1] - start;
+            int common = Math.min(length, prefix.length);
+            int cmp = Arrays.compareUnsigned(keys, start, start + common, prefix, 0, common);
+            if (cmp != 0) return cmp;
+            return length < prefix.length ? -1 : 0;
+        }
+
+        /**
+         * Shorter names (so an exact match) first, then the earlier entry in the list.
+         */
+        private boolean better(int a, int b) {
+            int lengthA = keyOffsets[a + 1] - keyOffsets[a];
+            int lengthB = keyOffsets[b + 1] - keyOffsets[b];
+            return lengthA != lengthB ? lengthA < lengthB : orders[a] < orders[b];
+        }
+
+        private boolean qualifies(int position, String qualifier) {
+            return countryKeys[countries[position]].startsWith(qualifier)
+                    || stateKeys[states[position]].startsWith(qualifier);
+        }
+
+        private CitySuggestion suggestion(int position) {
+            String name = new String(names, nameOffsets[position], nameOffsets[position + 1] - nameOffsets[position], StandardCharsets.UTF_8);
+            return new CitySuggestion(ids[position], name, stateCodes[states[position]], countryCodes[countries[position]],
+                    decimal(lats[position]), decimal(lons[position]));
+        }
+
+        /**
+         * @return the shortest decimal that rounds to the float, e.g. 51.50853 rather than 51.508529663085938
+         */
+        private static double decimal(float value) {
+            return Double.parseDouble(Float.toString(value));
+        }
+
+        private static short code(Map<String, Short> codes, String value) {
+            return codes.computeIfAbsent(value, v -> (short) codes.size());
+        }
+
+        private static String[] table(Map<String, Short> codes) {
+            String[] table = new String[codes.size()];
+            codes.forEach((value, code) -> table[code] = value);
+            return table;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.weather.prediction.service;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.DecayingTopK;
+import com.weather.prediction.utils.UpstreamPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Refreshes popular cities before their cached forecast expires, so requests for them are
+ * served from {@link ForecastCache} instead of waiting on the upstream.
+ *
+ * Requests are counted per city in a {@link DecayingTopK} (half-life {@code half-life-seconds}), lookups
+ * by name under the city's name and lookups by city id under {@link WeatherService#cityIdKey(int)}.
+ * Every {@code interval-seconds}, the {@code top-n} hottest cities that are cached, plus the
+ * configured {@code warm-cities} and the cities of open {@link ForecastSubscriptions}, are re-fetched
+ * if their entry is missing or stops being fresh within {@code refresh-ahead-seconds}. Warm cities
+ * are also fetched right after startup.
+ * Refreshes run on the bounded {@code forecastPrefetchExecutor}, at most one per city at a time.
+ */
+@Component
+@Slf4j
+public class ForecastRefresher {
+
+    @Value("${spring.weather.refresh.enabled:true}")
+    public boolean enabled = true;
+
+    /** 0 only tracks requests; {@link #refreshDue()} is then never run automatically. */
+    @Value("${spring.weather.refresh.interval-seconds:60}")
+    public long intervalSeconds = 60;
+
+    @Value("${spring.weather.refresh.refresh-ahead-seconds:300}")
+    public long refreshAheadSeconds = 300;
+
+    @Value("${spring.weather.refresh.top-n:100}")
+    public int topN = 100;
+
+    @Value("${spring.weather.refresh.half-life-seconds:3600}")
+    public long halfLifeSeconds = 3600;
+
+    @Value("${spring.weather.refresh.max-tracked:10000}")
+    public int maxTracked = 10000;
+
+    @Value("${spring.weather.refresh.warm-cities:}")
+    public List<String> warmCities = List.of();
+
+    private final WeatherService weatherService;
+
+    private final ForecastCache forecastCache;
+
+    private final Executor executor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private DecayingTopK<String> hotCities;
+
+    private ScheduledExecutorService scheduler;
+
+    private ForecastSubscriptions subscriptions;
+
+    public ForecastRefresher(WeatherService weatherService, ForecastCache forecastCache,
+                             @Qualifier("forecastPrefetchExecutor") Executor executor, MeterRegistry meterRegistry) {
+        this.weatherService = weatherService;
+        this.forecastCache = forecastCache;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Autowired(required = false)
+    public void setSubscriptions(ForecastSubscriptions subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    @PostConstruct
+    public void init() {
+        hotCities = new DecayingTopK<>(TimeUnit.SECONDS.toMillis(halfLifeSeconds), maxTracked, Clock.systemUTC());
+        if (!enabled || intervalSeconds <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "forecast-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, 0, intervalSeconds, TimeUnit.SECONDS);
+        log.info("Forecast refresher: every {}s, top {} cities, {}s ahead of expiry, {} warm cities",
+                intervalSeconds, topN, refreshAheadSeconds, warmCities.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * Counts a request for the city towards its popularity.
+     */
+    public void recordRequest(String city) {
+        if (!enabled) return;
+        String key = ForecastCache.normalize(city);
+        if (!key.isEmpty()) hotCities.record(key, city.trim());
+    }
+
+    /**
+     * Counts a request for the city id of the {@link CityDirectory} towards its popularity.
+     */
+    public void recordRequest(int id) {
+        if (!enabled) return;
+        hotCities.record(WeatherService.cityIdKey(id), String.valueOf(id));
+    }
+
+    /**
+     * Submits a refresh for every warm, subscribed or hot city whose forecast is missing or about to expire.
+     *
+     * @return the number of refreshes submitted
+     */
+    public int refreshDue() {
+        long aheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+        Map<String, Supplier<WeatherResponse>> due = new LinkedHashMap<>();
+        for (String city : warmCities) {
+            String key = ForecastCache.normalize(city);
+            if (!key.isEmpty() && forecastCache.needsRefresh(key, aheadMillis)) due.putIfAbsent(key, byName(city.trim()));
+        }
+        if (subscriptions != null) {
+            subscriptions.refreshers().forEach((key, refresher) -> {
+                if (forecastCache.needsRefresh(key, aheadMillis)) due.putIfAbsent(key, refresher);
+            });
+        }
+        for (DecayingTopK.Entry<String> hot : hotCities.top(topN)) {
+            // only cities that resolved before; unknown names would otherwise be re-fetched every run
+            if (forecastCache.getEntry(hot.key()) != null && forecastCache.needsRefresh(hot.key(), aheadMillis)) {
+                due.putIfAbsent(hot.key(), WeatherService.isCityIdKey(hot.key()) ? byId(Integer.parseInt(hot.value())) : byName(hot.value()));
+            }
+        }
+
+        int submitted = 0;
+        for (Map.Entry<String, Supplier<WeatherResponse>> city : due.entrySet()) {
+            if (!inFlight.add(city.getKey())) continue;
+            try {
+                executor.execute(() -> refresh(city.getKey(), city.getValue()));
+                submitted++;
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(city.getKey());
+                count("rejected", due.size() - submitted);
+                log.warn("Prefetch queue full, {} refreshes deferred to the next run", due.size() - submitted);
+                break;
+            }
+        }
+        if (submitted > 0) log.debug("Submitted {} forecast refreshes", submitted);
+        return submitted;
+    }
+
+    /**
+     * @return the hottest cities with their decayed request counts
+     */
+    public List<DecayingTopK.Entry<String>> hotCities(int n) {
+        return hotCities.top(n);
+    }
+
+    private Supplier<WeatherResponse> byName(String city) {
+        return () -> weatherService.refreshWeatherForecast(city);
+    }
+
+    private Supplier<WeatherResponse> byId(int id) {
+        return () -> weatherService.refreshWeatherForecastById(id);
+    }
+
+    private void refresh(String key, Supplier<WeatherResponse> refresher) {
+        try {
+            WeatherResponse response = UpstreamPriority.BACKGROUND.call(refresher);
+            count("200".equals(response.getCod()) ? "ok" : "failed", 1);
+        } catch (RuntimeException e) {
+            count("failed", 1);
+            log.warn("Refresh of {} failed: {}", key, e.getMessage());
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private void runSafely() {
+        try {
+            refreshDue();
+        } catch (RuntimeException e) {
+            log.error("Forecast refresh run failed", e);
+        }
+    }
+
+    private void count(String outcome, int n) {
+        Counter.builder("weather.refresh.prefetches")
+                .description("Proactive forecast refreshes by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment(n);
+    }
+}
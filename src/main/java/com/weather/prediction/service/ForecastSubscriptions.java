@@ -0,0 +1,456 @@
+package com.weather.prediction.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.cache.CachedForecast;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.constant.Message;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes forecast updates to Server-Sent Events subscribers of a set of cities, instead of having
+ * clients poll {@code /forecast}.
+ *
+ * A new subscription first receives the current forecast of each city. After that, every forecast
+ * put into the {@link ForecastCache} for a subscribed city is compared with the one last pushed
+ * for it: if its content changed, it is serialized once and queued to every subscriber of the city
+ * (subscribers with {@code alertsOnly} only when the alerts of some day changed). Subscribed cities
+ * are kept fresh by the {@link ForecastRefresher}, like its warm cities.
+ *
+ * Each subscriber has a queue of {@code buffer-size} events, drained by one task at a time on the
+ * {@code subscriptionExecutor}; a subscriber whose queue is full, whose connection fails, or whose
+ * current send has been blocked for longer than {@code send-timeout-ms} is dropped, so a slow client
+ * never holds up the others or the refresh that produced the update. Dropped connections are closed
+ * on the {@code subscriptionCloseExecutor}, as closing waits for a send stuck on the client.
+ * A comment is queued every {@code heartbeat-seconds} to detect dead connections, and connections
+ * are closed after {@code max-age-seconds} (EventSource clients reconnect on their own).
+ */
+@Component
+@Slf4j
+public class ForecastSubscriptions {
+
+    @Value("${spring.weather.subscriptions.enabled:true}")
+    public boolean enabled = true;
+
+    @Value("${spring.weather.subscriptions.max-subscribers:10000}")
+    public int maxSubscribers = 10000;
+
+    @Value("${spring.weather.subscriptions.max-cities:20}")
+    public int maxCities = 20;
+
+    @Value("${spring.weather.subscriptions.buffer-size:16}")
+    public int bufferSize = 16;
+
+    @Value("${spring.weather.subscriptions.heartbeat-seconds:30}")
+    public long heartbeatSeconds = 30;
+
+    @Value("${spring.weather.subscriptions.max-age-seconds:3600}")
+    public long maxAgeSeconds = 3600;
+
+    @Value("${spring.weather.subscriptions.send-timeout-ms:5000}")
+    public long sendTimeoutMs = 5000;
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    /** Queued after the initial events of a subscription without any city, to complete it once they are sent; never sent itself. */
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> CLOSE = SseEmitter.event().comment("close").build();
+
+    private final WeatherService weatherService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Executor executor;
+
+    private final Executor closer;
+
+    private final MeterRegistry meterRegistry;
+
+    /** Subscribed cities by cache key. */
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService timer;
+
+    public ForecastSubscriptions(WeatherService weatherService, ForecastCache forecastCache, ObjectMapper objectMapper,
+                                 @Qualifier("subscriptionExecutor") Executor executor,
+                                 @Qualifier("subscriptionCloseExecutor") Executor closer, MeterRegistry meterRegistry) {
+        this.weatherService = weatherService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.closer = closer;
+        this.meterRegistry = meterRegistry;
+        forecastCache.addListener(this::publish);
+        Gauge.builder("weather.subscriptions.active", subscribers, Set::size)
+                .description("Open forecast subscriptions")
+                .register(meterRegistry);
+        Gauge.builder("weather.subscriptions.cities", topics, Map::size)
+                .description("Cities with at least one subscriber")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || (heartbeatSeconds <= 0 && sendTimeoutMs <= 0)) return;
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "forecast-subscription-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (heartbeatSeconds > 0) {
+            timer.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+        if (sendTimeoutMs > 0) {
+            timer.scheduleWithFixedDelay(this::dropStuck, sendTimeoutMs, sendTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("Forecast subscriptions: up to {} subscribers of {} cities each, {} buffered events, {}s heartbeat, {}ms send timeout",
+                maxSubscribers, maxCities, bufferSize, heartbeatSeconds, sendTimeoutMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (timer != null) timer.shutdownNow();
+        for (Subscriber subscriber : subscribers) drop(subscriber, "shutdown");
+    }
+
+    /**
+     * Opens a subscription and returns its emitter right away; the current forecast of each city is
+     * queued as its first event when the city's lookup completes, without holding the request thread.
+     * Cities whose forecast could not be retrieved are reported with an {@code error} event; unknown
+     * ones ("404") are not subscribed, and a subscription without any city is completed once its
+     * events are sent.
+     *
+     * @param cities     city names; duplicates (after normalization) count once
+     * @param ids        city ids of the {@link CityDirectory}
+     * @param alertsOnly push a changed forecast only when its alerts changed
+     * @throws IllegalArgumentException if no city or more than {@code max-cities} are given
+     * @throws IllegalStateException    if subscriptions are disabled or {@code max-subscribers} are open
+     */
+    public SseEmitter subscribe(List<String> cities, List<Integer> ids, boolean alertsOnly) {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String city : cities) {
+            String key = ForecastCache.normalize(city);
+            if (!key.isEmpty()) names.putIfAbsent(key, city.trim());
+        }
+        List<Integer> distinctIds = ids.stream().distinct().toList();
+        int count = names.size() + distinctIds.size();
+        if (count == 0) throw new IllegalArgumentException("At least one city is required");
+        if (count > maxCities) {
+            throw new IllegalArgumentException(String.format("At most %d cities per subscription, got %d", maxCities, count));
+        }
+        if (!enabled) throw new IllegalStateException("Forecast subscriptions are disabled");
+        if (subscribers.size() >= maxSubscribers) throw new IllegalStateException("Too many forecast subscriptions");
+
+        SseEmitter emitter = createEmitter(TimeUnit.SECONDS.toMillis(maxAgeSeconds));
+        // room for the initial events on top of the buffer for updates
+        Subscriber subscriber = new Subscriber(emitter, alertsOnly, bufferSize + count, count);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.add(subscriber);
+
+        long deadline = weatherService.deadline(null);
+        names.forEach((key, city) -> initial(subscriber, key, city, () -> weatherService.refreshWeatherForecast(city),
+                () -> weatherService.getWeatherForecastAsync(city, deadline)));
+        for (int id : distinctIds) {
+            initial(subscriber, WeatherService.cityIdKey(id), String.valueOf(id), () -> weatherService.refreshWeatherForecastById(id),
+                    () -> weatherService.getWeatherForecastByIdAsync(id, deadline));
+        }
+        log.debug("Subscribing to {} cities ({} open subscriptions)", count, subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * @return a refresh of each subscribed city by cache key, for the {@link ForecastRefresher}
+     */
+    public Map<String, Supplier<WeatherResponse>> refreshers() {
+        Map<String, Supplier<WeatherResponse>> refreshers = new LinkedHashMap<>();
+        topics.forEach((key, topic) -> refreshers.put(key, topic.refresher));
+        return refreshers;
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    /**
+     * Fans a newly cached forecast out to the subscribers of its city, if it differs from the last one pushed.
+     */
+    void publish(String key, CachedForecast entry) {
+        Topic topic = entry == null ? null : topics.get(key);
+        if (topic == null) return;
+        Set<ResponseBodyEmitter.DataWithMediaType> event;
+        boolean alertsChanged;
+        synchronized (topic) {
+            String eTag = entry.getETag();
+            if (eTag.equals(topic.eTag)) {
+                count("weather.subscriptions.updates", "changed", "false");
+                return;
+            }
+            alertsChanged = !alerts(entry.getResponse()).equals(topic.alerts);
+            topic.seen(entry);
+            event = event("forecast", eTag, entry.getResponse());
+        }
+        count("weather.subscriptions.updates", "changed", alertsChanged ? "alerts" : "forecast");
+        int pushed = 0;
+        for (Subscriber subscriber : topic.subscribers) {
+            if (subscriber.alertsOnly && !alertsChanged) continue;
+            if (offer(subscriber, event)) pushed++;
+        }
+        log.debug("Pushed update of {} to {} subscribers", key, pushed);
+    }
+
+    /**
+     * Starts the lookup of a city's current forecast and, once it completes, subscribes to the city
+     * (unless it is unknown) and queues the forecast, or an {@code error} event, to the subscriber.
+     */
+    private void initial(Subscriber subscriber, String key, String city, Supplier<WeatherResponse> refresher,
+                         Supplier<CompletableFuture<WeatherResponse>> lookup) {
+        CompletableFuture<WeatherResponse> future;
+        try {
+            future = lookup.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.exceptionally(e -> {
+            log.error("Subscription lookup failed for {}", city, e);
+            WeatherResponse wr = new WeatherResponse();
+            wr.setCity(city);
+            wr.setCod("500");
+            wr.setMessage(Message.INTERNAL_SERVER_ERROR);
+            return wr;
+        }).thenAccept(response -> {
+            if (!"200".equals(response.getCod())) offer(subscriber, event("error", null, response));
+            if (!"404".equals(response.getCod()) && !subscriber.closed.get()) {
+                Topic topic = topics.compute(key, (k, existing) -> {
+                    Topic t = existing != null ? existing : new Topic(refresher);
+                    t.subscribers.add(subscriber);
+                    return t;
+                });
+                subscriber.keys.add(key);
+                // removed while subscribing: take back the subscription it could not see
+                if (subscriber.closed.get()) remove(subscriber, key);
+                if ("200".equals(response.getCod())) {
+                    CachedForecast current = new CachedForecast(response, 0, 0);
+                    offer(subscriber, event("forecast", current.getETag(), response));
+                    topic.seedIfEmpty(current);
+                }
+            }
+            if (subscriber.pending.decrementAndGet() == 0 && subscriber.keys.isEmpty()) offer(subscriber, CLOSE);
+        });
+    }
+
+    protected SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void heartbeat() {
+        try {
+            for (Subscriber subscriber : subscribers) offer(subscriber, HEARTBEAT);
+        } catch (RuntimeException e) {
+            log.error("Subscription heartbeat failed", e);
+        }
+    }
+
+    /**
+     * Drops the subscribers whose current send has been blocked for longer than {@code send-timeout-ms}.
+     */
+    private void dropStuck() {
+        try {
+            for (Subscriber subscriber : subscribers) {
+                if (isStuck(subscriber)) drop(subscriber, "slow");
+            }
+        } catch (RuntimeException e) {
+            log.error("Subscription send timeout check failed", e);
+        }
+    }
+
+    private boolean isStuck(Subscriber subscriber) {
+        return sendTimeoutMs > 0 && subscriber.sending
+                && System.nanoTime() - subscriber.sendStartedAt > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+    }
+
+    /**
+     * Queues the event for the subscriber, dropping the subscriber if its queue is full or its current
+     * send is stuck.
+     *
+     * @return true if the event was queued
+     */
+    private boolean offer(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (subscriber.closed.get()) return false;
+        if (isStuck(subscriber) || !subscriber.queue.offer(event)) {
+            drop(subscriber, "slow");
+            return false;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                drop(subscriber, "rejected");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Set<ResponseBodyEmitter.DataWithMediaType> event = subscriber.queue.poll();
+            if (event == null) {
+                subscriber.draining.set(false);
+                // an event queued after the poll but before the flag was cleared has no drain scheduled
+                if (subscriber.queue.isEmpty() || !subscriber.draining.compareAndSet(false, true)) return;
+                continue;
+            }
+            if (event == CLOSE) {
+                // the drain is the only sender, so completing here waits for nothing
+                if (remove(subscriber)) subscriber.emitter.complete();
+                return;
+            }
+            if (subscriber.closed.get()) return;
+            subscriber.sendStartedAt = System.nanoTime();
+            subscriber.sending = true;
+            try {
+                subscriber.emitter.send(event);
+                if (event != HEARTBEAT) count("weather.subscriptions.events", "outcome", "sent");
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Subscription connection failed: {}", e.getMessage());
+                drop(subscriber, "error");
+                return;
+            } finally {
+                subscriber.sending = false;
+            }
+        }
+    }
+
+    /**
+     * Closes the subscriber's connection and stops pushing to it. Completion runs on the close executor,
+     * as it waits for a send in progress, which may be stuck on a slow client; the drain executor may
+     * itself be busy with such sends.
+     */
+    private void drop(Subscriber subscriber, String reason) {
+        if (!remove(subscriber)) return;
+        count("weather.subscriptions.dropped", "reason", reason);
+        try {
+            closer.execute(subscriber.emitter::complete);
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not close dropped subscription: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if this call removed the subscriber
+     */
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) return false;
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        for (String key : subscriber.keys) remove(subscriber, key);
+        return true;
+    }
+
+    private void remove(Subscriber subscriber, String key) {
+        topics.computeIfPresent(key, (k, topic) -> {
+            topic.subscribers.remove(subscriber);
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> event(String name, String id, WeatherResponse response) {
+        try {
+            String data = response.getEncoded() != null
+                    ? new String(response.getEncoded().json(), StandardCharsets.UTF_8)
+                    : objectMapper.writeValueAsString(response);
+            SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).data(data);
+            if (id != null) event.id(id);
+            return event.build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize forecast for " + response.getCity(), e);
+        }
+    }
+
+    /**
+     * @return the alerts of each day of the forecast, the part {@code alertsOnly} subscribers care about
+     */
+    private static List<List<String>> alerts(WeatherResponse response) {
+        if (response.getForecastData() == null) return List.of();
+        return response.getForecastData().stream().map(ForecastData::getAlerts).toList();
+    }
+
+    private void count(String name, String tag, String value) {
+        Counter.builder(name)
+                .tag(tag, value)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static final class Topic {
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final Supplier<WeatherResponse> refresher;
+        String eTag;
+        List<List<String>> alerts = List.of();
+
+        Topic(Supplier<WeatherResponse> refresher) {
+            this.refresher = refresher;
+        }
+
+        synchronized void seen(CachedForecast entry) {
+            eTag = entry.getETag();
+            alerts = alerts(entry.getResponse());
+        }
+
+        synchronized void seedIfEmpty(CachedForecast entry) {
+            if (eTag == null) seen(entry);
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final boolean alertsOnly;
+        final ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        final Set<String> keys = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        /** Initial lookups not completed yet. */
+        final AtomicInteger pending;
+        volatile boolean sending;
+        volatile long sendStartedAt;
+
+        Subscriber(SseEmitter emitter, boolean alertsOnly, int bufferSize, int cities) {
+            this.emitter = emitter;
+            this.alertsOnly = alertsOnly;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+            this.pending = new AtomicInteger(cities);
+        }
+    }
+}
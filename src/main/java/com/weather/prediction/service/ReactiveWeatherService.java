@@ -0,0 +1,92 @@
+package com.weather.prediction.service;
+
+import com.weather.prediction.cache.CachedForecast;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.exception.UpstreamRateLimitedException;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.ReactiveApiUtils;
+import com.weather.prediction.utils.UpstreamPriority;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of {@link WeatherService#getWeatherForecast(String)}: the same cache, parsing,
+ * day aggregation, {@code WeatherCondition} alerts and stale fallback, with the upstream call made
+ * through {@link ReactiveApiUtils} so that no thread waits on it.
+ *
+ * Fresh entries (and, while a background refresh runs, stale-while-revalidate ones) are served
+ * from {@link ForecastCache}. Misses are loaded through {@link ForecastCache#loadAsync(String, java.util.function.Supplier)},
+ * so concurrent misses for the same city share one upstream call with each other and with blocking
+ * lookups, and take part in the shared cache tier's lease.
+ */
+@Component
+@Slf4j
+public class ReactiveWeatherService {
+
+    private final WeatherService weatherService;
+
+    private final ReactiveApiUtils reactiveApiUtils;
+
+    private final ForecastCache forecastCache;
+
+    public ReactiveWeatherService(WeatherService weatherService, ReactiveApiUtils reactiveApiUtils, ForecastCache forecastCache) {
+        this.weatherService = weatherService;
+        this.reactiveApiUtils = reactiveApiUtils;
+        this.forecastCache = forecastCache;
+    }
+
+    /**
+     * @return the forecast for the city, see {@link WeatherService#getWeatherForecast(String)}
+     */
+    public Mono<WeatherResponse> getWeatherForecast(String city) {
+        String key = ForecastCache.normalize(city);
+        WeatherResponse notFound = weatherService.knownMissing(key, city);
+        if (notFound != null) return Mono.just(notFound);
+        CachedForecast entry = forecastCache.getEntry(key);
+        if (entry != null && forecastCache.isServable(entry)) {
+            if (forecastCache.remainingFreshMillis(entry) == 0) refreshInBackground(key, city, entry);
+            return Mono.just(entry.getResponse());
+        }
+        return load(key, city).map(wr -> weatherService.withLastKnownGood(key, city, wr));
+    }
+
+    /**
+     * Fetches and processes the forecast for a city, mapping upstream failures to the same codes as
+     * {@link WeatherService#fetchWeatherForecast(String)}.
+     */
+    public Mono<WeatherResponse> fetchWeatherForecast(String city) {
+        String req = weatherService.url + "?q=" + city + "&appid=" + weatherService.key + "&cnt=" + weatherService.cnt;
+        return reactiveApiUtils.callGetApiWithRetry(req, weatherService::parse)
+                .map(payload -> weatherService.toResponse(city, payload))
+                .onErrorResume(RestClientResponseException.class, e -> Mono.just(e.getStatusCode().value() == 429
+                        ? WeatherService.throttled(city, e)
+                        : WeatherService.errorResponse(city, e.getResponseBodyAsString())))
+                .onErrorResume(e -> e instanceof CallNotPermittedException || e instanceof BulkheadFullException
+                        || e instanceof UpstreamRateLimitedException, e -> {
+                    log.debug("Upstream call not permitted: {}", e.getMessage());
+                    return Mono.just(WeatherService.unavailable(city));
+                })
+                .onErrorResume(ResourceAccessException.class, e -> {
+                    log.warn("Resource Access Exception Occurred: {}", e.getMessage());
+                    return Mono.just(WeatherService.unavailable(city));
+                });
+    }
+
+    private Mono<WeatherResponse> load(String key, String city) {
+        UpstreamPriority priority = UpstreamPriority.current();
+        return Mono.fromFuture(forecastCache.loadAsync(key, () -> priority.call(() -> fetchWeatherForecast(city).toFuture())))
+                .doOnNext(wr -> weatherService.recordMissing(key, wr));
+    }
+
+    private void refreshInBackground(String key, String city, CachedForecast entry) {
+        if (!entry.getRefreshing().compareAndSet(false, true)) return;
+        UpstreamPriority.BACKGROUND.call(() -> load(key, city))
+                .doFinally(signal -> entry.getRefreshing().set(false))
+                .subscribe(wr -> { }, e -> log.warn("Background refresh failed for {}: {}", key, e.getMessage()));
+    }
+}
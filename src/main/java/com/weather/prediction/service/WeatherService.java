@@ -1,37 +1,105 @@
 package com.weather.prediction.service;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.weather.prediction.cache.CachedForecast;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.cache.NegativeCache;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.conditions.rules.AlertRuleEngine;
+import com.weather.prediction.conditions.rules.AlertRuleSet;
+import com.weather.prediction.conditions.JsonConditionAdapter;
 import com.weather.prediction.conditions.WeatherCondition;
 import com.weather.prediction.constant.Message;
 import com.weather.prediction.exception.CustomRuntimeException;
+import com.weather.prediction.exception.UpstreamRateLimitedException;
+import com.weather.prediction.exception.UpstreamTimeoutException;
 import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.CitySuggestion;
+import com.weather.prediction.model.ForecastSlot;
 import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.parser.ForecastParser;
+import com.weather.prediction.parser.ForecastPayload;
 import com.weather.prediction.utils.ApiUtils;
+import com.weather.prediction.utils.GeoCellIndex;
+import com.weather.prediction.utils.Geohash;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.swagger.v3.core.util.Json;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestClientResponseException;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
 @Slf4j
 public class WeatherService {
 
+    /** Forecast days returned after the current one. */
+    static final int FORECAST_DAYS = 3;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    /** Cache key prefix of forecasts looked up by coordinates, followed by the geohash of their cell. */
+    private static final String CELL_KEY_PREFIX = "geo:";
+
+    /** Cache key prefix of forecasts looked up by OpenWeatherMap city id, see {@link CityDirectory}. */
+    private static final String CITY_ID_KEY_PREFIX = "id:";
+
+    private static final Gson GSON = new Gson();
+
     List<WeatherCondition> weatherConditions;
 
+    /** weatherConditions in the same order, as slot conditions; the index is the alert bit. */
+    List<ForecastSlotCondition> slotConditions;
+
     ApiUtils apiUtils;
 
+    ForecastCache forecastCache;
+
+    NegativeCache negativeCache;
+
+    CityDirectory cityDirectory;
+
+    AlertRuleEngine alertRuleEngine;
+
+    private final Timer parseTimer;
+
+    private final Timer aggregateTimer;
+
+    private final DistributionSummary slotCount;
+
+    /** Alert counters in slotConditions order. */
+    private final Counter[] alertCounters;
+
+    private final Counter cellHits;
+
+    private final Counter nearestHits;
+
+    private final Counter cellMisses;
+
+    private GeoCellIndex cellIndex;
+
     @Value("${spring.weather.api.url}")
     public String url;
 
@@ -41,9 +109,235 @@ public class WeatherService {
     @Value("${spring.weather.api.cnt}")
     public String cnt;
 
-    public WeatherService(List<WeatherCondition> weatherConditions, ApiUtils apiUtils) {
+    @Value("${spring.weather.geo.precision:6}")
+    public int geoPrecision = 6;
+
+    @Value("${spring.weather.geo.nearest-radius-meters:2000}")
+    public double nearestRadiusMeters = 2000;
+
+    public WeatherService(List<WeatherCondition> weatherConditions, ApiUtils apiUtils, ForecastCache forecastCache,
+                          MeterRegistry meterRegistry) {
+        if (weatherConditions.size() > Long.SIZE) {
+            throw new IllegalStateException(String.format("At most %d weather conditions are supported, found %d", Long.SIZE, weatherConditions.size()));
+        }
         this.weatherConditions = weatherConditions;
+        this.slotConditions = weatherConditions.stream().map(JsonConditionAdapter::adapt).toList();
         this.apiUtils = apiUtils;
+        this.forecastCache = forecastCache;
+        this.parseTimer = Timer.builder("weather.forecast.parse")
+                .description("Time to stream and parse an upstream forecast body")
+                .register(meterRegistry);
+        this.aggregateTimer = Timer.builder("weather.forecast.aggregate")
+                .description("Time to bucket forecast slots by day and evaluate conditions")
+                .register(meterRegistry);
+        this.slotCount = DistributionSummary.builder("weather.forecast.slots")
+                .description("Number of slots in the upstream forecast list")
+                .register(meterRegistry);
+        this.alertCounters = weatherConditions.stream()
+                .map(condition -> Counter.builder("weather.forecast.alerts")
+                        .description("Forecast days for which the condition raised its alert")
+                        .tag("condition", condition.getClass().getSimpleName())
+                        .register(meterRegistry))
+                .toArray(Counter[]::new);
+        this.cellHits = geoLookups(meterRegistry, "cell");
+        this.nearestHits = geoLookups(meterRegistry, "nearest");
+        this.cellMisses = geoLookups(meterRegistry, "miss");
+        Gauge.builder("weather.geo.cells", this, service -> service.cellIndex == null ? 0 : service.cellIndex.size())
+                .description("Grid cells with a cached forecast in the spatial index")
+                .register(meterRegistry);
+        forecastCache.addListener(this::evicted);
+    }
+
+    @Autowired(required = false)
+    public void setNegativeCache(NegativeCache negativeCache) {
+        this.negativeCache = negativeCache;
+    }
+
+    @Autowired(required = false)
+    public void setCityDirectory(CityDirectory cityDirectory) {
+        this.cityDirectory = cityDirectory;
+    }
+
+    @Autowired(required = false)
+    public void setAlertRuleEngine(AlertRuleEngine alertRuleEngine) {
+        this.alertRuleEngine = alertRuleEngine;
+    }
+
+    @PostConstruct
+    public void init() {
+        cellIndex = new GeoCellIndex(geoPrecision, nearestRadiusMeters);
+    }
+
+    /**
+     * Returns the weather forecast for a city, served from {@link ForecastCache} when a
+     * fresh (or stale-while-revalidate) entry exists and fetched from the external API otherwise.
+     * Concurrent misses for the same city share one upstream call; a caller that waits on it for
+     * too long, or past its deadline, gets a "503" response. A "503" (upstream unreachable or throttling, circuit breaker open,
+     * bulkhead full or call shed by the rate limiter) is replaced by the last known good forecast, flagged as stale, when one is cached.
+     * Cities the upstream recently answered with "404" get a "404" without an upstream call, see {@link NegativeCache}.
+     *
+     * No thread waits for the upstream: the future completes on the thread that finished the upstream call.
+     *
+     * @param city          The name of the city for which to retrieve weather forecast
+     * @param deadlineNanos {@link System#nanoTime()} after which no upstream attempt is started and the lookup
+     *                      gives up, see {@link #deadline(Long)}
+     * @return WeatherResponse object, see {@link #fetchWeatherForecast(String)}
+     */
+    public CompletableFuture<WeatherResponse> getWeatherForecastAsync(String city, long deadlineNanos){
+        String key = ForecastCache.normalize(city);
+        WeatherResponse notFound = knownMissing(key, city);
+        if(notFound != null) return CompletableFuture.completedFuture(notFound);
+        return within(forecastCache.getAsync(key, () -> fetchAsync(city, "q=" + city, deadlineNanos)), deadlineNanos)
+                .exceptionally(e -> timedOut(city, e))
+                .thenApply(wr -> {
+                    recordMissing(key, wr);
+                    return withLastKnownGood(key, city, wr);
+                });
+    }
+
+    /**
+     * Blocking variant of {@link #getWeatherForecastAsync(String, long)} with the default deadline.
+     */
+    public WeatherResponse getWeatherForecast(String city){
+        return await(getWeatherForecastAsync(city, deadline(null)));
+    }
+
+    /**
+     * Returns the weather forecast for coordinates. They are snapped to a geohash cell of
+     * {@code geo.precision} characters, and the forecast is fetched for the cell's centre and cached
+     * and shared by the cell, so nearby callers share one upstream call and cache entry.
+     *
+     * When the cell has no servable entry, a fresh forecast of another cell whose centre is within
+     * {@code geo.nearest-radius-meters} of the coordinates is returned instead, nearest first, without
+     * an upstream call.
+     *
+     * @return WeatherResponse object, see {@link #fetchWeatherForecast(String)}; the city is the
+     *         "lat,lon" centre of the cell the forecast was fetched for
+     */
+    public CompletableFuture<WeatherResponse> getWeatherForecastAsync(double lat, double lon, long deadlineNanos){
+        String cell = cellIndex.cell(lat, lon);
+        String key = CELL_KEY_PREFIX + cell;
+        CachedForecast entry = forecastCache.getEntry(key);
+        if(entry != null && forecastCache.isServable(entry)){
+            cellHits.increment();
+            cellIndex.add(cell);
+        }else{
+            CachedForecast nearest = nearestFresh(lat, lon);
+            if(nearest != null){
+                nearestHits.increment();
+                return CompletableFuture.completedFuture(nearest.getResponse());
+            }
+            cellMisses.increment();
+        }
+        return within(forecastCache.getAsync(key, () -> fetchCellForecast(cell, deadlineNanos)), deadlineNanos)
+                .exceptionally(e -> timedOut(label(cell), e))
+                .thenApply(wr -> withLastKnownGood(key, label(cell), wr));
+    }
+
+    /**
+     * Blocking variant of {@link #getWeatherForecastAsync(double, double, long)} with the default deadline.
+     */
+    public WeatherResponse getWeatherForecast(double lat, double lon){
+        return await(getWeatherForecastAsync(lat, lon, deadline(null)));
+    }
+
+    /**
+     * Returns the weather forecast for a city of the {@link CityDirectory} by its OpenWeatherMap id,
+     * cached and fetched under that id, so every spelling resolved to the city shares one entry.
+     *
+     * @return WeatherResponse object, see {@link #fetchWeatherForecast(String)}, with the city's
+     *         "name, state, country" label as city; a "404" without an upstream call for unknown ids
+     */
+    public CompletableFuture<WeatherResponse> getWeatherForecastByIdAsync(int id, long deadlineNanos){
+        CitySuggestion city = cityDirectory == null ? null : cityDirectory.get(id);
+        if(city == null) return CompletableFuture.completedFuture(notFound(String.valueOf(id)));
+        String key = cityIdKey(id);
+        String label = CityDirectory.label(city);
+        return within(forecastCache.getAsync(key, () -> fetchAsync(label, "id=" + id, deadlineNanos)), deadlineNanos)
+                .exceptionally(e -> timedOut(label, e))
+                .thenApply(wr -> withLastKnownGood(key, label, wr));
+    }
+
+    /**
+     * Blocking variant of {@link #getWeatherForecastByIdAsync(int, long)} with the default deadline.
+     */
+    public WeatherResponse getWeatherForecastById(int id){
+        return await(getWeatherForecastByIdAsync(id, deadline(null)));
+    }
+
+    /**
+     * @param budgetMs the caller's remaining time budget, or null if it has none
+     * @return the deadline of a lookup starting now, at most {@code spring.weather.retry.deadline-ms} away
+     */
+    public long deadline(Long budgetMs){
+        return apiUtils.deadlineWithin(budgetMs);
+    }
+
+    /**
+     * Fetches the forecast for a city of the {@link CityDirectory} by id and replaces its cache entry.
+     *
+     * @return the fetched response, see {@link #getWeatherForecastById(int)}
+     */
+    public WeatherResponse refreshWeatherForecastById(int id){
+        CitySuggestion city = cityDirectory == null ? null : cityDirectory.get(id);
+        if(city == null) return notFound(String.valueOf(id));
+        String label = CityDirectory.label(city);
+        return forecastCache.refresh(cityIdKey(id), () -> await(fetchAsync(label, "id=" + id, deadline(null))));
+    }
+
+    /**
+     * @return the cache key of forecasts looked up by city id
+     */
+    public static String cityIdKey(int id){
+        return CITY_ID_KEY_PREFIX + id;
+    }
+
+    /**
+     * @return true if the cache key was made by {@link #cityIdKey(int)}
+     */
+    public static boolean isCityIdKey(String key){
+        return key.startsWith(CITY_ID_KEY_PREFIX);
+    }
+
+    /**
+     * @return the cache entry for the city id without loading it, or null
+     */
+    public CachedForecast getCachedForecastById(int id){
+        return forecastCache.getEntry(cityIdKey(id));
+    }
+
+    /**
+     * @return the cache entry for the city without loading it, or null
+     */
+    public CachedForecast getCachedForecast(String city){
+        return forecastCache.getEntry(ForecastCache.normalize(city));
+    }
+
+    /**
+     * @return the servable cache entry of the coordinates' cell, else the nearest fresh one within
+     *         the radius, else null; see {@link #getWeatherForecast(double, double)}
+     */
+    public CachedForecast getCachedForecast(double lat, double lon){
+        CachedForecast entry = forecastCache.getEntry(CELL_KEY_PREFIX + cellIndex.cell(lat, lon));
+        if(entry != null && forecastCache.isServable(entry)) return entry;
+        return nearestFresh(lat, lon);
+    }
+
+    /**
+     * @return whole seconds the cached entry stays fresh, 0 once it is stale
+     */
+    public long freshSeconds(CachedForecast entry){
+        return TimeUnit.MILLISECONDS.toSeconds(forecastCache.remainingFreshMillis(entry));
+    }
+
+    /**
+     * Fetches the forecast for a city from the external API and replaces its cache entry,
+     * used to refresh popular cities ahead of expiry.
+     *
+     * @return the fetched response, see {@link #fetchWeatherForecast(String)}
+     */
+    public WeatherResponse refreshWeatherForecast(String city){
+        return forecastCache.refresh(ForecastCache.normalize(city), () -> fetchWeatherForecast(city));
     }
 
     /**
@@ -59,79 +353,351 @@ public class WeatherService {
      *         - Message (error message if applicable)
      * @throws CustomRuntimeException if an unexpected runtime error occurs during API call
      */
-    public WeatherResponse getWeatherForecast(String city){
+    public WeatherResponse fetchWeatherForecast(String city){
+        return await(fetchAsync(city, "q=" + city, deadline(null)));
+    }
 
-        String req = url + "?q=" + city + "&appid=" + key + "&cnt=" + cnt;
-        WeatherResponse wr =  new WeatherResponse();
-        wr.setCity(city);
+    /**
+     * Fetches the forecast for the centre of a geohash cell and indexes the cell when it succeeded.
+     */
+    CompletableFuture<WeatherResponse> fetchCellForecast(String cell, long deadlineNanos){
+        double[] centre = Geohash.decode(cell);
+        return fetchAsync(label(cell), String.format(Locale.ROOT, "lat=%.6f&lon=%.6f", centre[0], centre[1]), deadlineNanos)
+                .thenApply(wr -> {
+                    if("200".equals(wr.getCod())) cellIndex.add(cell);
+                    return wr;
+                });
+    }
 
-        String res = null;
+    private CompletableFuture<WeatherResponse> fetchAsync(String city, String query, long deadlineNanos){
+
+        String req = url + "?" + query + "&appid=" + key + "&cnt=" + cnt;
+
+        CompletableFuture<ForecastPayload> payload;
         try{
-            res = apiUtils.callGetApiWithRetry(req);
-        }catch (RestClientResponseException e){
-           String resBody = e.getResponseBodyAsString();
-           JsonObject jsonObject = new Gson().fromJson(resBody, JsonObject.class);
-           wr.setCod(jsonObject.get("cod").getAsString());
-           wr.setMessage(jsonObject.get("message").getAsString());
-           return wr;
-        }catch (ResourceAccessException e){
-            log.warn("Resource Access Exception Occurred: ", e);
-            wr.setCod("503");
-            wr.setMessage(Message.SERVICE_UNAVAILABLE);
-            return wr;
+            payload = apiUtils.callGetApiAsync(req, response -> parse(response.getBody()), deadlineNanos);
         }catch (RuntimeException e){
-            throw new CustomRuntimeException(String.format("A runtime exception occurred while invoking apiUtils.callGetApiWithRetry: %s", e.getMessage()), e.getCause());
+            payload = CompletableFuture.failedFuture(e);
         }
-        JsonObject jsonObject = new Gson().fromJson(res, JsonObject.class);
-        wr.setCod(jsonObject.get("cod").getAsString());
-        wr.setMessage(jsonObject.get("message").getAsString());
+        return payload.handle((parsed, error) -> error == null ? toResponse(city, parsed) : failed(city, unwrap(error)));
+    }
 
-        JsonArray list = jsonObject.getAsJsonArray("list");
-        if(list == null){
+    /**
+     * @return the response for a failed upstream call: the upstream's error body, or a "503" when the upstream
+     *         could not be reached (in time) or the call was not permitted
+     * @throws CustomRuntimeException for any other failure
+     */
+    private static WeatherResponse failed(String city, Throwable error){
+        if(error instanceof RestClientResponseException e){
+            if(e.getStatusCode().value() == 429) return throttled(city, e);
+            return errorResponse(city, e.getResponseBodyAsString());
+        }
+        if(error instanceof CallNotPermittedException || error instanceof BulkheadFullException || error instanceof UpstreamRateLimitedException){
+            log.debug("Upstream call not permitted: {}", error.getMessage());
+            return unavailable(city);
+        }
+        if(error instanceof ResourceAccessException){
+            log.warn("Resource Access Exception Occurred: ", error);
+            return unavailable(city);
+        }
+        if(error instanceof TimeoutException){
+            log.warn("Deadline exceeded fetching forecast for {}", city);
+            return unavailable(city);
+        }
+        throw new CustomRuntimeException(String.format("A runtime exception occurred while invoking apiUtils.callGetApiAsync: %s", error.getMessage()), error);
+    }
+
+    /**
+     * Parses an upstream forecast body, recording the time in {@code weather.forecast.parse}.
+     */
+    ForecastPayload parse(InputStream body) throws IOException {
+        long start = System.nanoTime();
+        ForecastPayload parsed = ForecastParser.parse(body);
+        parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return parsed;
+    }
+
+    /**
+     * @return the response for a parsed upstream forecast, aggregated by day when it has a {@code list}
+     */
+    WeatherResponse toResponse(String city, ForecastPayload payload){
+        WeatherResponse wr =  new WeatherResponse();
+        wr.setCity(city);
+        wr.setCityId(payload.getCityId());
+        wr.setCod(payload.getCod());
+        wr.setMessage(payload.getMessage());
+
+        if(!payload.hasList()){
            return wr;
         }
 
-        Map<String, ForecastData> forecastMap = new HashMap<>();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        list.forEach(jsonElement -> {
-            JsonObject jo = jsonElement.getAsJsonObject();
-            String dateStr = dateFormat.format(new Date(jo.get("dt").getAsLong() * 1000));
+        slotCount.record(payload.size());
+        wr.setForecastData(aggregateTimer.record(() -> aggregate(payload)));
+        return wr;
+    }
 
-            ForecastData dayData = forecastMap.computeIfAbsent(dateStr, k -> new ForecastData());
-            double temp =  jo.get("main").getAsJsonObject().get("temp").getAsDouble();
-            dayData.setMax_temp(Math.max(dayData.getMax_temp(), temp));
-            dayData.setMin_temp(Math.min(dayData.getMin_temp(), temp));
-            this.updateAlerts(jo, dayData);
+    /**
+     * @return the response carrying {@code cod} and {@code message} of an upstream error body
+     */
+    static WeatherResponse errorResponse(String city, String body){
+        JsonObject jsonObject = GSON.fromJson(body, JsonObject.class);
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod(jsonObject.get("cod").getAsString());
+        wr.setMessage(jsonObject.get("message").getAsString());
+        return wr;
+    }
 
+    /**
+     * @return a "503" for a 429 from the upstream, so that the last known good forecast is served instead
+     */
+    static WeatherResponse throttled(String city, RestClientResponseException e){
+        log.warn("Upstream throttled the request for {}: {}", city, e.getStatusText());
+        return unavailable(city);
+    }
 
-        });
+    /**
+     * @return a "404" when the key has no cache entry and the negative cache holds it, else null
+     */
+    WeatherResponse knownMissing(String key, String city){
+        if(negativeCache == null || forecastCache.getEntry(key) != null || !negativeCache.isKnownMissing(key)) return null;
+        return notFound(city);
+    }
 
-        List<ForecastData> forecastData = forecastMap.entrySet().
-                                    stream().sorted(Map.Entry.comparingByKey()).
-                                    limit(4).
-                                    map(entry -> new ForecastData(
-                                            Math.round(entry.getValue().getMin_temp()),
-                                            Math.round(entry.getValue().getMax_temp()) ,
-                                            entry.getKey(),
-                                            entry.getValue().getAlerts())).
-                                    skip(1).
-                                    toList();
+    static WeatherResponse notFound(String city){
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod("404");
+        wr.setMessage(Message.CITY_NOT_FOUND);
+        return wr;
+    }
 
+    /**
+     * Adds the key to the negative cache when the upstream answered "404" for it.
+     */
+    void recordMissing(String key, WeatherResponse wr){
+        if(negativeCache != null && "404".equals(wr.getCod())) negativeCache.add(key);
+    }
 
+    static WeatherResponse unavailable(String city){
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod("503");
+        wr.setMessage(Message.SERVICE_UNAVAILABLE);
+        return wr;
+    }
 
-        wr.setForecastData(forecastData);
+    /**
+     * @return a stale copy of the last known good forecast when {@code wr} is a "503" and one is cached, else {@code wr}
+     */
+    WeatherResponse withLastKnownGood(String key, String city, WeatherResponse wr){
+        if("503".equals(wr.getCod())){
+            WeatherResponse lastKnownGood = forecastCache.getLastKnownGood(key);
+            if(lastKnownGood != null) return staleCopy(lastKnownGood, city);
+        }
         return wr;
     }
 
-    private void updateAlerts(JsonObject jsonObject, ForecastData dayData){
-        List<String> alerts = dayData.getAlerts();
-        for(WeatherCondition wc : weatherConditions){
-            if(wc.isApplicable(jsonObject)){
-                String alert = wc.getAlert();
-                if(!alerts.contains(alert)) alerts.add(alert);
+    /**
+     * Groups the forecast slots by the city's local day into min/max temperatures and alerts,
+     * dropping the first day (today) and keeping the next {@link #FORECAST_DAYS}.
+     *
+     * A slot's day is the integer {@code floorDiv(dt + city.timezone, 86400)}. The first pass finds the
+     * earliest {@code FORECAST_DAYS + 1} distinct days, the second accumulates into primitive arrays
+     * indexed by their position; slots of other days are not evaluated at all.
+     *
+     * Alerts come from the condition beans, then from the configured rules of the
+     * {@link AlertRuleEngine}; the rule set is read once, so a reload never splits a forecast.
+     *
+     * @param payload parsed upstream forecast with a {@code list}
+     * @return one ForecastData per day, in date order
+     */
+    public List<ForecastData> aggregate(ForecastPayload payload){
+        int offset = payload.getTimezoneOffsetSeconds();
+        long[] days = new long[FORECAST_DAYS + 1];
+        int dayCount = 0;
+        for (int i = 0; i < payload.size(); i++) {
+            dayCount = insertDay(days, dayCount, localDay(payload.dt(i), offset));
+        }
+
+        double[] minTemp = new double[dayCount];
+        double[] maxTemp = new double[dayCount];
+        long[] alertMask = new long[dayCount];
+        long[] ruleMask = new long[dayCount];
+        AlertRuleSet rules = alertRuleEngine == null ? AlertRuleSet.EMPTY : alertRuleEngine.current();
+        long conditions = enabledConditions(rules);
+        Arrays.fill(minTemp, Double.MAX_VALUE);
+        Arrays.fill(maxTemp, -Double.MAX_VALUE);
+        for (int i = 0; i < payload.size(); i++) {
+            int day = indexOf(days, dayCount, localDay(payload.dt(i), offset));
+            if (day < 1) continue;
+            double temp = payload.temp(i);
+            if (temp > maxTemp[day]) maxTemp[day] = temp;
+            if (temp < minTemp[day]) minTemp[day] = temp;
+            ForecastSlot slot = payload.slot(i);
+            alertMask[day] |= this.alertMask(slot, conditions);
+            if (rules.size() > 0) ruleMask[day] |= rules.mask(slot);
+        }
+
+        List<ForecastData> forecastData = new ArrayList<>(Math.max(dayCount - 1, 0));
+        for (int day = 1; day < dayCount; day++) {
+            forecastData.add(new ForecastData(
+                    Math.round(minTemp[day]),
+                    Math.round(maxTemp[day]),
+                    LocalDate.ofEpochDay(days[day]).toString(),
+                    this.alerts(alertMask[day], ruleMask[day], rules)));
+        }
+        return forecastData;
+    }
+
+    /**
+     * @return the fresh entry of the nearest indexed cell within the radius, dropping cells whose entry was evicted
+     */
+    private CachedForecast nearestFresh(double lat, double lon){
+        for(String cell : cellIndex.nearest(lat, lon)){
+            CachedForecast entry = forecastCache.getEntry(CELL_KEY_PREFIX + cell);
+            if(entry == null){
+                cellIndex.remove(cell);
+            }else if(forecastCache.remainingFreshMillis(entry) > 0){
+                return entry;
             }
         }
+        return null;
+    }
+
+    /**
+     * Keeps the spatial index to the cells that have a cached forecast: a cell leaves it with its entry.
+     */
+    private void evicted(String key, CachedForecast entry){
+        if(entry == null && cellIndex != null && key.startsWith(CELL_KEY_PREFIX)){
+            cellIndex.remove(key.substring(CELL_KEY_PREFIX.length()));
+        }
+    }
+
+    private static String label(String cell){
+        double[] centre = Geohash.decode(cell);
+        return String.format(Locale.ROOT, "%.5f,%.5f", centre[0], centre[1]);
+    }
+
+    private static Counter geoLookups(MeterRegistry meterRegistry, String outcome){
+        return Counter.builder("weather.geo.lookups")
+                .description("Forecast lookups by coordinates, by where the forecast came from")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static long localDay(long dt, int offsetSeconds){
+        return Math.floorDiv(dt + offsetSeconds, SECONDS_PER_DAY);
+    }
+
+    /**
+     * Inserts the day into the sorted array of the smallest distinct days seen so far,
+     * dropping the largest when it is full.
+     *
+     * @return the new number of days in the array
+     */
+    private static int insertDay(long[] days, int count, long day){
+        int pos = count;
+        while (pos > 0 && days[pos - 1] > day) pos--;
+        if (pos > 0 && days[pos - 1] == day) return count;
+        if (pos == days.length) return count;
+        int end = Math.min(count, days.length - 1);
+        System.arraycopy(days, pos, days, pos + 1, end - pos);
+        days[pos] = day;
+        return end + 1;
+    }
+
+    private static int indexOf(long[] days, int count, long day){
+        for (int i = 0; i < count; i++) {
+            if (days[i] == day) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return a bitmask with bit {@code i} set for each condition bean not replaced by a rule of the same name
+     */
+    private long enabledConditions(AlertRuleSet rules){
+        long enabled = slotConditions.size() == Long.SIZE ? -1L : (1L << slotConditions.size()) - 1;
+        if(rules.size() == 0) return enabled;
+        for(int i = 0; i < weatherConditions.size(); i++){
+            if(rules.defines(weatherConditions.get(i).getClass().getSimpleName())) enabled &= ~(1L << i);
+        }
+        return enabled;
+    }
+
+    /**
+     * @return a bitmask with bit {@code i} set when {@code slotConditions.get(i)} is enabled and applies to the slot
+     */
+    private long alertMask(ForecastSlot slot, long enabled){
+        long mask = 0;
+        for(int i = 0; i < slotConditions.size(); i++){
+            if((enabled & 1L << i) != 0 && slotConditions.get(i).isApplicable(slot)) mask |= 1L << i;
+        }
+        return mask;
+    }
+
+    private List<String> alerts(long alertMask, long ruleMask, AlertRuleSet rules){
+        List<String> alerts = new ArrayList<>(Long.bitCount(alertMask) + Long.bitCount(ruleMask));
+        for(long mask = alertMask; mask != 0; mask &= mask - 1){
+            int condition = Long.numberOfTrailingZeros(mask);
+            alertCounters[condition].increment();
+            alerts.add(slotConditions.get(condition).getAlert());
+        }
+        for(long mask = ruleMask; mask != 0; mask &= mask - 1){
+            int rule = Long.numberOfTrailingZeros(mask);
+            rules.count(rule);
+            alerts.add(rules.get(rule).getAlert());
+        }
+        return alerts;
+    }
+
+    /**
+     * Fails the lookup with a {@link TimeoutException} if it is still running at the deadline.
+     */
+    private static CompletableFuture<WeatherResponse> within(CompletableFuture<WeatherResponse> lookup, long deadlineNanos){
+        return lookup.orTimeout(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return a "503" if the lookup gave up waiting for the call in flight or passed its deadline
+     * @throws CompletionException with the failure otherwise
+     */
+    private static WeatherResponse timedOut(String city, Throwable error){
+        Throwable cause = unwrap(error);
+        if(!(cause instanceof UpstreamTimeoutException) && !(cause instanceof TimeoutException)){
+            throw error instanceof CompletionException e ? e : new CompletionException(cause);
+        }
+        log.warn("Gave up waiting for forecast of {}: {}", city, cause.toString());
+        return unavailable(city);
+    }
+
+    /**
+     * Waits for a lookup, rethrowing its failure as it was thrown.
+     */
+    private static WeatherResponse await(CompletableFuture<WeatherResponse> lookup){
+        try{
+            return lookup.join();
+        }catch (CompletionException e){
+            if(e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
     }
 
+    private static Throwable unwrap(Throwable error){
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static WeatherResponse staleCopy(WeatherResponse lastKnownGood, String city){
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod(lastKnownGood.getCod());
+        wr.setMessage(Message.STALE_DATA);
+        wr.setForecastData(lastKnownGood.getForecastData());
+        wr.setStale(true);
+        return wr;
+    }
+
+
 
 }
@@ -1,41 +1,128 @@
 package com.weather.prediction.utils;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Component
 public class ApiUtils {
 
     private final RestTemplate restTemplate;
 
-    public ApiUtils(RestTemplate restTemplate) {
+    private final AsyncRetry asyncRetry;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final MeterRegistry meterRegistry;
+
+    private UpstreamRateLimiter rateLimiter;
+
+    public ApiUtils(RestTemplate restTemplate, AsyncRetry asyncRetry, CircuitBreaker circuitBreaker,
+                    @Qualifier("upstreamBulkhead") Bulkhead bulkhead, MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.asyncRetry = asyncRetry;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
     }
 
-    @Retryable(
-            value = {ResourceAccessException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 2000)
-    )
-    public String callGetApiWithRetry(String url) throws RestClientException {
-        return restTemplate.getForObject(url, String.class);
+    @Autowired(required = false)
+    public void setRateLimiter(UpstreamRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
     }
 
     public String callGetApi(String url) throws RestClientException{
         return restTemplate.getForObject(url, String.class);
     }
 
+    /**
+     * @param budgetMs the caller's remaining time budget, or null if it has none
+     * @return the deadline to pass to {@link #callGetApiAsync(String, ResponseExtractor, long)} for a call
+     *         starting now, see {@link AsyncRetry#deadlineWithin(Long)}
+     */
+    public long deadlineWithin(Long budgetMs) {
+        return asyncRetry.deadlineWithin(budgetMs);
+    }
 
+    /**
+     * Calls the API asynchronously, handing the response body stream to the extractor instead of
+     * buffering it into a String, and retrying I/O failures ({@link ResourceAccessException}) with
+     * exponential backoff and jitter until {@code deadlineNanos}. No thread waits for the result; at the
+     * deadline the future fails with a {@link TimeoutException}.
+     *
+     * Every attempt goes through the upstream bulkhead and circuit breaker. While the breaker is
+     * open the returned future fails immediately with {@link CallNotPermittedException}, and a full
+     * bulkhead fails the attempt with {@link BulkheadFullException}; neither is retried.
+     * The latency of each attempt that reaches the upstream is recorded in {@code weather.upstream.latency},
+     * tagged with its outcome, see {@link #outcome(Throwable)}.
+     *
+     * With an {@link UpstreamRateLimiter}, each attempt first waits for a permit at the caller's
+     * {@link UpstreamPriority#current() priority}, without holding a thread; a shed attempt fails with
+     * {@link com.weather.prediction.exception.UpstreamRateLimitedException} and is not retried. A call
+     * whose deadline passes while it waits gives up its place in the queue and never reaches the upstream.
+     */
+    public <T> CompletableFuture<T> callGetApiAsync(String url, ResponseExtractor<T> extractor, long deadlineNanos) {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            return CompletableFuture.failedFuture(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+        }
+        UpstreamPriority priority = UpstreamPriority.current();
+        Supplier<T> call = Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker,
+                () -> timed(() -> restTemplate.execute(url, HttpMethod.GET, null, extractor))));
+        if (rateLimiter == null) return asyncRetry.execute(call, ResourceAccessException.class::isInstance, deadlineNanos);
+        return asyncRetry.execute(() -> rateLimiter.acquire(priority), call, ResourceAccessException.class::isInstance, deadlineNanos);
+    }
 
+    private <T> T timed(Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "200";
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            if ("429".equals(outcome) && rateLimiter != null) rateLimiter.throttled();
+            throw e;
+        } finally {
+            Timer.builder("weather.upstream.latency")
+                    .description("Latency of upstream attempts, including reading the body")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
-
-
-
+    /**
+     * Outcome tag of a failed attempt: the status code for 4xx responses, "5xx" for server errors,
+     * "timeout" for connect/read timeouts and "io_error" for other I/O failures.
+     */
+    static String outcome(Throwable error) {
+        if (error instanceof RestClientResponseException e) {
+            return e.getStatusCode().is5xxServerError() ? "5xx" : String.valueOf(e.getStatusCode().value());
+        }
+        if (error instanceof ResourceAccessException) {
+            Throwable cause = error.getCause();
+            return cause instanceof InterruptedIOException || cause instanceof HttpTimeoutException ? "timeout" : "io_error";
+        }
+        return "error";
+    }
 }
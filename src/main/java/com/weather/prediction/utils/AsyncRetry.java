@@ -0,0 +1,196 @@
+package com.weather.prediction.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Retries a call asynchronously with exponential backoff and full jitter
+ * (delay = random(0, min(max-backoff, initial-backoff * multiplier^(attempt-1)))).
+ *
+ * Backoff is a scheduled continuation, not a sleeping thread, and no attempt is started
+ * once the next delay would run past the caller's deadline; the returned future itself
+ * completes exceptionally with a {@link java.util.concurrent.TimeoutException} at the deadline.
+ * An attempt may first wait for a permit, e.g. from the {@link UpstreamRateLimiter}; that wait holds
+ * no thread either, and is abandoned once the future completes.
+ */
+@Component
+@Slf4j
+public class AsyncRetry {
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    @Value("${spring.weather.retry.max-attempts:3}")
+    public int maxAttempts = 3;
+
+    @Value("${spring.weather.retry.initial-backoff-ms:200}")
+    public long initialBackoffMs = 200;
+
+    @Value("${spring.weather.retry.max-backoff-ms:2000}")
+    public long maxBackoffMs = 2000;
+
+    @Value("${spring.weather.retry.multiplier:2.0}")
+    public double multiplier = 2.0;
+
+    @Value("${spring.weather.retry.deadline-ms:8000}")
+    public long deadlineMs = 8000;
+
+    private final Executor executor;
+
+    private final Counter retries;
+
+    private final Counter exhaustedAttempts;
+
+    private final Counter exhaustedDeadline;
+
+    private final Timer backoff;
+
+    public AsyncRetry(@Qualifier("upstreamExecutor") Executor executor, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.retries = Counter.builder("weather.upstream.retries")
+                .description("Upstream attempts scheduled after a retryable failure")
+                .register(meterRegistry);
+        this.exhaustedAttempts = exhausted(meterRegistry, "attempts");
+        this.exhaustedDeadline = exhausted(meterRegistry, "deadline");
+        this.backoff = Timer.builder("weather.upstream.backoff")
+                .description("Time spent waiting between upstream attempts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the absolute deadline ({@link System#nanoTime()} based) for a call starting now
+     */
+    public long deadlineFromNow() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+    }
+
+    /**
+     * @param budgetMs the caller's remaining time budget, or null if it has none
+     * @return the absolute deadline ({@link System#nanoTime()} based) for a call starting now: the caller's budget,
+     *         capped at {@code deadline-ms}
+     */
+    public long deadlineWithin(Long budgetMs) {
+        if (budgetMs == null) return deadlineFromNow();
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(budgetMs, deadlineMs)));
+    }
+
+    /**
+     * Runs the call on the upstream executor, retrying failures accepted by {@code retryable}.
+     *
+     * @param call          one attempt
+     * @param retryable     which failures are worth another attempt
+     * @param deadlineNanos {@link System#nanoTime()} after which no attempt is started and the future times out
+     */
+    public <T> CompletableFuture<T> execute(Supplier<T> call, Predicate<Throwable> retryable, long deadlineNanos) {
+        return execute(() -> GRANTED, call, retryable, deadlineNanos);
+    }
+
+    /**
+     * Same as {@link #execute(Supplier, Predicate, long)}, but each attempt is made only once the
+     * future returned by {@code permit} completes, and fails with its cause if it fails. When the
+     * returned future completes first, e.g. at the deadline, the pending permit is cancelled and
+     * the call is not made.
+     *
+     * @param permit requests the permit for one attempt
+     */
+    public <T> CompletableFuture<T> execute(Supplier<? extends CompletableFuture<?>> permit, Supplier<T> call,
+                                            Predicate<Throwable> retryable, long deadlineNanos) {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            exhaustedDeadline.increment();
+            return CompletableFuture.failedFuture(new TimeoutException("Deadline passed before the first attempt"));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(permit, call, retryable, deadlineNanos, 1, Runnable::run, result);
+        return result.orTimeout(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Full-jitter delay before the given (1-based) retry.
+     */
+    public long backoffMs(int retry) {
+        double ceiling = Math.min(maxBackoffMs, initialBackoffMs * Math.pow(multiplier, retry - 1));
+        return (long) (ThreadLocalRandom.current().nextDouble() * ceiling);
+    }
+
+    /**
+     * Requests the permit on {@code permitExecutor}, then runs the call on the upstream executor.
+     */
+    private <T> void attempt(Supplier<? extends CompletableFuture<?>> permit, Supplier<T> call, Predicate<Throwable> retryable,
+                             long deadlineNanos, int attempt, Executor permitExecutor, CompletableFuture<T> result) {
+        permitExecutor.execute(() -> {
+            if (result.isDone()) return;
+            CompletableFuture<?> granted;
+            try {
+                granted = permit.get();
+            } catch (RuntimeException e) {
+                granted = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<?> pending = granted;
+            result.whenComplete((value, error) -> pending.cancel(false));
+            pending.thenApplyAsync(ignored -> {
+                if (result.isDone()) throw new CompletionException(new TimeoutException("Call no longer awaited"));
+                return call.get();
+            }, executor).whenComplete((value, error) -> completed(permit, call, retryable, deadlineNanos, attempt, result, value, error));
+        });
+    }
+
+    private <T> void completed(Supplier<? extends CompletableFuture<?>> permit, Supplier<T> call, Predicate<Throwable> retryable,
+                               long deadlineNanos, int attempt, CompletableFuture<T> result, T value, Throwable error) {
+        if (result.isDone()) return;
+        if (error == null) {
+            result.complete(value);
+            return;
+        }
+        Throwable cause = unwrap(error);
+        if (!retryable.test(cause)) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        if (attempt >= maxAttempts) {
+            exhaustedAttempts.increment();
+            result.completeExceptionally(cause);
+            return;
+        }
+        long delayMs = backoffMs(attempt);
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) >= deadlineNanos) {
+            exhaustedDeadline.increment();
+            log.warn("Not retrying after attempt {}: next attempt would pass the deadline", attempt);
+            result.completeExceptionally(cause);
+            return;
+        }
+        retries.increment();
+        backoff.record(delayMs, TimeUnit.MILLISECONDS);
+        log.debug("Attempt {} failed ({}), retrying in {} ms", attempt, cause.toString(), delayMs);
+        attempt(permit, call, retryable, deadlineNanos, attempt + 1,
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, executor), result);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static Counter exhausted(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("weather.upstream.retries.exhausted")
+                .description("Upstream calls that failed after giving up on retrying")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,119 @@
+package com.weather.prediction.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter of strings, sized for {@code expectedInsertions} at the target false
+ * positive probability. {@link #mightContain(String)} never misses a key that was {@link #put(String)},
+ * and wrongly reports other keys with about that probability while no more than
+ * {@code expectedInsertions} keys were put.
+ *
+ * Safe for concurrent use without locking: bits are only ever set, with compare-and-set.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final long bits;
+
+    private final int hashes;
+
+    private final int expectedInsertions;
+
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    public BloomFilter(int expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions < 1) throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("falsePositiveProbability must be within (0, 1): " + falsePositiveProbability);
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64));
+        this.bits = words.length() * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * @return true if the key may have been put, false if it certainly was not
+     */
+    public boolean mightContain(String key) {
+        long hash1 = hash(key);
+        long hash2 = secondHash(hash1);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a bit changed, i.e. the key was certainly not in the filter before
+     */
+    public boolean put(String key) {
+        long hash1 = hash(key);
+        long hash2 = secondHash(hash1);
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = words.get(index)) & mask) == 0) {
+                if (words.compareAndSet(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        if (changed) insertions.incrementAndGet();
+        return changed;
+    }
+
+    /**
+     * @return the number of distinct keys put, undercounting keys that collided with earlier ones
+     */
+    public int insertions() {
+        return insertions.get();
+    }
+
+    /**
+     * @return true once more keys were put than the filter was sized for
+     */
+    public boolean isFull() {
+        return insertions.get() >= expectedInsertions;
+    }
+
+    /**
+     * @return the false positive probability expected for the current number of insertions
+     */
+    public double expectedFalsePositiveProbability() {
+        return Math.pow(1 - Math.exp(-(double) hashes * insertions.get() / bits), hashes);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long secondHash(long hash1) {
+        return mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,263 @@
+package com.weather.prediction.utils;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative ints in the layout of a Roaring bitmap: values are split by their high 16 bits
+ * into chunks, and each chunk is stored as a sorted {@code char[]} while it holds at most 4096
+ * values (2 bytes per value) or as a 65536-bit {@code long[]} above that (8 KB flat), whichever
+ * is smaller. A set of 10k city ids is one chunk of at most 20 KB, and unions of sparse sets
+ * only touch the values present.
+ *
+ * Not thread-safe.
+ */
+public class CompactBitmap {
+
+    /** Largest cardinality kept as a sorted array; above it the bitmap form is smaller. */
+    private static final int ARRAY_MAX = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 16 >>> 6;
+
+    /** High 16 bits of each chunk, sorted. */
+    private char[] highs = new char[0];
+
+    /** Per chunk: a sorted {@code char[]} of its first {@code cardinalities[i]} low bits, or a {@code long[]} bitmap. */
+    private Object[] chunks = new Object[0];
+
+    private int[] cardinalities = new int[0];
+
+    private int chunkCount;
+
+    /**
+     * @return true if the value was not in the set before
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int chunk = chunkIndex(high);
+        if (chunk < 0) {
+            chunk = -chunk - 1;
+            insertChunk(chunk, high);
+        }
+        Object container = chunks[chunk];
+        if (container instanceof long[] words) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) return false;
+            words[low >>> 6] |= bit;
+            cardinalities[chunk]++;
+            return true;
+        }
+        char[] values = (char[]) container;
+        int size = cardinalities[chunk];
+        int position = Arrays.binarySearch(values, 0, size, low);
+        if (position >= 0) return false;
+        position = -position - 1;
+        if (size == ARRAY_MAX) {
+            long[] words = toWords(values, size);
+            words[low >>> 6] |= 1L << low;
+            chunks[chunk] = words;
+        } else {
+            if (size == values.length) chunks[chunk] = values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, size * 2)));
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = low;
+        }
+        cardinalities[chunk]++;
+        return true;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    public boolean remove(int value) {
+        if (value < 0) return false;
+        int chunk = chunkIndex((char) (value >>> 16));
+        if (chunk < 0) return false;
+        char low = (char) value;
+        Object container = chunks[chunk];
+        int size = cardinalities[chunk];
+        if (container instanceof long[] words) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) return false;
+            words[low >>> 6] &= ~bit;
+            if (--size == ARRAY_MAX) chunks[chunk] = toValues(words, size);
+        } else {
+            char[] values = (char[]) container;
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position < 0) return false;
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            if (--size < values.length >>> 2) chunks[chunk] = Arrays.copyOf(values, Math.max(4, size * 2));
+        }
+        cardinalities[chunk] = size;
+        if (size == 0) removeChunk(chunk);
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) return false;
+        int chunk = chunkIndex((char) (value >>> 16));
+        if (chunk < 0) return false;
+        char low = (char) value;
+        if (chunks[chunk] instanceof long[] words) return (words[low >>> 6] & 1L << low) != 0;
+        return Arrays.binarySearch((char[]) chunks[chunk], 0, cardinalities[chunk], low) >= 0;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < chunkCount; i++) cardinality += cardinalities[i];
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return chunkCount == 0;
+    }
+
+    /**
+     * @return the smallest value in the set that is at least {@code from}, or -1
+     */
+    public int nextValue(int from) {
+        if (from < 0) from = 0;
+        char fromHigh = (char) (from >>> 16);
+        int chunk = chunkIndex(fromHigh);
+        if (chunk < 0) chunk = -chunk - 1;
+        for (; chunk < chunkCount; chunk++) {
+            int low = nextLow(chunk, highs[chunk] == fromHigh ? from & 0xFFFF : 0);
+            if (low >= 0) return highs[chunk] << 16 | low;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds every value of the other set to this one, merging chunk by chunk: bitmaps are OR-ed word by
+     * word and arrays merged, so the cost is about the size of the containers rather than per value.
+     */
+    public void or(CompactBitmap other) {
+        for (int i = 0; i < other.chunkCount; i++) {
+            int chunk = chunkIndex(other.highs[i]);
+            if (chunk < 0) {
+                chunk = -chunk - 1;
+                insertChunk(chunk, other.highs[i]);
+                chunks[chunk] = other.chunks[i] instanceof long[] words ? words.clone()
+                        : Arrays.copyOf((char[]) other.chunks[i], other.cardinalities[i]);
+                cardinalities[chunk] = other.cardinalities[i];
+                continue;
+            }
+            if (other.chunks[i] instanceof long[] otherWords) {
+                long[] words = chunks[chunk] instanceof long[] own ? own : toWords((char[]) chunks[chunk], cardinalities[chunk]);
+                int cardinality = 0;
+                for (int word = 0; word < words.length; word++) {
+                    words[word] |= otherWords[word];
+                    cardinality += Long.bitCount(words[word]);
+                }
+                chunks[chunk] = words;
+                cardinalities[chunk] = cardinality;
+            } else if (chunks[chunk] instanceof long[] words) {
+                char[] values = (char[]) other.chunks[i];
+                int cardinality = cardinalities[chunk];
+                for (int j = 0; j < other.cardinalities[i]; j++) {
+                    long bit = 1L << values[j];
+                    if ((words[values[j] >>> 6] & bit) == 0) {
+                        words[values[j] >>> 6] |= bit;
+                        cardinality++;
+                    }
+                }
+                cardinalities[chunk] = cardinality;
+            } else {
+                mergeArrays(chunk, (char[]) other.chunks[i], other.cardinalities[i]);
+            }
+        }
+    }
+
+    /**
+     * @return approximate heap footprint of the containers in bytes
+     */
+    public long sizeInBytes() {
+        long bytes = 16L + 8L * chunkCount;
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += chunks[i] instanceof long[] words ? 16 + 8L * words.length : 16 + 2L * ((char[]) chunks[i]).length;
+        }
+        return bytes;
+    }
+
+    private int nextLow(int chunk, int fromLow) {
+        if (chunks[chunk] instanceof long[] words) {
+            int word = fromLow >>> 6;
+            long bits = words[word] & -1L << fromLow;
+            while (true) {
+                if (bits != 0) return word << 6 | Long.numberOfTrailingZeros(bits);
+                if (++word == words.length) return -1;
+                bits = words[word];
+            }
+        }
+        char[] values = (char[]) chunks[chunk];
+        int position = Arrays.binarySearch(values, 0, cardinalities[chunk], (char) fromLow);
+        if (position < 0) position = -position - 1;
+        return position < cardinalities[chunk] ? values[position] : -1;
+    }
+
+    private void mergeArrays(int chunk, char[] otherValues, int otherSize) {
+        char[] values = (char[]) chunks[chunk];
+        int size = cardinalities[chunk];
+        char[] merged = new char[size + otherSize];
+        int i = 0, j = 0, n = 0;
+        while (i < size && j < otherSize) {
+            if (values[i] < otherValues[j]) merged[n++] = values[i++];
+            else if (values[i] > otherValues[j]) merged[n++] = otherValues[j++];
+            else {
+                merged[n++] = values[i++];
+                j++;
+            }
+        }
+        while (i < size) merged[n++] = values[i++];
+        while (j < otherSize) merged[n++] = otherValues[j++];
+        chunks[chunk] = n > ARRAY_MAX ? toWords(merged, n) : merged;
+        cardinalities[chunk] = n;
+    }
+
+    private int chunkIndex(char high) {
+        return Arrays.binarySearch(highs, 0, chunkCount, high);
+    }
+
+    private void insertChunk(int position, char high) {
+        if (chunkCount == highs.length) {
+            int capacity = Math.max(1, chunkCount * 2);
+            highs = Arrays.copyOf(highs, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(highs, position, highs, position + 1, chunkCount - position);
+        System.arraycopy(chunks, position, chunks, position + 1, chunkCount - position);
+        System.arraycopy(cardinalities, position, cardinalities, position + 1, chunkCount - position);
+        highs[position] = high;
+        chunks[position] = new char[4];
+        cardinalities[position] = 0;
+        chunkCount++;
+    }
+
+    private void removeChunk(int position) {
+        System.arraycopy(highs, position + 1, highs, position, chunkCount - position - 1);
+        System.arraycopy(chunks, position + 1, chunks, position, chunkCount - position - 1);
+        System.arraycopy(cardinalities, position + 1, cardinalities, position, chunkCount - position - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    private static long[] toWords(char[] values, int size) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < size; i++) words[values[i] >>> 6] |= 1L << values[i];
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int size) {
+        char[] values = new char[size];
+        int n = 0;
+        for (int word = 0; word < words.length; word++) {
+            for (long bits = words[word]; bits != 0; bits &= bits - 1) values[n++] = (char) (word << 6 | Long.numberOfTrailingZeros(bits));
+        }
+        return values;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) throw new IllegalArgumentException("Bitmap values must not be negative: " + value);
+    }
+}
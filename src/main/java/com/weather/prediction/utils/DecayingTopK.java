@@ -0,0 +1,101 @@
+package com.weather.prediction.utils;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate "most requested recently" tracker: every key carries a count that halves every
+ * {@code halfLifeMillis}, so a city that was popular yesterday falls behind one that is
+ * popular now.
+ *
+ * At most {@code maxKeys} keys are tracked. When the table is full, keys not seen before are
+ * ignored until {@link #top(int)} prunes the coldest ones, so a key has to be requested
+ * again after a prune to get in. Each key also remembers a value (e.g. the city name as
+ * last requested).
+ */
+public class DecayingTopK<V> {
+
+    /** Time constant of the exponential decay: halfLife / ln 2. */
+    private final double tau;
+
+    private final int maxKeys;
+
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Score<V>> scores = new ConcurrentHashMap<>();
+
+    public DecayingTopK(long halfLifeMillis, int maxKeys, Clock clock) {
+        this.tau = halfLifeMillis / Math.log(2);
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts one occurrence of the key.
+     */
+    public void record(String key, V value) {
+        long now = clock.millis();
+        Score<V> score = scores.get(key);
+        if (score == null) {
+            if (scores.size() >= maxKeys) return;
+            score = scores.computeIfAbsent(key, k -> new Score<>());
+        }
+        score.add(tau, now, value);
+    }
+
+    /**
+     * @return up to {@code n} keys with the highest decayed counts, highest first. Keys ranked below
+     *         both {@code n} and half of {@code maxKeys} are pruned on the way.
+     */
+    public List<Entry<V>> top(int n) {
+        long now = clock.millis();
+        List<Entry<V>> entries = new ArrayList<>(scores.size());
+        for (Map.Entry<String, Score<V>> e : scores.entrySet()) {
+            entries.add(e.getValue().snapshot(e.getKey(), tau, now));
+        }
+        entries.sort(Comparator.comparingDouble((Entry<V> e) -> e.count).reversed());
+        int keep = Math.max(n, maxKeys / 2);
+        for (int i = keep; i < entries.size(); i++) {
+            scores.remove(entries.get(i).key);
+        }
+        return List.copyOf(entries.subList(0, Math.min(n, entries.size())));
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    /**
+     * A key, its value and its decayed count at the time {@link #top(int)} was called.
+     */
+    public record Entry<V>(String key, V value, double count) {
+    }
+
+    private static final class Score<V> {
+
+        private double count;
+
+        private long updatedAt;
+
+        private V value;
+
+        synchronized void add(double tau, long now, V value) {
+            count = decayed(tau, now) + 1;
+            updatedAt = now;
+            this.value = value;
+        }
+
+        synchronized Entry<V> snapshot(String key, double tau, long now) {
+            return new Entry<>(key, value, decayed(tau, now));
+        }
+
+        private double decayed(double tau, long now) {
+            if (count == 0) return 0;
+            return count * Math.exp(-(now - updatedAt) / tau);
+        }
+    }
+}
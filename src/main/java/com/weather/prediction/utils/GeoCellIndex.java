@@ -0,0 +1,112 @@
+package com.weather.prediction.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spatial index of {@link Geohash} cells, answering "which indexed cells have their centre within
+ * r meters of this point".
+ *
+ * Cells are grouped by the prefix of their hash at the longest precision whose cells are at least
+ * {@code radiusMeters} high, so a query only visits the few groups overlapping its bounding box
+ * (usually 4 to 9) instead of every indexed cell.
+ */
+public class GeoCellIndex {
+
+    private final int precision;
+
+    private final int bucketPrecision;
+
+    private final double radiusMeters;
+
+    /** Cell centres by cell, grouped by bucket prefix. */
+    private final ConcurrentHashMap<String, Map<String, double[]>> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    public GeoCellIndex(int precision, double radiusMeters) {
+        if (precision < 1 || precision > Geohash.MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + Geohash.MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.radiusMeters = radiusMeters;
+        int bucket = precision;
+        while (bucket > 1 && Geohash.cellHeightDegrees(bucket) * Geohash.metersPerDegree() < radiusMeters) bucket--;
+        this.bucketPrecision = bucket;
+    }
+
+    /**
+     * @return the hash of the cell the coordinates snap to
+     */
+    public String cell(double lat, double lon) {
+        return Geohash.encode(lat, lon, precision);
+    }
+
+    public void add(String cell) {
+        buckets.compute(cell.substring(0, bucketPrecision), (prefix, bucket) -> {
+            Map<String, double[]> cells = bucket != null ? bucket : new ConcurrentHashMap<>();
+            if (cells.putIfAbsent(cell, Geohash.decode(cell)) == null) size.incrementAndGet();
+            return cells;
+        });
+    }
+
+    /**
+     * Removes the cell, and its group once it has no cells left.
+     */
+    public void remove(String cell) {
+        buckets.computeIfPresent(cell.substring(0, bucketPrecision), (prefix, bucket) -> {
+            if (bucket.remove(cell) != null) size.decrementAndGet();
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the indexed cells whose centre is within {@code radiusMeters} of the coordinates, nearest first
+     */
+    public List<String> nearest(double lat, double lon) {
+        double dLat = radiusMeters / Geohash.metersPerDegree();
+        double dLon = Math.min(180, dLat / Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        double height = Geohash.cellHeightDegrees(bucketPrecision);
+        double width = Geohash.cellWidthDegrees(bucketPrecision);
+        int rows = (int) Math.ceil(2 * dLat / height) + 1;
+        int columns = (int) Math.min(Math.ceil(2 * dLon / width) + 1, Math.ceil(360 / width));
+
+        Set<String> prefixes = new HashSet<>();
+        for (int row = 0; row < rows; row++) {
+            double rowLat = Math.max(-90, Math.min(90, lat - dLat + Math.min(row * height, 2 * dLat)));
+            for (int column = 0; column < columns; column++) {
+                double columnLon = wrap(lon - dLon + Math.min(column * width, 2 * dLon));
+                prefixes.add(Geohash.encode(rowLat, columnLon, bucketPrecision));
+            }
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (String prefix : prefixes) {
+            Map<String, double[]> bucket = buckets.get(prefix);
+            if (bucket == null) continue;
+            for (Map.Entry<String, double[]> cell : bucket.entrySet()) {
+                double distance = Geohash.distanceMeters(lat, lon, cell.getValue()[0], cell.getValue()[1]);
+                if (distance <= radiusMeters) candidates.add(new Candidate(cell.getKey(), distance));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::distance));
+        return candidates.stream().map(Candidate::cell).toList();
+    }
+
+    private static double wrap(double lon) {
+        return ((lon + 180) % 360 + 360) % 360 - 180;
+    }
+
+    private record Candidate(String cell, double distance) {
+    }
+}
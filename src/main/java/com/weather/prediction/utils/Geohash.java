@@ -0,0 +1,116 @@
+package com.weather.prediction.utils;
+
+/**
+ * Geohash encoding of coordinates into grid cells. A hash of {@code precision} characters names a
+ * cell of {@code 5 * precision} bits, interleaved longitude first; every extra character splits a
+ * cell into 32, so cells of a shorter hash contain all cells it prefixes. At precision 6 a cell is
+ * about 1.2 km by 0.6 km at the equator, narrower towards the poles.
+ */
+public final class Geohash {
+
+    public static final int MAX_PRECISION = 12;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private Geohash() {
+    }
+
+    /**
+     * @return the hash of the cell containing the coordinates
+     */
+    public static String encode(double lat, double lon, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION + ": " + precision);
+        }
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean even = true;
+        for (int i = 0; i < precision; i++) {
+            int index = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                if (even) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (lon >= mid) {
+                        index = index * 2 + 1;
+                        minLon = mid;
+                    } else {
+                        index = index * 2;
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (lat >= mid) {
+                        index = index * 2 + 1;
+                        minLat = mid;
+                    } else {
+                        index = index * 2;
+                        maxLat = mid;
+                    }
+                }
+                even = !even;
+            }
+            hash[i] = BASE32.charAt(index);
+        }
+        return new String(hash);
+    }
+
+    /**
+     * @return {@code {lat, lon}} of the centre of the cell
+     */
+    public static double[] decode(String hash) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        boolean even = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int index = BASE32.indexOf(hash.charAt(i));
+            if (index < 0) throw new IllegalArgumentException("Invalid geohash: " + hash);
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = (index >> bit & 1) == 1;
+                if (even) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (set) minLon = mid;
+                    else maxLon = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) minLat = mid;
+                    else maxLat = mid;
+                }
+                even = !even;
+            }
+        }
+        return new double[]{(minLat + maxLat) / 2, (minLon + maxLon) / 2};
+    }
+
+    /**
+     * @return the height in degrees of latitude of a cell of the precision
+     */
+    public static double cellHeightDegrees(int precision) {
+        return 180.0 / (1L << (5 * precision / 2));
+    }
+
+    /**
+     * @return the width in degrees of longitude of a cell of the precision
+     */
+    public static double cellWidthDegrees(int precision) {
+        return 360.0 / (1L << ((5 * precision + 1) / 2));
+    }
+
+    /**
+     * @return the great-circle (haversine) distance in meters between two coordinates
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * @return meters per degree of latitude, and of longitude at the equator
+     */
+    public static double metersPerDegree() {
+        return Math.toRadians(EARTH_RADIUS_METERS);
+    }
+}
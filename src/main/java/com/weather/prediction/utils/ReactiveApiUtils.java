@@ -0,0 +1,163 @@
+package com.weather.prediction.utils;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking counterpart of {@link ApiUtils} on {@link WebClient}: no thread is held while a call
+ * is in flight, so the number of concurrent calls is bounded by the {@code openweathermap-reactive}
+ * bulkhead and the connection pool rather than by a thread pool.
+ *
+ * Failures are translated into the exceptions {@code RestTemplate}-based calls throw
+ * ({@link ResourceAccessException}, {@link HttpClientErrorException}, {@link HttpServerErrorException}),
+ * so the circuit breaker configuration, the {@code weather.upstream.*} metrics and callers' error
+ * handling are shared with {@link ApiUtils}.
+ */
+@Component
+public class ReactiveApiUtils {
+
+    private final WebClient webClient;
+
+    private final AsyncRetry asyncRetry;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter retries;
+
+    private UpstreamRateLimiter rateLimiter;
+
+    /**
+     * Parses a (fully received) response body.
+     */
+    @FunctionalInterface
+    public interface BodyParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+
+    public ReactiveApiUtils(WebClient upstreamWebClient, AsyncRetry asyncRetry, CircuitBreaker circuitBreaker,
+                            @Qualifier("upstreamReactiveBulkhead") Bulkhead bulkhead, MeterRegistry meterRegistry) {
+        this.webClient = upstreamWebClient;
+        this.asyncRetry = asyncRetry;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder("weather.upstream.retries")
+                .description("Upstream attempts scheduled after a retryable failure")
+                .register(meterRegistry);
+    }
+
+    @Autowired(required = false)
+    public void setRateLimiter(UpstreamRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Calls the API and parses the body, retrying I/O failures ({@link ResourceAccessException})
+     * with the {@link AsyncRetry} attempts, backoff and deadline.
+     *
+     * Every attempt goes through the reactive bulkhead and the shared upstream circuit breaker and
+     * fails with {@link BulkheadFullException} / {@link CallNotPermittedException} without being retried
+     * when either rejects it. The body is buffered (up to {@code reactive.max-in-memory-kb}) and parsed
+     * on the event loop.
+     *
+     * With an {@link UpstreamRateLimiter}, each attempt first waits, without holding a thread, for a
+     * permit at the {@link UpstreamPriority#current() priority} of the thread calling this method.
+     */
+    public <T> Mono<T> callGetApiWithRetry(String url, BodyParser<T> parser) {
+        Mono<T> call = Mono.defer(() -> timed(webClient.get()
+                        .uri(url)
+                        .retrieve()
+                        .bodyToMono(DataBuffer.class)
+                        .map(buffer -> parse(buffer, parser))
+                        .onErrorMap(ReactiveApiUtils::translate)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
+        UpstreamPriority priority = UpstreamPriority.current();
+        Mono<T> attempt = rateLimiter == null ? call
+                : Mono.defer(() -> Mono.fromFuture(rateLimiter.acquire(priority))).then(call);
+        return attempt
+                .retryWhen(Retry.backoff(asyncRetry.maxAttempts - 1, Duration.ofMillis(asyncRetry.initialBackoffMs))
+                        .maxBackoff(Duration.ofMillis(asyncRetry.maxBackoffMs))
+                        .multiplier(asyncRetry.multiplier)
+                        .filter(ResourceAccessException.class::isInstance)
+                        .doBeforeRetry(signal -> retries.increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(Duration.ofMillis(asyncRetry.deadlineMs))
+                .onErrorMap(TimeoutException.class, e ->
+                        new ResourceAccessException("Deadline exceeded calling " + url.replaceAll("appid=[^&]*", "appid=***")));
+    }
+
+    private <T> Mono<T> timed(Mono<T> call) {
+        long start = System.nanoTime();
+        return call
+                .doOnSuccess(value -> record("200", start))
+                .doOnError(e -> {
+                    String outcome = ApiUtils.outcome(e);
+                    if ("429".equals(outcome) && rateLimiter != null) rateLimiter.throttled();
+                    record(outcome, start);
+                });
+    }
+
+    private void record(String outcome, long start) {
+        Timer.builder("weather.upstream.latency")
+                .description("Latency of upstream attempts, including reading the body")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static <T> T parse(DataBuffer buffer, BodyParser<T> parser) {
+        try (InputStream body = buffer.asInputStream(true)) {
+            return parser.parse(body);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error reading response: " + e.getMessage(), e);
+        }
+    }
+
+    private static Throwable translate(Throwable error) {
+        if (error instanceof WebClientResponseException e) {
+            byte[] body = e.getResponseBodyAsByteArray();
+            return e.getStatusCode().is5xxServerError()
+                    ? HttpServerErrorException.create(e.getStatusCode(), e.getStatusText(), e.getHeaders(), body, StandardCharsets.UTF_8)
+                    : HttpClientErrorException.create(e.getStatusCode(), e.getStatusText(), e.getHeaders(), body, StandardCharsets.UTF_8);
+        }
+        if (error instanceof WebClientRequestException e) {
+            Throwable cause = e.getCause() instanceof ReadTimeoutException
+                    ? new SocketTimeoutException("Read timed out") : e.getCause();
+            return new ResourceAccessException(e.getMessage(), cause instanceof IOException io ? io : new IOException(cause));
+        }
+        return error;
+    }
+}
@@ -0,0 +1,156 @@
+package com.weather.prediction.utils;
+
+import com.weather.prediction.exception.CustomRuntimeException;
+import com.weather.prediction.exception.UpstreamTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller (the leader) runs
+ * the call, every caller arriving while it is in flight waits for and shares its result.
+ * Waiters give up after {@code wait-timeout-ms} with an {@link UpstreamTimeoutException};
+ * the leader itself is never interrupted. Blocking calls ({@link #execute(String, Supplier)}) and
+ * asynchronous ones ({@link #executeAsync(String, Supplier)}) for a key share one registry, so either
+ * kind joins the other's call.
+ */
+@Component
+@Slf4j
+public class SingleFlight {
+
+    @Value("${spring.weather.singleflight.wait-timeout-ms:10000}")
+    public long waitTimeoutMs = 10000;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+
+    private final Counter collapsed;
+
+    private final Counter timeouts;
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.leaders = counter(meterRegistry, "leader");
+        this.collapsed = counter(meterRegistry, "collapsed");
+        this.timeouts = counter(meterRegistry, "timeout");
+        Gauge.builder("weather.singleflight.inflight", inFlight, ConcurrentHashMap::size)
+                .description("Keys with an upstream call currently in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call for the key, or joins the call already in flight for it.
+     *
+     * @param key  normalized key identifying identical calls
+     * @param call the work to run if no call for the key is in flight
+     * @return the result of the (possibly shared) call
+     * @throws UpstreamTimeoutException if this caller waited longer than the configured timeout
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> call) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            collapsed.increment();
+            return (T) await(key, existing);
+        }
+
+        leaders.increment();
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #execute(String, Supplier)}: starts the call for the key, or joins
+     * the (blocking or asynchronous) call already in flight for it, without waiting for either. The key
+     * is in flight until the call's future completes.
+     *
+     * @param call the work to start if no call for the key is in flight
+     * @return a future of the (possibly shared) result; cancelling it does not cancel the call. It fails
+     *         with an {@link UpstreamTimeoutException} if this caller joined a call that took longer than
+     *         the configured timeout
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String key, Supplier<? extends CompletionStage<T>> call) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            collapsed.increment();
+            CompletableFuture<T> joined = new CompletableFuture<>();
+            existing.copy().orTimeout(waitTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause == null) {
+                    joined.complete((T) value);
+                } else if (cause instanceof TimeoutException) {
+                    timeouts.increment();
+                    log.warn("Timed out after {} ms waiting for in-flight call for {}", waitTimeoutMs, key);
+                    joined.completeExceptionally(new UpstreamTimeoutException(String.format("Timed out waiting for in-flight call for %s", key), cause));
+                } else {
+                    joined.completeExceptionally(cause);
+                }
+            });
+            return joined;
+        }
+
+        leaders.increment();
+        try {
+            call.get().whenComplete((value, error) -> {
+                inFlight.remove(key, mine);
+                if (error == null) mine.complete(value);
+                else mine.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+        }
+        return (CompletableFuture<T>) mine.copy();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Object await(String key, CompletableFuture<Object> future) {
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("Timed out after {} ms waiting for in-flight call for {}", waitTimeoutMs, key);
+            throw new UpstreamTimeoutException(String.format("Timed out waiting for in-flight call for %s", key), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new CustomRuntimeException(e.getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamTimeoutException(String.format("Interrupted waiting for in-flight call for %s", key), e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String role) {
+        return Counter.builder("weather.singleflight.calls")
+                .description("Lookups that led an upstream call or were collapsed into one in flight")
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+}
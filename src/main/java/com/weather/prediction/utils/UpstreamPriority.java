@@ -0,0 +1,41 @@
+package com.weather.prediction.utils;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority of the upstream calls made by the current thread, most important first. Used by
+ * {@link UpstreamRateLimiter} to decide which call gets the next permit.
+ *
+ * Calls are interactive unless the caller runs them inside {@link #call(Supplier)} of another
+ * priority; {@link ApiUtils} and {@link ReactiveApiUtils} read it when a call is started.
+ */
+public enum UpstreamPriority {
+
+    /** A user waiting on the response. */
+    INTERACTIVE,
+
+    /** A lookup that is part of a batch request. */
+    BATCH,
+
+    /** Refreshes nobody is waiting on. */
+    BACKGROUND;
+
+    private static final ThreadLocal<UpstreamPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static UpstreamPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the work with this priority for the upstream calls it starts on the current thread.
+     */
+    public <T> T call(Supplier<T> work) {
+        UpstreamPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
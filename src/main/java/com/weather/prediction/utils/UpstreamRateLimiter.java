@@ -0,0 +1,385 @@
+package com.weather.prediction.utils;
+
+import com.weather.prediction.exception.UpstreamRateLimitedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps upstream calls within the API plan's quota with two token buckets, one refilled at
+ * {@code calls-per-minute} (and holding at most that many tokens) and one at {@code calls-per-day}.
+ * Every attempt takes a token from both.
+ *
+ * When no token is available, callers wait in a priority queue: {@link UpstreamPriority#INTERACTIVE}
+ * calls are granted before {@link UpstreamPriority#BATCH} ones, which go before
+ * {@link UpstreamPriority#BACKGROUND} ones, first come first served within a priority. Work is shed
+ * lowest priority first:
+ * <ul>
+ *   <li>a caller that waited longer than the {@code max-wait-ms} of its priority is rejected;</li>
+ *   <li>when {@code max-queue} callers wait, a new caller evicts the newest waiter of a lower priority,
+ *       or is rejected if there is none;</li>
+ *   <li>batch and background calls are rejected while less than {@code batch-reserve-percent} /
+ *       {@code background-reserve-percent} of the daily quota is left, keeping it for users.</li>
+ * </ul>
+ * Rejected callers get an {@link UpstreamRateLimitedException}. A 429 from the upstream empties the
+ * minute bucket, see {@link #throttled()}.
+ */
+@Component
+@Slf4j
+public class UpstreamRateLimiter {
+
+    @Value("${spring.weather.ratelimit.enabled:true}")
+    public boolean enabled = true;
+
+    @Value("${spring.weather.ratelimit.calls-per-minute:60}")
+    public long callsPerMinute = 60;
+
+    @Value("${spring.weather.ratelimit.calls-per-day:33000}")
+    public long callsPerDay = 33000;
+
+    @Value("${spring.weather.ratelimit.max-queue:1000}")
+    public int maxQueue = 1000;
+
+    @Value("${spring.weather.ratelimit.interactive-max-wait-ms:2000}")
+    public long interactiveMaxWaitMs = 2000;
+
+    @Value("${spring.weather.ratelimit.batch-max-wait-ms:5000}")
+    public long batchMaxWaitMs = 5000;
+
+    @Value("${spring.weather.ratelimit.background-max-wait-ms:30000}")
+    public long backgroundMaxWaitMs = 30000;
+
+    @Value("${spring.weather.ratelimit.batch-reserve-percent:10}")
+    public int batchReservePercent = 10;
+
+    @Value("${spring.weather.ratelimit.background-reserve-percent:20}")
+    public int backgroundReservePercent = 20;
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+
+    private final Clock clock;
+
+    private final MeterRegistry meterRegistry;
+
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::seq));
+
+    private final Map<UpstreamPriority, Timer> waitTimers = new EnumMap<>(UpstreamPriority.class);
+
+    private final Counter throttled;
+
+    private TokenBucket minute;
+
+    private TokenBucket day;
+
+    private long seq;
+
+    private ScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> wakeup;
+
+    private long wakeupAt = Long.MAX_VALUE;
+
+    @Autowired
+    public UpstreamRateLimiter(MeterRegistry meterRegistry) {
+        this(meterRegistry, Clock.systemUTC());
+    }
+
+    public UpstreamRateLimiter(MeterRegistry meterRegistry, Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        for (UpstreamPriority priority : UpstreamPriority.values()) {
+            waitTimers.put(priority, Timer.builder("weather.ratelimit.wait")
+                    .description("Time upstream calls waited for a rate limiter permit")
+                    .tag("priority", tag(priority))
+                    .register(meterRegistry));
+            Gauge.builder("weather.ratelimit.queued", this, limiter -> limiter.queued(priority))
+                    .description("Upstream calls waiting for a rate limiter permit")
+                    .tag("priority", tag(priority))
+                    .register(meterRegistry);
+        }
+        this.throttled = Counter.builder("weather.upstream.throttled")
+                .description("Upstream responses with status 429")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        long now = clock.millis();
+        minute = new TokenBucket(callsPerMinute, callsPerMinute / 60_000.0, now);
+        day = new TokenBucket(callsPerDay, callsPerDay / 86_400_000.0, now);
+        Gauge.builder("weather.ratelimit.tokens", this, limiter -> limiter.tokens(limiter.minute))
+                .description("Upstream calls that can be made right now without waiting")
+                .tag("bucket", "minute")
+                .register(meterRegistry);
+        Gauge.builder("weather.ratelimit.tokens", this, limiter -> limiter.tokens(limiter.day))
+                .description("Upstream calls that can be made right now without waiting")
+                .tag("bucket", "day")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "upstream-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Upstream rate limiter: enabled={}, {} calls/minute, {} calls/day, queue {}",
+                enabled, callsPerMinute, callsPerDay, maxQueue);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * Requests a permit for one upstream call.
+     *
+     * @return a future completed when the call may be made, or failed with an
+     *         {@link UpstreamRateLimitedException} when it is shed. Cancelling it gives up the place in the queue.
+     */
+    public CompletableFuture<Void> acquire(UpstreamPriority priority) {
+        if (!enabled) return GRANTED;
+        Waiter evicted = null;
+        Waiter waiter;
+        synchronized (this) {
+            long now = clock.millis();
+            refill(now);
+            if (!withinReserve(priority)) return reject(priority, "quota");
+            if (waiting.isEmpty() && available()) {
+                take();
+                waitTimers.get(priority).record(0, TimeUnit.MILLISECONDS);
+                return GRANTED;
+            }
+            if (waiting.size() >= maxQueue) {
+                Waiter lowest = lowest();
+                if (lowest == null || lowest.priority().compareTo(priority) <= 0) return reject(priority, "queue_full");
+                waiting.remove(lowest);
+                evicted = lowest;
+            }
+            waiter = new Waiter(priority, seq++, now, now + maxWaitMs(priority), new CompletableFuture<>());
+            waiting.add(waiter);
+            // a cancelled or shed waiter leaves the queue at once, so it no longer counts against max-queue
+            waiter.future().whenComplete((ignored, e) -> {
+                if (e != null) dequeue(waiter);
+            });
+            schedule(now);
+        }
+        if (evicted != null) fail(evicted, "shed");
+        return waiter.future();
+    }
+
+    /**
+     * Records a 429 from the upstream: its own limit is tighter than ours right now, so the
+     * minute bucket is emptied and refills at the configured rate.
+     */
+    public void throttled() {
+        throttled.increment();
+        if (!enabled) return;
+        synchronized (this) {
+            refill(clock.millis());
+            minute.tokens = 0;
+        }
+    }
+
+    /**
+     * Grants permits that became available and rejects callers that waited too long. Runs on the
+     * limiter's scheduler whenever a token is due or a waiter expires.
+     */
+    public void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        List<Waiter> expired = new ArrayList<>();
+        List<Waiter> overQuota = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.millis();
+            refill(now);
+            waiting.removeIf(waiter -> {
+                if (waiter.future().isDone()) return true;
+                if (now < waiter.deadline()) return false;
+                expired.add(waiter);
+                return true;
+            });
+            while (!waiting.isEmpty()) {
+                Waiter head = waiting.peek();
+                if (head.future().isDone()) {
+                    waiting.poll();
+                } else if (!withinReserve(head.priority())) {
+                    overQuota.add(waiting.poll());
+                } else if (available()) {
+                    take();
+                    granted.add(waiting.poll());
+                    waitTimers.get(head.priority()).record(now - head.enqueuedAt(), TimeUnit.MILLISECONDS);
+                } else {
+                    break;
+                }
+            }
+            schedule(now);
+        }
+        // completed outside the lock, callers continue their call on this thread
+        expired.forEach(waiter -> fail(waiter, "timeout"));
+        overQuota.forEach(waiter -> fail(waiter, "quota"));
+        granted.forEach(waiter -> waiter.future().complete(null));
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.error("Rate limiter drain failed", e);
+        }
+    }
+
+    /**
+     * Wakes the scheduler at the next token or the earliest waiter deadline, whichever is first.
+     */
+    private void schedule(long now) {
+        if (waiting.isEmpty() || scheduler == null) return;
+        long next = now + Math.max(1, Math.max(minute.millisUntilToken(), day.millisUntilToken()));
+        for (Waiter waiter : waiting) next = Math.min(next, waiter.deadline());
+        if (wakeup != null && !wakeup.isDone() && wakeupAt <= next) return;
+        if (wakeup != null) wakeup.cancel(false);
+        wakeupAt = next;
+        wakeup = scheduler.schedule(this::drainSafely, Math.max(0, next - now), TimeUnit.MILLISECONDS);
+    }
+
+    private void refill(long now) {
+        minute.refill(now);
+        day.refill(now);
+    }
+
+    private boolean available() {
+        return minute.tokens >= 1 && day.tokens >= 1;
+    }
+
+    private void take() {
+        minute.tokens--;
+        day.tokens--;
+    }
+
+    private boolean withinReserve(UpstreamPriority priority) {
+        int reservePercent = switch (priority) {
+            case INTERACTIVE -> 0;
+            case BATCH -> batchReservePercent;
+            case BACKGROUND -> backgroundReservePercent;
+        };
+        return day.tokens >= day.capacity * reservePercent / 100.0;
+    }
+
+    private long maxWaitMs(UpstreamPriority priority) {
+        return switch (priority) {
+            case INTERACTIVE -> interactiveMaxWaitMs;
+            case BATCH -> batchMaxWaitMs;
+            case BACKGROUND -> backgroundMaxWaitMs;
+        };
+    }
+
+    /**
+     * @return the newest waiter of the lowest priority, or null if none waits
+     */
+    private Waiter lowest() {
+        Waiter lowest = null;
+        for (Waiter waiter : waiting) {
+            if (lowest == null || waiter.priority().compareTo(lowest.priority()) > 0
+                    || (waiter.priority() == lowest.priority() && waiter.seq() > lowest.seq())) {
+                lowest = waiter;
+            }
+        }
+        return lowest;
+    }
+
+    private synchronized void dequeue(Waiter waiter) {
+        waiting.remove(waiter);
+    }
+
+    private CompletableFuture<Void> reject(UpstreamPriority priority, String reason) {
+        rejected(priority, reason);
+        return CompletableFuture.failedFuture(exception(priority, reason));
+    }
+
+    private void fail(Waiter waiter, String reason) {
+        if (waiter.future().completeExceptionally(exception(waiter.priority(), reason))) rejected(waiter.priority(), reason);
+    }
+
+    private void rejected(UpstreamPriority priority, String reason) {
+        Counter.builder("weather.ratelimit.rejected")
+                .description("Upstream calls shed by the rate limiter")
+                .tag("priority", tag(priority))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static UpstreamRateLimitedException exception(UpstreamPriority priority, String reason) {
+        return new UpstreamRateLimitedException(String.format("Upstream call (%s) shed by the rate limiter: %s", tag(priority), reason));
+    }
+
+    private synchronized double tokens(TokenBucket bucket) {
+        refill(clock.millis());
+        return bucket.tokens;
+    }
+
+    private synchronized int queued(UpstreamPriority priority) {
+        int count = 0;
+        for (Waiter waiter : waiting) {
+            if (waiter.priority() == priority) count++;
+        }
+        return count;
+    }
+
+    private static String tag(UpstreamPriority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    private record Waiter(UpstreamPriority priority, long seq, long enqueuedAt, long deadline, CompletableFuture<Void> future) {
+    }
+
+    /**
+     * Tokens refill continuously at {@code perMilli} up to {@code capacity}; starts full.
+     */
+    private static final class TokenBucket {
+
+        private final double capacity;
+
+        private final double perMilli;
+
+        private double tokens;
+
+        private long updatedAt;
+
+        TokenBucket(double capacity, double perMilli, long now) {
+            this.capacity = capacity;
+            this.perMilli = perMilli;
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+
+        void refill(long now) {
+            if (now <= updatedAt) return;
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * perMilli);
+            updatedAt = now;
+        }
+
+        long millisUntilToken() {
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / perMilli);
+        }
+    }
+}
@@ -8,10 +8,19 @@ document.addEventListener('DOMContentLoaded', function() {
     const loadingIndicator = document.getElementById('loadingIndicator');
     const dataSource = document.getElementById('dataSource');
     const offlineLabel = document.getElementById('offlineLabel');
+    const citySuggestions = document.getElementById('citySuggestions');
 
     // Constants
     const CACHE_PREFIX = 'weather_';
     const CACHE_TTL = 24 * 60 * 60 * 1000; // 24 hours cache validity
+    const SUGGEST_DELAY = 150; // ms of typing pause before asking for suggestions
+
+    // City ids by suggested label, e.g. "Portland, OR, US" -> 5746545
+    const suggestedIds = new Map();
+    let suggestTimer;
+
+    // Pushes updates of the forecast on display, see subscribe()
+    let updates;
 
     // Event Listeners
     searchBtn.addEventListener('click', fetchWeather);
@@ -19,7 +28,15 @@ document.addEventListener('DOMContentLoaded', function() {
         if (e.key === 'Enter') fetchWeather();
     });
 
-    offlineToggle.addEventListener('change', updateOfflineStatus);
+    cityInput.addEventListener('input', function() {
+        clearTimeout(suggestTimer);
+        suggestTimer = setTimeout(suggestCities, SUGGEST_DELAY);
+    });
+
+    offlineToggle.addEventListener('change', function() {
+        updateOfflineStatus();
+        if (offlineToggle.checked) unsubscribe();
+    });
 
     // Initialize
     updateOfflineStatus();
@@ -34,6 +51,7 @@ document.addEventListener('DOMContentLoaded', function() {
 
         clearDisplay();
         showLoading();
+        unsubscribe();
 
         try {
             let weatherData;
@@ -49,7 +67,11 @@ document.addEventListener('DOMContentLoaded', function() {
                 // Online mode - try API first
                 try {
                     //const response = await fetch(`http://localhost:8080/forecast?city=${encodeURIComponent(city)}`);
-                    const response = await fetch(`/forecast?city=${encodeURIComponent(city)}`);
+                    // A picked suggestion is looked up by its canonical id, anything else by name
+                    const id = suggestedIds.get(city);
+                    const response = await fetch(id !== undefined
+                        ? `/forecast?id=${id}`
+                        : `/forecast?city=${encodeURIComponent(city)}`);
 
                     if (!response.ok) {
                         const errorData = await response.json();
@@ -59,6 +81,7 @@ document.addEventListener('DOMContentLoaded', function() {
                     weatherData = await response.json();
                     weatherData.source = 'live API';
                     cacheWeatherData(city, weatherData);
+                    subscribe(city, id);
                 } catch (apiError) {
                     console.warn('API request failed:', apiError);
                     if (apiError.message.toLowerCase().includes("city not found")) {
@@ -82,6 +105,46 @@ document.addEventListener('DOMContentLoaded', function() {
         }
     }
 
+    async function suggestCities() {
+        const query = cityInput.value.trim();
+        if (offlineToggle.checked || query.length < 2 || suggestedIds.has(query)) return;
+
+        try {
+            const response = await fetch(`/cities/suggest?q=${encodeURIComponent(query)}&limit=8`);
+            if (!response.ok) return;
+            const cities = await response.json();
+
+            citySuggestions.innerHTML = '';
+            cities.forEach(city => {
+                const label = [city.name, city.state, city.country].filter(Boolean).join(', ');
+                suggestedIds.set(label, city.id);
+                const option = document.createElement('option');
+                option.value = label;
+                citySuggestions.appendChild(option);
+            });
+        } catch (error) {
+            console.warn('City suggestions failed:', error);
+        }
+    }
+
+    // Replaces polling: the server pushes the forecast again whenever it changes
+    function subscribe(city, id) {
+        updates = new EventSource(id !== undefined
+            ? `/forecast/subscribe?id=${id}`
+            : `/forecast/subscribe?city=${encodeURIComponent(city)}`);
+        updates.addEventListener('forecast', function(event) {
+            const weatherData = JSON.parse(event.data);
+            weatherData.source = 'live update';
+            cacheWeatherData(city, weatherData);
+            displayWeather(weatherData);
+        });
+    }
+
+    function unsubscribe() {
+        if (updates) updates.close();
+        updates = undefined;
+    }
+
     function displayWeather(weatherData) {
         weatherContainer.innerHTML = '';
 
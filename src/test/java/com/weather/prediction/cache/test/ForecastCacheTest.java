@@ -0,0 +1,141 @@
+package com.weather.prediction.cache.test;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ForecastCacheTest {
+
+    private ForecastCache forecastCache;
+
+    private TestClock clock;
+
+    private List<Runnable> refreshes;
+
+    @BeforeEach
+    void init() {
+        clock = new TestClock();
+        refreshes = new ArrayList<>();
+        forecastCache = new ForecastCache(refreshes::add, new SingleFlight(new SimpleMeterRegistry()), clock);
+        forecastCache.ttlSeconds = 60;
+        forecastCache.staleWhileRevalidateSeconds = 30;
+        forecastCache.maxEntries = 2;
+        forecastCache.init();
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("new york", ForecastCache.normalize("  New   York "));
+        assertEquals("", ForecastCache.normalize(null));
+    }
+
+    @Test
+    void testGet_FreshEntryIsServedFromCache() {
+        AtomicInteger loads = new AtomicInteger();
+        WeatherResponse first = forecastCache.get("london", () -> response("200", loads));
+        clock.advance(59_000);
+        WeatherResponse second = forecastCache.get("london", () -> response("200", loads));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGet_StaleEntryIsServedWhileOneRefreshRuns() {
+        AtomicInteger loads = new AtomicInteger();
+        WeatherResponse first = forecastCache.get("london", () -> response("200", loads));
+        clock.advance(70_000);
+
+        assertSame(first, forecastCache.get("london", () -> response("200", loads)));
+        assertSame(first, forecastCache.get("london", () -> response("200", loads)));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals(2, loads.get());
+        assertNotSame(first, forecastCache.get("london", () -> response("200", loads)));
+    }
+
+    @Test
+    void testGet_ExpiredEntryIsLoadedSynchronously() {
+        AtomicInteger loads = new AtomicInteger();
+        WeatherResponse first = forecastCache.get("london", () -> response("200", loads));
+        clock.advance(91_000);
+
+        assertNotSame(first, forecastCache.get("london", () -> response("200", loads)));
+        assertEquals(2, loads.get());
+        assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    void testGet_ErrorResponsesAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+        forecastCache.get("atlantis", () -> response("404", loads));
+        forecastCache.get("atlantis", () -> response("404", loads));
+
+        assertEquals(2, loads.get());
+        assertNull(forecastCache.getEntry("atlantis"));
+    }
+
+    @Test
+    void testPut_SizeIsBounded() {
+        AtomicInteger loads = new AtomicInteger();
+        for (String city : List.of("london", "paris", "berlin", "madrid")) {
+            forecastCache.get(city, () -> response("200", loads));
+        }
+        forecastCache.cleanUp();
+
+        assertTrue(forecastCache.size() <= 2);
+    }
+
+    private WeatherResponse response(String cod, AtomicInteger loads) {
+        loads.incrementAndGet();
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod(cod);
+        wr.setForecastData(List.of());
+        return wr;
+    }
+
+    private static class TestClock extends Clock {
+
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.weather.prediction.cache.test;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.cache.ForecastSnapshotStore;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class ForecastSnapshotStoreTest {
+
+    private static final long NOW = 1_754_038_800_000L;
+
+    @TempDir
+    Path dir;
+
+    private final List<ForecastSnapshotStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        stores.forEach(ForecastSnapshotStore::close);
+    }
+
+    @Test
+    void testSavedSnapshotsAreLoadedByANewStore() {
+        ForecastSnapshotStore store = store(NOW);
+        store.save("london", response("London", 11), NOW - 2000);
+        store.save("london", response("London", 12), NOW - 1000);
+        store.save("paris", response("Paris", 20), NOW);
+        store.flush();
+
+        ForecastSnapshotStore reopened = store(NOW);
+
+        assertEquals(2, reopened.snapshots().size());
+        assertEquals(NOW - 1000, reopened.get("london").fetchedAt());
+        assertEquals(12, reopened.get("london").response().getForecastData().get(0).getMax_temp());
+        assertEquals("Paris", reopened.get("paris").response().getCity());
+    }
+
+    @Test
+    void testSnapshotsOlderThanMaxAgeAreNotLoaded() {
+        ForecastSnapshotStore store = store(NOW);
+        store.save("london", response("London", 11), NOW - 3_600_000);
+        store.flush();
+
+        assertNull(store(NOW + 86_400_000).get("london"));
+        assertNotNull(store(NOW + 3_600_000).get("london"));
+    }
+
+    @Test
+    void testTornLastRecordIsSkippedAndNotCorruptingTheNextOne() throws IOException {
+        ForecastSnapshotStore store = store(NOW);
+        store.save("london", response("London", 11), NOW);
+        store.flush();
+        Files.writeString(file(), "{\"key\":\"paris\",\"fetch", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ForecastSnapshotStore reopened = store(NOW);
+        reopened.save("berlin", response("Berlin", 15), NOW);
+        reopened.flush();
+
+        ForecastSnapshotStore again = store(NOW);
+        assertNotNull(again.get("london"));
+        assertNull(again.get("paris"));
+        assertNotNull(again.get("berlin"));
+    }
+
+    @Test
+    void testLogIsCompacted() throws IOException {
+        ForecastSnapshotStore store = store(NOW);
+        store.compactMinRecords = 10;
+        store.compactRatio = 2;
+        for (int i = 0; i < 25; i++) {
+            store.save(i % 2 == 0 ? "london" : "paris", response("City", i), NOW + i);
+        }
+        store.flush();
+
+        assertTrue(Files.readAllLines(file()).size() < 10);
+        ForecastSnapshotStore reopened = store(NOW);
+        assertEquals(NOW + 24, reopened.get("london").fetchedAt());
+        assertEquals(NOW + 23, reopened.get("paris").fetchedAt());
+    }
+
+    @Test
+    void testWrittenSnapshotsAreReadBackFromTheLog() throws IOException {
+        ForecastSnapshotStore store = store(NOW);
+        store.compactMinRecords = 10;
+        store.compactRatio = 2;
+        WeatherResponse saved = response("London", 11);
+        store.save("london", saved, NOW);
+        for (int i = 0; i < 25; i++) {
+            store.save("paris", response("Paris", i), NOW + i);
+        }
+        store.flush();
+
+        assertTrue(Files.readAllLines(file()).size() < 10);
+        assertNotSame(saved, store.get("london").response());
+        assertEquals(11, store.get("london").response().getForecastData().get(0).getMax_temp());
+        assertEquals(24, store.get("paris").response().getForecastData().get(0).getMax_temp());
+        assertEquals(2, store.snapshots().size());
+    }
+
+    @Test
+    void testCacheIsWarmedFromSnapshotsAndPersistsPuts() {
+        ForecastSnapshotStore store = store(NOW);
+        ForecastCache cache = cache(store, NOW);
+        cache.put("london", response("London", 11));
+        store.flush();
+
+        ForecastSnapshotStore reopened = store(NOW + 1000);
+        ForecastCache restarted = cache(reopened, NOW + 1000);
+        AtomicInteger loads = new AtomicInteger();
+        WeatherResponse served = restarted.get("london", () -> {
+            loads.incrementAndGet();
+            return response("London", 99);
+        });
+
+        assertEquals(0, loads.get());
+        assertEquals(11, served.getForecastData().get(0).getMax_temp());
+    }
+
+    @Test
+    void testLastKnownGoodFallsBackToStore() {
+        ForecastSnapshotStore store = store(NOW);
+        store.save("london", response("London", 11), NOW);
+        ForecastCache cache = cache(store, NOW);
+        cache.invalidateAll();
+
+        assertEquals("London", cache.getLastKnownGood("london").getCity());
+        assertNull(cache.getLastKnownGood("paris"));
+    }
+
+    private ForecastSnapshotStore store(long now) {
+        ForecastSnapshotStore store = new ForecastSnapshotStore(Clock.fixed(Instant.ofEpochMilli(now), ZoneOffset.UTC));
+        store.enabled = true;
+        store.path = file().toString();
+        store.init();
+        stores.add(store);
+        return store;
+    }
+
+    private ForecastCache cache(ForecastSnapshotStore store, long now) {
+        ForecastCache cache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()),
+                Clock.fixed(Instant.ofEpochMilli(now), ZoneOffset.UTC));
+        cache.setSnapshotStore(store);
+        cache.init();
+        return cache;
+    }
+
+    private Path file() {
+        return dir.resolve("snapshots").resolve("forecast-snapshots.log");
+    }
+
+    private static WeatherResponse response(String city, double maxTemp) {
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod("200");
+        wr.setCity(city);
+        wr.setForecastData(List.of(new ForecastData(1, maxTemp, "2025-08-02", List.of("Carry umbrella"))));
+        return wr;
+    }
+}
@@ -0,0 +1,112 @@
+package com.weather.prediction.cache.test;
+
+import com.weather.prediction.cache.NegativeCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class NegativeCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TestClock clock;
+
+    private NegativeCache negativeCache;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new TestClock();
+        negativeCache = new NegativeCache(meterRegistry, clock);
+        negativeCache.windowSeconds = 60;
+    }
+
+    @Test
+    void testIsKnownMissing_AfterAdd() {
+        negativeCache.init();
+
+        assertFalse(negativeCache.isKnownMissing("atlantis"));
+        negativeCache.add("atlantis");
+        negativeCache.add("atlantis");
+
+        assertTrue(negativeCache.isKnownMissing("atlantis"));
+        assertFalse(negativeCache.isKnownMissing("london"));
+        assertEquals(1.0, meterRegistry.get("weather.negative.hits").counter().count());
+        assertEquals(1.0, meterRegistry.get("weather.negative.additions").counter().count());
+        assertEquals(1.0, meterRegistry.get("weather.negative.entries").gauge().value());
+    }
+
+    @Test
+    void testIsKnownMissing_ForgottenAfterTwoWindows() {
+        negativeCache.init();
+        negativeCache.add("atlantis");
+
+        clock.advance(60_000);
+        assertTrue(negativeCache.isKnownMissing("atlantis"));
+
+        clock.advance(60_000);
+        assertFalse(negativeCache.isKnownMissing("atlantis"));
+    }
+
+    @Test
+    void testAdd_RotatesWhenCapacityIsReached() {
+        negativeCache.capacity = 10;
+        negativeCache.init();
+        for (int i = 0; i < 10; i++) negativeCache.add("first-" + i);
+        for (int i = 0; i < 10; i++) negativeCache.add("second-" + i);
+
+        assertTrue(negativeCache.isKnownMissing("second-0"));
+        negativeCache.add("third-0");
+
+        assertFalse(negativeCache.isKnownMissing("first-0"));
+        assertTrue(negativeCache.isKnownMissing("third-0"));
+    }
+
+    @Test
+    void testDisabled() {
+        negativeCache.enabled = false;
+        negativeCache.init();
+
+        negativeCache.add("atlantis");
+
+        assertFalse(negativeCache.isKnownMissing("atlantis"));
+    }
+
+    private static class TestClock extends Clock {
+
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.weather.prediction.cache.test;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.weather.prediction.cache.RedisSharedForecastStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RedisSharedForecastStoreTest {
+
+    private RedisServer server;
+
+    private RedisSharedForecastStore store;
+
+    @BeforeAll
+    void start() throws IOException {
+        server = RedisServer.newRedisServer().start();
+        store = new RedisSharedForecastStore("redis://" + server.getHost() + ":" + server.getBindPort(),
+                "weather:forecast:updates", Duration.ofSeconds(2));
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+        store.close();
+        server.stop();
+    }
+
+    @Test
+    void testPutValueIsReadBackUntilItExpires() throws Exception {
+        store.put("weather:forecast:london", bytes("{\"city\":\"London\"}"), 200).toCompletableFuture().get(2, TimeUnit.SECONDS);
+
+        assertEquals("{\"city\":\"London\"}", new String(store.get("weather:forecast:london"), StandardCharsets.UTF_8));
+        Thread.sleep(400);
+        assertNull(store.get("weather:forecast:london"));
+    }
+
+    @Test
+    void testPutIfAbsentGrantsOneLease() {
+        assertTrue(store.putIfAbsent("weather:forecast:lease:paris", bytes("a"), 5000));
+        assertFalse(store.putIfAbsent("weather:forecast:lease:paris", bytes("b"), 5000));
+        assertEquals("a", new String(store.get("weather:forecast:lease:paris"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testPublishedMessagesReachSubscribers() throws Exception {
+        CompletableFuture<String> received = new CompletableFuture<>();
+        store.subscribe(received::complete);
+
+        store.publish("node 1700000000000 berlin");
+
+        assertEquals("node 1700000000000 berlin", received.get(2, TimeUnit.SECONDS));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,199 @@
+package com.weather.prediction.cache.test;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.cache.InMemorySharedForecastStore;
+import com.weather.prediction.cache.SharedForecastStore;
+import com.weather.prediction.cache.SharedForecastTier;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class SharedForecastTierTest {
+
+    private final TestClock clock = new TestClock();
+
+    private final InMemorySharedForecastStore store = new InMemorySharedForecastStore(clock);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testForecastLoadedByOneNodeIsServedToAnotherWithoutUpstreamCall() {
+        ForecastCache nodeA = cache(store);
+        ForecastCache nodeB = cache(store);
+
+        nodeA.get("london", () -> load(11));
+        clock.advance(1000);
+        WeatherResponse served = nodeB.get("london", () -> load(99));
+
+        assertEquals(1, loads.get());
+        assertEquals(11, maxTemp(served));
+        assertEquals(clock.millis() - 1000, nodeB.getEntry("london").getFetchedAt());
+    }
+
+    @Test
+    void testRefreshOnOneNodeReplacesOlderEntryOnOthers() {
+        ForecastCache nodeA = cache(store);
+        ForecastCache nodeB = cache(store);
+        nodeA.get("london", () -> load(11));
+        nodeB.get("london", () -> load(99));
+
+        clock.advance(60_000);
+        nodeA.refresh("london", () -> load(12));
+
+        assertEquals(2, loads.get());
+        assertEquals(12, maxTemp(nodeB.getEntry("london").getResponse()));
+        assertEquals(clock.millis(), nodeB.getEntry("london").getFetchedAt());
+    }
+
+    @Test
+    void testExpiredSharedForecastIsLoadedFromUpstream() {
+        ForecastCache nodeA = cache(store);
+        ForecastCache nodeB = cache(store);
+        nodeA.get("london", () -> load(11));
+
+        clock.advance(TimeUnit.SECONDS.toMillis(nodeA.ttlSeconds) + 1);
+        WeatherResponse served = nodeB.get("london", () -> load(12));
+
+        assertEquals(2, loads.get());
+        assertEquals(12, maxTemp(served));
+    }
+
+    @Test
+    void testStoreFailuresFallBackToUpstream() {
+        ForecastCache node = cache(new FailingStore());
+
+        WeatherResponse served = node.get("london", () -> load(11));
+
+        assertEquals(1, loads.get());
+        assertEquals(11, maxTemp(served));
+        assertEquals(11, maxTemp(node.get("london", () -> load(99))));
+    }
+
+    @Test
+    void testNodeWaitsForLeaseHolderInsteadOfCallingUpstream() throws Exception {
+        ForecastCache nodeA = cache(store);
+        ForecastCache nodeB = cache(store);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<WeatherResponse> first = CompletableFuture.supplyAsync(() -> nodeA.get("london", () -> {
+            loading.countDown();
+            await(release);
+            return load(11);
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        CompletableFuture<WeatherResponse> second = CompletableFuture.supplyAsync(() -> nodeB.get("london", () -> load(99)));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(11, maxTemp(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(11, maxTemp(second.get(5, TimeUnit.SECONDS)));
+        assertEquals(1, loads.get());
+    }
+
+    private ForecastCache cache(SharedForecastStore store) {
+        ForecastCache cache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()), clock);
+        cache.setSharedTier(new SharedForecastTier(store, new SimpleMeterRegistry()));
+        cache.init();
+        return cache;
+    }
+
+    private WeatherResponse load(double maxTemp) {
+        loads.incrementAndGet();
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod("200");
+        wr.setCity("London");
+        wr.setForecastData(List.of(new ForecastData(1, maxTemp, "2025-08-02", List.of("Carry umbrella"))));
+        return wr;
+    }
+
+    private static double maxTemp(WeatherResponse response) {
+        return response.getForecastData().get(0).getMax_temp();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FailingStore implements SharedForecastStore {
+
+        @Override
+        public byte[] get(String key) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public CompletionStage<?> put(String key, byte[] value, long ttlMillis) {
+            return CompletableFuture.failedFuture(new IllegalStateException("connection refused"));
+        }
+
+        @Override
+        public boolean putIfAbsent(String key, byte[] value, long ttlMillis) {
+            throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public CompletionStage<?> publish(String message) {
+            return CompletableFuture.failedFuture(new IllegalStateException("connection refused"));
+        }
+
+        @Override
+        public void subscribe(Consumer<String> listener) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class TestClock extends Clock {
+
+        private volatile long millis = 1_700_000_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
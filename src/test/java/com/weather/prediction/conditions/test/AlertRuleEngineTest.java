@@ -0,0 +1,112 @@
+package com.weather.prediction.conditions.test;
+
+import com.weather.prediction.conditions.rules.AlertRule;
+import com.weather.prediction.conditions.rules.AlertRuleEngine;
+import com.weather.prediction.conditions.rules.AlertRuleSet;
+import com.weather.prediction.conditions.rules.AlertRules;
+import com.weather.prediction.model.ForecastSlot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AlertRuleEngineTest {
+
+    private final ForecastSlot calm = new ForecastSlot(1754038800L, 300.0, 2.0, Double.NaN, new String[]{"Clear"});
+
+    private final ForecastSlot freezing = new ForecastSlot(1754038800L, 270.0, 9.5, Double.NaN, new String[]{"Snow"});
+
+    private final ForecastSlot stormy = new ForecastSlot(1754038800L, 315.0, 9.5, 12.0, new String[]{"Rain", "Thunderstorm"});
+
+    @Test
+    void testCompiledRulesMatchTheirConditions() {
+        List<AlertRule> rules = compile("""
+                [{"name": "FreezingWind", "alert": "Freezing wind",
+                  "when": {"all": [{"field": "temp_c", "op": "<", "value": 0}, {"field": "wind_speed", "op": ">", "value": 8}]}},
+                 {"name": "HeavyRain", "alert": "Heavy rain", "when": {"field": "rain_3h", "op": ">=", "value": 10}},
+                 {"name": "Wintry", "alert": "Wintry", "when": {"any": [{"field": "weather", "op": "equals", "value": "Snow"},
+                                                                      {"field": "weather", "op": "contains", "value": "Sleet"},
+                                                                      {"field": "temp", "op": "<=", "value": 260}]}},
+                 {"name": "Dry", "alert": "Dry", "when": {"not": {"field": "rain_3h", "op": ">", "value": 0}}}]
+                """);
+
+        assertEquals(List.of("FreezingWind", "HeavyRain", "Wintry", "Dry"), rules.stream().map(AlertRule::getName).toList());
+        AlertRuleSet set = AlertRuleSet.of(rules, new SimpleMeterRegistry());
+        assertEquals(0b1000, set.mask(calm));
+        assertEquals(0b1101, set.mask(freezing));
+        assertEquals(0b0010, set.mask(stormy));
+        assertEquals("Heavy rain", set.get(1).getAlert());
+    }
+
+    @Test
+    void testInvalidRulesNameTheOffendingElement() {
+        assertEquals("rules[0].when.all[1]: unknown field 'tmp'", assertThrows(IllegalArgumentException.class, () -> compile("""
+                [{"name": "A", "alert": "a", "when": {"all": [{"field": "temp", "op": ">", "value": 1}, {"field": "tmp", "op": ">", "value": 1}]}}]
+                """)).getMessage());
+        assertEquals("rules[0].when: unknown operator '=>'", assertThrows(IllegalArgumentException.class, () -> compile("""
+                [{"name": "A", "alert": "a", "when": {"field": "temp", "op": "=>", "value": 1}}]
+                """)).getMessage());
+        assertEquals("rules[1]: 'alert' is required", assertThrows(IllegalArgumentException.class, () -> compile("""
+                [{"name": "A", "alert": "a", "when": {"field": "temp", "op": ">", "value": 1}}, {"name": "B", "when": {}}]
+                """)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> compile("{"));
+        assertThrows(IllegalArgumentException.class, () -> AlertRuleSet.of(compile("""
+                [{"name": "A", "alert": "a", "when": {"field": "temp", "op": ">", "value": 1}},
+                 {"name": "A", "alert": "b", "when": {"field": "temp", "op": "<", "value": 1}}]
+                """), new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void testChangedFileIsReloadedAndBrokenFileKeepsRules(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("alert-rules.json");
+        Files.writeString(file, """
+                [{"name": "Cold", "alert": "Cold", "when": {"field": "temp_c", "op": "<", "value": 5}}]
+                """);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AlertRuleEngine engine = new AlertRuleEngine(meterRegistry);
+        engine.path = file.toUri().toString();
+        engine.reloadSeconds = 0;
+        engine.init();
+        AlertRuleSet first = engine.current();
+        assertEquals(1, first.size());
+        assertFalse(engine.reloadIfChanged());
+
+        Files.writeString(file, """
+                [{"name": "Cold", "alert": "Cold", "when": {"field": "temp_c", "op": "<", "value": 5}},
+                 {"name": "Windy", "alert": "Windy", "when": {"field": "wind_speed", "op": ">", "value": 9}}]
+                """);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertTrue(engine.reloadIfChanged());
+        assertEquals(2, engine.current().size());
+        assertEquals(1, first.size());
+
+        Files.writeString(file, "[{\"name\": \"Broken\"}]");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertFalse(engine.reloadIfChanged());
+        assertEquals(2, engine.current().size());
+        assertEquals(1, meterRegistry.counter("weather.rules.reloads", "outcome", "failed").count());
+    }
+
+    @Test
+    void testInvalidRulesFailStartup(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("alert-rules.json");
+        Files.writeString(file, "[{\"name\": \"Broken\"}]");
+        AlertRuleEngine engine = new AlertRuleEngine(new SimpleMeterRegistry());
+        engine.path = file.toUri().toString();
+
+        assertThrows(IllegalStateException.class, engine::init);
+    }
+
+    private static List<AlertRule> compile(String json) {
+        return AlertRules.compile(new StringReader(json));
+    }
+}
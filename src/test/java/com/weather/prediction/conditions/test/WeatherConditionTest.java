@@ -0,0 +1,72 @@
+package com.weather.prediction.conditions.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.weather.prediction.conditions.ForecastSlotCondition;
+import com.weather.prediction.conditions.JsonConditionAdapter;
+import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.impl.HighTemperatureCondition;
+import com.weather.prediction.conditions.impl.HighWindCondition;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.conditions.impl.ThunderstormCondition;
+import com.weather.prediction.model.ForecastSlot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WeatherConditionTest {
+
+    private final ForecastSlot calm = new ForecastSlot(1754038800L, 300.0, 2.0, Double.NaN, new String[]{"Clear"});
+
+    private final ForecastSlot stormy = new ForecastSlot(1754038800L, 315.0, 9.5, 3.2, new String[]{"Rain", "Thunderstorm"});
+
+    @Test
+    void testBuiltInConditions() {
+        assertFalse(new HighTemperatureCondition().isApplicable(calm));
+        assertTrue(new HighTemperatureCondition().isApplicable(stormy));
+        assertFalse(new HighWindCondition().isApplicable(calm));
+        assertTrue(new HighWindCondition().isApplicable(stormy));
+        assertFalse(new RainCondition().isApplicable(calm));
+        assertTrue(new RainCondition().isApplicable(stormy));
+        assertFalse(new ThunderstormCondition().isApplicable(calm));
+        assertTrue(new ThunderstormCondition().isApplicable(stormy));
+    }
+
+    @Test
+    void testSlotConditionStillAcceptsJson() {
+        JsonObject jo = JsonParser.parseString("""
+                {"dt": 1754038800, "main": {"temp": 301.2}, "wind": {"speed": 5.1},
+                 "rain": {"3h": 0.4}, "weather": [{"id": 211, "main": "Thunderstorm"}]}
+                """).getAsJsonObject();
+
+        assertTrue(new RainCondition().isApplicable(jo));
+        assertTrue(new HighWindCondition().isApplicable(jo));
+        assertTrue(new ThunderstormCondition().isApplicable(jo));
+        assertFalse(new HighTemperatureCondition().isApplicable(jo));
+    }
+
+    @Test
+    void testJsonConditionAdapter() {
+        WeatherCondition legacy = new WeatherCondition() {
+            @Override
+            public boolean isApplicable(JsonObject jsonObject) {
+                return jsonObject.get("wind").getAsJsonObject().get("speed").getAsDouble() > 9;
+            }
+
+            @Override
+            public String getAlert() {
+                return "Hold on to your hat";
+            }
+        };
+        ForecastSlotCondition adapted = JsonConditionAdapter.adapt(legacy);
+
+        assertInstanceOf(JsonConditionAdapter.class, adapted);
+        assertTrue(adapted.isApplicable(stormy));
+        assertEquals("Hold on to your hat", adapted.getAlert());
+
+        RainCondition rain = new RainCondition();
+        assertSame(rain, JsonConditionAdapter.adapt(rain));
+    }
+}
@@ -0,0 +1,129 @@
+package com.weather.prediction.config.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.config.EncodedResponseHttpMessageConverter;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EncodedResponseHttpMessageConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ForecastCache forecastCache;
+
+    private EncodedResponseHttpMessageConverter converter;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        forecastCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        forecastCache.setObjectMapper(objectMapper);
+        forecastCache.init();
+        converter = new EncodedResponseHttpMessageConverter(objectMapper, meterRegistry);
+    }
+
+    @AfterEach
+    void reset() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testWrite_CopiesCachedEncodingWithSameJsonAsJackson() throws IOException {
+        WeatherResponse wr = forecast("London", 2);
+        forecastCache.put("london", wr);
+        assertNotNull(wr.getEncoded());
+        String expected = objectMapper.writeValueAsString(forecast("London", 2));
+
+        MockHttpOutputMessage message = write(wr);
+
+        assertEquals(expected, message.getBodyAsString());
+        assertFalse(message.getBodyAsString().contains("encoded"));
+        assertEquals(MediaType.APPLICATION_JSON, message.getHeaders().getContentType());
+        assertEquals(expected.length(), message.getHeaders().getContentLength());
+        assertNull(message.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), message.getHeaders().getVary());
+        assertEquals(1, meterRegistry.get("weather.forecast.writes").tag("body", "encoded").counter().count());
+        assertEquals(wr.toString(), forecast("London", 2).toString(), "the encoding must not change the ETag");
+    }
+
+    @Test
+    void testWrite_SendsGzippedCopyToGzipClients() throws IOException {
+        WeatherResponse wr = forecast("London", 40);
+        forecastCache.put("london", wr);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        message.getHeaders().setETag("\"0123abcd\"");
+        converter.write(wr, MediaType.APPLICATION_JSON, message);
+
+        assertEquals("gzip", message.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"0123abcd-gzip\"", message.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), message.getHeaders().getVary());
+        byte[] body = message.getBodyAsBytes();
+        assertEquals(body.length, message.getHeaders().getContentLength());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(wr), in.readAllBytes());
+        }
+        assertSame(wr.getEncoded().gzip(), wr.getEncoded().gzip());
+
+        request.removeHeader(HttpHeaders.ACCEPT_ENCODING);
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0");
+        assertNull(write(wr).getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void testWrite_SerializesResponsesThatAreNotCached() throws IOException {
+        WeatherResponse wr = forecast("Atlantis", 0);
+        wr.setCod("404");
+
+        MockHttpOutputMessage message = write(wr);
+
+        assertEquals(objectMapper.writeValueAsString(wr), message.getBodyAsString());
+        assertEquals(1, meterRegistry.get("weather.forecast.writes").tag("body", "serialized").counter().count());
+        assertFalse(converter.canRead(WeatherResponse.class, MediaType.APPLICATION_JSON));
+    }
+
+    private MockHttpOutputMessage write(WeatherResponse wr) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(wr, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+
+    private static WeatherResponse forecast(String city, int days) {
+        List<ForecastData> forecastData = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            forecastData.add(new ForecastData(280 + day, 290 + day, "2024-01-" + (10 + day % 20), new ArrayList<>(List.of("Carry umbrella"))));
+        }
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod("200");
+        wr.setCity(city);
+        wr.setForecastData(forecastData);
+        return wr;
+    }
+}
@@ -1,21 +1,33 @@
 package com.weather.prediction.controller.test;
 
+import com.weather.prediction.cache.CachedForecast;
 import com.weather.prediction.constant.Message;
 import com.weather.prediction.controller.WeatherController;
 import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.ForecastRefresher;
+import com.weather.prediction.service.ReactiveWeatherService;
 import com.weather.prediction.service.WeatherService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class WeatherControllerTest {
@@ -25,10 +37,16 @@ public class WeatherControllerTest {
     @Mock
     private WeatherService weatherService;
 
+    @Mock
+    private ReactiveWeatherService reactiveWeatherService;
+
+    @Mock
+    private ForecastRefresher forecastRefresher;
+
     @BeforeEach
     void init() {
         MockitoAnnotations.openMocks(this);
-        controller = new WeatherController(weatherService);
+        controller = new WeatherController(weatherService, reactiveWeatherService, forecastRefresher, new SimpleMeterRegistry());
     }
 
     @Test
@@ -40,9 +58,9 @@ public class WeatherControllerTest {
         mockResponse.setCod("200");
         mockResponse.setMessage("Success");
 
-        Mockito.when(weatherService.getWeatherForecast(city)).thenReturn(mockResponse);
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city);
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
 
         assertNotNull(response);
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -59,10 +77,10 @@ public class WeatherControllerTest {
         mockResponse.setCod("401");
         mockResponse.setMessage(Message.INVALID_API_KEY);
 
-        Mockito.when(weatherService.getWeatherForecast(city)).thenReturn(mockResponse);
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
         // Act
-        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city);
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
 
         // Assert
         assertNotNull(response);
@@ -80,10 +98,10 @@ public class WeatherControllerTest {
         mockResponse.setCod("404");
         mockResponse.setMessage(Message.CITY_NOT_FOUND);
 
-        Mockito.when(weatherService.getWeatherForecast(city)).thenReturn(mockResponse);
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
         // Act
-        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city);
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
 
         // Assert
         assertNotNull(response);
@@ -97,11 +115,11 @@ public class WeatherControllerTest {
         // Arrange
         String city = "London";
 
-        Mockito.when(weatherService.getWeatherForecast(city))
-                .thenThrow(new RuntimeException("Some error occurred"));
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Some error occurred")));
 
         // Act
-        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city);
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
 
         // Assert
         assertNotNull(response);
@@ -120,11 +138,185 @@ public class WeatherControllerTest {
         mockResponse.setCod("400");
         mockResponse.setMessage("City parameter is required");
 
-        Mockito.when(weatherService.getWeatherForecast(city)).thenReturn(mockResponse);
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
 
-        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city);
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
 
         assertNotNull(response);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetWeatherForecast_CachedResponseCarriesETagAndMaxAge() {
+        String city = "London";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCity(city);
+        mockResponse.setCod("200");
+        CachedForecast cached = new CachedForecast(mockResponse, 0, 0);
+
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+        Mockito.when(weatherService.getCachedForecast(city)).thenReturn(cached);
+        Mockito.when(weatherService.freshSeconds(cached)).thenReturn(600L);
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(cached.getETag(), response.getHeaders().getETag());
+        assertEquals("max-age=600, public", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void testGetWeatherForecast_MatchingETagReturnsNotModified() {
+        String city = "London";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCod("200");
+        CachedForecast cached = new CachedForecast(mockResponse, 0, 0);
+
+        Mockito.when(weatherService.getCachedForecast(city)).thenReturn(cached);
+        Mockito.when(weatherService.freshSeconds(cached)).thenReturn(120L);
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, "\"other\", W/" + cached.getETag(), null).join();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(cached.getETag(), response.getHeaders().getETag());
+        assertEquals("max-age=120, public", response.getHeaders().getCacheControl());
+        Mockito.verify(weatherService, Mockito.never()).getWeatherForecastAsync(anyString(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecast_StaleEntryIsRevalidated() {
+        String city = "London";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCod("200");
+        CachedForecast cached = new CachedForecast(mockResponse, 0, 0);
+
+        Mockito.when(weatherService.getCachedForecast(city)).thenReturn(cached);
+        Mockito.when(weatherService.freshSeconds(cached)).thenReturn(0L);
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, cached.getETag(), null).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("max-age=0, public", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void testGetWeatherForecast_UncachedResponseIsNotCacheable() {
+        String city = "London";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCod("503");
+        mockResponse.setMessage(Message.SERVICE_UNAVAILABLE);
+
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, null).join();
+
+        assertNull(response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void testGetWeatherForecast_NotModifiedWhenGzipETagMatches() {
+        String city = "London";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCod("200");
+        CachedForecast cached = new CachedForecast(mockResponse, 0, 0);
+        String gzipETag = CachedForecast.gzipETag(cached.getETag());
+
+        Mockito.when(weatherService.getCachedForecast(city)).thenReturn(cached);
+        Mockito.when(weatherService.freshSeconds(cached)).thenReturn(120L);
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, gzipETag, null).join();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(gzipETag, response.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), response.getHeaders().getVary());
+    }
+
+    @Test
+    void testGetWeatherForecast_RequestTimeoutBoundsTheDeadline() {
+        String city = "London";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCod("200");
+
+        Mockito.when(weatherService.deadline(250L)).thenReturn(42L);
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(city), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecast(city, null, 250L).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Mockito.verify(weatherService).getWeatherForecastAsync(city, 42L);
+    }
+
+    @Test
+    void testGetWeatherForecastReactive_NotFound() {
+        String city = "Atlantis";
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCity(city);
+        mockResponse.setCod("404");
+        mockResponse.setMessage("city not found");
+
+        Mockito.when(reactiveWeatherService.getWeatherForecast(city)).thenReturn(Mono.just(mockResponse));
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecastReactive(city, null).block();
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals("city not found", response.getBody().getMessage());
+    }
+
+    @Test
+    void testGetWeatherForecastReactive_ErrorIsInternalServerError() {
+        String city = "London";
+
+        Mockito.when(reactiveWeatherService.getWeatherForecast(city)).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecastReactive(city, null).block();
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals(Message.INTERNAL_SERVER_ERROR, response.getBody().getMessage());
+    }
+
+    @Test
+    void testGetWeatherForecastByCoordinates_CachedCellHasETag() {
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCity("51.50665,-0.12634");
+        mockResponse.setCod("200");
+        CachedForecast cached = new CachedForecast(mockResponse, System.currentTimeMillis(), System.currentTimeMillis() + 60_000);
+
+        Mockito.when(weatherService.getWeatherForecastAsync(eq(51.5074), eq(-0.1278), anyLong())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+        Mockito.when(weatherService.getCachedForecast(51.5074, -0.1278)).thenReturn(cached);
+        Mockito.when(weatherService.freshSeconds(cached)).thenReturn(60L);
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecastByCoordinates(51.5074, -0.1278, null, null).join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(cached.getETag(), response.getHeaders().getETag());
+        Mockito.verify(forecastRefresher, Mockito.never()).recordRequest(anyString());
+    }
+
+    @Test
+    void testGetWeatherForecastById_NotModified() {
+        WeatherResponse mockResponse = new WeatherResponse();
+        mockResponse.setCity("Portland, OR, US");
+        mockResponse.setCod("200");
+        CachedForecast cached = new CachedForecast(mockResponse, System.currentTimeMillis(), System.currentTimeMillis() + 60_000);
+
+        Mockito.when(weatherService.getCachedForecastById(5746545)).thenReturn(cached);
+        Mockito.when(weatherService.freshSeconds(cached)).thenReturn(60L);
+
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecastById(5746545, cached.getETag(), null).join();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        Mockito.verify(weatherService, Mockito.never()).getWeatherForecastByIdAsync(Mockito.anyInt(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecastByCoordinates_OutOfRangeIsBadRequest() {
+        ResponseEntity<WeatherResponse> response = controller.getWeatherForecastByCoordinates(91, 0, null, null).join();
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(Message.INVALID_COORDINATES, response.getBody().getMessage());
+        Mockito.verify(weatherService, Mockito.never()).getWeatherForecastAsync(Mockito.anyDouble(), Mockito.anyDouble(), anyLong());
+    }
+}
@@ -0,0 +1,72 @@
+package com.weather.prediction.parser.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.weather.prediction.parser.ForecastParser;
+import com.weather.prediction.parser.ForecastPayload;
+import com.weather.prediction.support.StubForecastServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ForecastParserTest {
+
+    @Test
+    void testParse_MatchesTreeParse() throws Exception {
+        byte[] body = StubForecastServer.readResource("/payloads/forecast-40.json");
+        ForecastPayload payload = ForecastParser.parse(new ByteArrayInputStream(body));
+        JsonObject tree = JsonParser.parseString(new String(body)).getAsJsonObject();
+        JsonArray list = tree.getAsJsonArray("list");
+
+        assertEquals("200", payload.getCod());
+        assertEquals("0", payload.getMessage());
+        assertEquals(19800, payload.getTimezoneOffsetSeconds());
+        assertEquals(1271476, payload.getCityId());
+        assertTrue(payload.hasList());
+        assertEquals(list.size(), payload.size());
+        for (int i = 0; i < list.size(); i++) {
+            JsonObject slot = list.get(i).getAsJsonObject();
+            assertEquals(slot.get("dt").getAsLong(), payload.dt(i));
+            assertEquals(slot.getAsJsonObject("main").get("temp").getAsDouble(), payload.temp(i));
+            assertEquals(slot.getAsJsonObject("wind").get("speed").getAsDouble(), payload.windSpeed(i));
+            if (slot.has("rain")) {
+                assertEquals(slot.getAsJsonObject("rain").get("3h").getAsDouble(), payload.rain3h(i));
+            } else {
+                assertTrue(Double.isNaN(payload.rain3h(i)));
+            }
+            assertEquals(slot.getAsJsonArray("weather").get(0).getAsJsonObject().get("main").getAsString(),
+                    payload.weatherMain(i)[0]);
+        }
+    }
+
+    @Test
+    void testParse_MissingFields() throws Exception {
+        ForecastPayload payload = ForecastParser.parse(new StringReader("""
+                {"cod": 200, "message": 0, "list": [{"dt": 1638288000, "main": {"temp": 285.15}, "weather": [{"id": 800}]}]}
+                """));
+
+        assertEquals("200", payload.getCod());
+        assertEquals(0, payload.getTimezoneOffsetSeconds());
+        assertEquals(0, payload.getCityId());
+        assertEquals(1, payload.size());
+        assertTrue(Double.isNaN(payload.windSpeed(0)));
+        assertTrue(Double.isNaN(payload.rain3h(0)));
+        assertTrue(payload.slot(0).getWeatherMain().isEmpty());
+        assertFalse(payload.slot(0).toJson().has("rain"));
+    }
+
+    @Test
+    void testParse_NoList() throws Exception {
+        ForecastPayload payload = ForecastParser.parse(new StringReader("{\"cod\": \"404\", \"message\": \"city not found\"}"));
+
+        assertEquals("404", payload.getCod());
+        assertEquals("city not found", payload.getMessage());
+        assertFalse(payload.hasList());
+    }
+}
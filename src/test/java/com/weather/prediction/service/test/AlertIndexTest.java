@@ -0,0 +1,214 @@
+package com.weather.prediction.service.test;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.conditions.impl.HighWindCondition;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.conditions.impl.ThunderstormCondition;
+import com.weather.prediction.model.AlertQueryResponse;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.AlertIndex;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AlertIndexTest {
+
+    private static final String STORM = new ThunderstormCondition().getAlert();
+
+    private static final String WIND = new HighWindCondition().getAlert();
+
+    private static final String RAIN = new RainCondition().getAlert();
+
+    private TestClock clock;
+
+    private ForecastCache forecastCache;
+
+    private AlertIndex alertIndex;
+
+    @BeforeEach
+    void init() {
+        clock = new TestClock();
+        forecastCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()), clock);
+        forecastCache.init();
+        alertIndex = new AlertIndex(forecastCache,
+                List.of(new ThunderstormCondition(), new HighWindCondition(), new RainCondition()),
+                new SimpleMeterRegistry(), clock);
+        alertIndex.init();
+    }
+
+    @Test
+    void testQuery_MatchesAlertsByNameOrTextWithinDays() {
+        forecastCache.put("london", forecast("London", List.of(STORM), List.of(RAIN), List.of(), List.of(WIND)));
+        forecastCache.put("paris", forecast("Paris", List.of(RAIN), List.of(WIND, STORM)));
+        forecastCache.put("rome", forecast("Rome", List.of(RAIN)));
+
+        AlertQueryResponse response = alertIndex.query(List.of("Thunderstorm", "highwind"), 3, 0, 100);
+
+        assertEquals(Set.of(STORM, WIND), new HashSet<>(response.getAlerts()));
+        assertEquals(day(0), response.getFrom());
+        assertEquals(day(2), response.getTo());
+        assertEquals(2, response.getTotal());
+        assertEquals("London", response.getCities().get(0).getCity());
+        assertEquals("london", response.getCities().get(0).getKey());
+        assertEquals(List.of(day(0)), response.getCities().get(0).getDates());
+        assertEquals(List.of(day(1)), response.getCities().get(1).getDates());
+        assertNull(response.getNextCursor());
+
+        assertEquals(List.of("London", "Paris", "Rome"), cities(alertIndex.query(List.of("UMBRELLA"), 3, 0, 100)));
+        assertEquals(List.of("London", "Paris"), cities(alertIndex.query(List.of("windy"), 4, 0, 100)));
+        assertEquals(0, alertIndex.query(List.of("snow"), 3, 0, 100).getTotal());
+    }
+
+    @Test
+    void testUpdate_ReplacesAndDropsCities() {
+        forecastCache.put("london", forecast("London", List.of(STORM)));
+        forecastCache.put("paris", forecast("Paris", List.of(STORM)));
+
+        forecastCache.put("london", forecast("London", List.of(RAIN)));
+        assertEquals(List.of("Paris"), cities(alertIndex.query(List.of("storm"), 3, 0, 100)));
+
+        forecastCache.invalidate("paris");
+        assertEquals(0, alertIndex.query(List.of("storm"), 3, 0, 100).getTotal());
+        assertEquals(1, alertIndex.size());
+
+        forecastCache.put("rome", forecast("Rome", List.of(STORM)));
+        forecastCache.put("london", forecast("London", List.of()));
+        assertEquals(List.of("Rome"), cities(alertIndex.query(List.of("storm"), 3, 0, 100)));
+        assertEquals(1, alertIndex.size());
+    }
+
+    @Test
+    void testUpdate_CountsEntriesOfOneCityOnce() {
+        WeatherResponse byName = forecast("London", List.of(STORM));
+        byName.setCityId(2643743);
+        WeatherResponse byId = forecast("London, England, GB", List.of(), List.of(STORM));
+        byId.setCityId(2643743);
+        forecastCache.put("london", byName);
+        forecastCache.put("id:2643743", byId);
+
+        AlertQueryResponse response = alertIndex.query(List.of("storm"), 3, 0, 100);
+        assertEquals(1, response.getTotal());
+        assertEquals(List.of("London, England, GB"), cities(response));
+        assertEquals("id:2643743", response.getCities().get(0).getKey());
+        assertEquals(List.of(day(1)), response.getCities().get(0).getDates());
+        assertEquals(1, alertIndex.size());
+
+        forecastCache.invalidate("id:2643743");
+        response = alertIndex.query(List.of("storm"), 3, 0, 100);
+        assertEquals(1, response.getTotal());
+        assertEquals("london", response.getCities().get(0).getKey());
+
+        forecastCache.invalidate("london");
+        assertEquals(0, alertIndex.size());
+    }
+
+    @Test
+    void testQuery_PagesThroughAllCities() {
+        for (int i = 0; i < 250; i++) {
+            forecastCache.put("city " + i, forecast("City " + i, i % 2 == 0 ? List.of(STORM) : List.of(WIND)));
+        }
+
+        List<String> seen = new ArrayList<>();
+        Integer cursor = 0;
+        int pages = 0;
+        while (cursor != null) {
+            AlertQueryResponse page = alertIndex.query(List.of("storm", "windy"), 1, cursor, 100);
+            assertEquals(250, page.getTotal());
+            seen.addAll(cities(page));
+            cursor = page.getNextCursor();
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(250, seen.size());
+        assertEquals(250, new HashSet<>(seen).size());
+    }
+
+    @Test
+    void testQuery_PrunesPastDaysAndRejectsInvalidQueries() {
+        forecastCache.put("london", forecast("London", List.of(STORM), List.of(), List.of(STORM)));
+        clock.advance(TimeUnit.DAYS.toMillis(2));
+
+        AlertQueryResponse response = alertIndex.query(List.of("storm"), 1, 0, 100);
+        assertEquals(List.of("London"), cities(response));
+        assertEquals(List.of(day(0)), response.getCities().get(0).getDates());
+
+        clock.advance(TimeUnit.DAYS.toMillis(2));
+        assertEquals(0, alertIndex.query(List.of("storm"), 5, 0, 100).getTotal());
+        assertEquals(0, alertIndex.size());
+
+        assertThrows(IllegalArgumentException.class, () -> alertIndex.query(List.of(" "), 3, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> alertIndex.query(List.of("storm"), 6, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> alertIndex.query(List.of("storm"), 3, -1, 100));
+    }
+
+    private String day(int offset) {
+        return LocalDate.now(clock).plusDays(offset).toString();
+    }
+
+    private static List<String> cities(AlertQueryResponse response) {
+        return response.getCities().stream().map(AlertQueryResponse.AlertCity::getCity).toList();
+    }
+
+    /**
+     * @param alerts alerts of today and the following days, in the clock's current time
+     */
+    @SafeVarargs
+    private WeatherResponse forecast(String city, List<String>... alerts) {
+        List<ForecastData> days = new ArrayList<>();
+        for (int i = 0; i < alerts.length; i++) {
+            days.add(new ForecastData(280, 290, day(i), new ArrayList<>(alerts[i])));
+        }
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod("200");
+        wr.setCity(city);
+        wr.setForecastData(days);
+        return wr;
+    }
+
+    private static class TestClock extends Clock {
+
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.weather.prediction.service.test;
+
+import com.weather.prediction.constant.Message;
+import com.weather.prediction.model.BatchForecastResponse;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.BatchForecastService;
+import com.weather.prediction.service.WeatherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BatchForecastServiceTest {
+
+    @Mock
+    private WeatherService weatherService;
+
+    private ExecutorService executor;
+
+    private BatchForecastService batchForecastService;
+
+    @BeforeEach
+    void init() {
+        MockitoAnnotations.openMocks(this);
+        executor = Executors.newFixedThreadPool(16);
+        batchForecastService = new BatchForecastService(weatherService, executor);
+        batchForecastService.maxCities = 5;
+        batchForecastService.maxConcurrencyPerBatch = 2;
+        batchForecastService.timeoutMs = 2000;
+        batchForecastService.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testGetWeatherForecasts_PartialResultsInRequestOrder() {
+        when(weatherService.getWeatherForecastAsync(anyString(), anyLong())).thenAnswer(inv -> CompletableFuture.completedFuture(response(inv.getArgument(0), "200")));
+        when(weatherService.getWeatherForecastAsync(eq("Atlantis"), anyLong())).thenAnswer(inv -> CompletableFuture.completedFuture(response("Atlantis", "404")));
+        when(weatherService.getWeatherForecastAsync(eq("Boom"), anyLong())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("boom")));
+
+        BatchForecastResponse response = batchForecastService.getWeatherForecasts(List.of("London", "Atlantis", "Boom", "Paris"));
+
+        assertEquals(4, response.getRequested());
+        assertEquals(2, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        assertEquals(List.of("London", "Atlantis", "Boom", "Paris"),
+                response.getForecasts().stream().map(WeatherResponse::getCity).toList());
+        assertEquals(List.of("200", "404", "500", "200"),
+                response.getForecasts().stream().map(WeatherResponse::getCod).toList());
+    }
+
+    @Test
+    void testGetWeatherForecasts_DuplicatesLookedUpOnce() {
+        when(weatherService.getWeatherForecastAsync(anyString(), anyLong())).thenAnswer(inv -> CompletableFuture.completedFuture(response(inv.getArgument(0), "200")));
+
+        BatchForecastResponse response = batchForecastService.getWeatherForecasts(List.of("London", " london ", "LONDON"));
+
+        assertEquals(1, response.getRequested());
+        verify(weatherService, times(1)).getWeatherForecastAsync(anyString(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecasts_ConcurrencyIsCappedPerBatch() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(weatherService.getWeatherForecastAsync(anyString(), anyLong())).thenAnswer(inv -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return CompletableFuture.completedFuture(response(inv.getArgument(0), "200"));
+        });
+
+        BatchForecastResponse response = batchForecastService.getWeatherForecasts(List.of("a", "b", "c", "d", "e"));
+
+        assertEquals(5, response.getSucceeded());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    void testGetWeatherForecasts_SlowCityTimesOut() {
+        batchForecastService.timeoutMs = 100;
+        when(weatherService.getWeatherForecastAsync(eq("London"), anyLong())).thenAnswer(inv -> CompletableFuture.completedFuture(response("London", "200")));
+        when(weatherService.getWeatherForecastAsync(eq("Slow"), anyLong())).thenAnswer(inv -> {
+            Thread.sleep(2000);
+            return CompletableFuture.completedFuture(response("Slow", "200"));
+        });
+
+        BatchForecastResponse response = batchForecastService.getWeatherForecasts(List.of("London", "Slow"));
+
+        assertEquals("200", response.getForecasts().get(0).getCod());
+        assertEquals("504", response.getForecasts().get(1).getCod());
+        assertEquals(Message.GATEWAY_TIMEOUT, response.getForecasts().get(1).getMessage());
+    }
+
+    @Test
+    void testGetWeatherForecasts_TimedOutLookupIsCancelledAndFreesItsPermit() throws InterruptedException {
+        batchForecastService.timeoutMs = 100;
+        batchForecastService.maxConcurrency = 1;
+        batchForecastService.init();
+        CompletableFuture<WeatherResponse> hanging = new CompletableFuture<>();
+        when(weatherService.getWeatherForecastAsync(eq("Hang"), anyLong())).thenReturn(hanging);
+        when(weatherService.getWeatherForecastAsync(eq("London"), anyLong())).thenAnswer(inv -> CompletableFuture.completedFuture(response("London", "200")));
+
+        assertEquals("504", batchForecastService.getWeatherForecasts(List.of("Hang")).getForecasts().get(0).getCod());
+        for (int i = 0; i < 100 && !hanging.isCancelled(); i++) Thread.sleep(10);
+
+        assertTrue(hanging.isCancelled());
+        assertEquals("200", batchForecastService.getWeatherForecasts(List.of("London")).getForecasts().get(0).getCod());
+    }
+
+    @Test
+    void testGetWeatherForecasts_LookupsAreBoundedByTheBatchTimeout() {
+        batchForecastService.timeoutMs = 500;
+        when(weatherService.deadline(anyLong())).thenReturn(42L);
+        when(weatherService.getWeatherForecastAsync(anyString(), anyLong()))
+                .thenAnswer(inv -> CompletableFuture.completedFuture(response(inv.getArgument(0), "200")));
+
+        batchForecastService.getWeatherForecasts(List.of("London"));
+
+        ArgumentCaptor<Long> budget = ArgumentCaptor.forClass(Long.class);
+        verify(weatherService).deadline(budget.capture());
+        assertTrue(budget.getValue() <= 500);
+        verify(weatherService).getWeatherForecastAsync("London", 42L);
+    }
+
+    @Test
+    void testGetWeatherForecasts_RejectsTooManyCities() {
+        assertThrows(IllegalArgumentException.class,
+                () -> batchForecastService.getWeatherForecasts(List.of("a", "b", "c", "d", "e", "f")));
+        assertThrows(IllegalArgumentException.class, () -> batchForecastService.getWeatherForecasts(List.of(" ")));
+    }
+
+    private static WeatherResponse response(String city, String cod) {
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCity(city);
+        wr.setCod(cod);
+        return wr;
+    }
+}
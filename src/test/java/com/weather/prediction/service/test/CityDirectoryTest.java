@@ -0,0 +1,84 @@
+package com.weather.prediction.service.test;
+
+import com.weather.prediction.model.CitySuggestion;
+import com.weather.prediction.service.CityDirectory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CityDirectoryTest {
+
+    private CityDirectory directory;
+
+    @BeforeAll
+    void init() {
+        directory = new CityDirectory();
+        directory.init();
+    }
+
+    @Test
+    void testBundledListIsLoaded() {
+        assertTrue(directory.size() > 100);
+        CitySuggestion london = directory.get(2643743);
+        assertEquals("London", london.getName());
+        assertEquals("GB", london.getCountry());
+        assertEquals(51.50853, london.getLat());
+        assertNull(directory.get(1));
+    }
+
+    @Test
+    void testSuggestRanksExactMatchFirst() {
+        List<CitySuggestion> suggestions = directory.suggest("london", 10);
+
+        assertEquals(List.of(2643743, 6058560), suggestions.stream().map(CitySuggestion::getId).toList());
+        assertEquals("London, CA", CityDirectory.label(suggestions.get(1)));
+    }
+
+    @Test
+    void testSuggestMatchesPrefixIgnoringCaseAccentsAndSpaces() {
+        assertEquals("São Paulo", directory.suggest("  SAO   pau", 5).get(0).getName());
+        assertEquals("Kraków", directory.suggest("krako", 5).get(0).getName());
+        assertEquals("Köln", directory.suggest("Köln", 5).get(0).getName());
+        assertTrue(directory.suggest("zzz", 5).isEmpty());
+        assertTrue(directory.suggest(" ", 5).isEmpty());
+    }
+
+    @Test
+    void testSuggestFiltersByStateOrCountry() {
+        assertEquals(List.of(4975802), directory.suggest("portland, me", 5).stream().map(CitySuggestion::getId).toList());
+        assertEquals(List.of(6058560), directory.suggest("lond, ca", 5).stream().map(CitySuggestion::getId).toList());
+        assertEquals(3, directory.suggest("springfield, US", 5).size());
+    }
+
+    @Test
+    void testSuggestHonoursLimit() {
+        List<CitySuggestion> all = directory.suggest("s", 100);
+        List<CitySuggestion> top = directory.suggest("s", 3);
+
+        assertTrue(all.size() > 3);
+        assertEquals(all.subList(0, 3), top);
+        assertTrue(top.get(0).getName().length() <= top.get(2).getName().length());
+    }
+
+    @Test
+    void testLoadReplacesDirectory() throws Exception {
+        CityDirectory custom = new CityDirectory();
+        custom.load(new ByteArrayInputStream("""
+                [{"id": 7, "name": "Ruritania", "state": null, "country": "RU", "coord": {"lon": 1.5, "lat": 2.5}},
+                 {"id": 8, "name": "", "country": "RU", "coord": {"lon": 0, "lat": 0}}]
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, custom.size());
+        assertEquals(new CitySuggestion(7, "Ruritania", "", "RU", 2.5, 1.5), custom.get(7));
+        assertEquals("Ruritania, RU", CityDirectory.label(custom.get(7)));
+    }
+}
@@ -0,0 +1,144 @@
+package com.weather.prediction.service.test;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.ForecastRefresher;
+import com.weather.prediction.service.ForecastSubscriptions;
+import com.weather.prediction.service.WeatherService;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ForecastRefresherTest {
+
+    @Mock
+    private WeatherService weatherService;
+
+    private ForecastCache forecastCache;
+
+    private List<Runnable> submitted;
+
+    private ForecastRefresher refresher;
+
+    @BeforeEach
+    void init() {
+        MockitoAnnotations.openMocks(this);
+        forecastCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        forecastCache.ttlSeconds = 600;
+        forecastCache.init();
+        submitted = new ArrayList<>();
+        refresher = new ForecastRefresher(weatherService, forecastCache, submitted::add, new SimpleMeterRegistry());
+        refresher.intervalSeconds = 0;
+        refresher.refreshAheadSeconds = 300;
+        refresher.topN = 2;
+        refresher.init();
+        when(weatherService.refreshWeatherForecast(anyString())).thenAnswer(inv -> response("200"));
+    }
+
+    @Test
+    void testWarmCitiesAreFetchedWhenMissing() {
+        refresher.warmCities = List.of("London", " paris ");
+        forecastCache.put("paris", response("200"));
+
+        assertEquals(1, refresher.refreshDue());
+        submitted.forEach(Runnable::run);
+
+        verify(weatherService).refreshWeatherForecast("London");
+        verify(weatherService, never()).refreshWeatherForecast("paris");
+    }
+
+    @Test
+    void testSubscribedCitiesAreKeptFresh() {
+        ForecastSubscriptions subscriptions = mock(ForecastSubscriptions.class);
+        when(subscriptions.refreshers()).thenReturn(Map.of(
+                "id:5746545", () -> weatherService.refreshWeatherForecastById(5746545),
+                "paris", () -> weatherService.refreshWeatherForecast("Paris")));
+        when(weatherService.refreshWeatherForecastById(5746545)).thenReturn(response("200"));
+        refresher.setSubscriptions(subscriptions);
+        forecastCache.put("paris", response("200"));
+
+        assertEquals(1, refresher.refreshDue());
+        submitted.forEach(Runnable::run);
+
+        verify(weatherService).refreshWeatherForecastById(5746545);
+        verify(weatherService, never()).refreshWeatherForecast(anyString());
+    }
+
+    @Test
+    void testOnlyHotCachedCitiesCloseToExpiryAreRefreshed() {
+        forecastCache.ttlSeconds = 200;
+        forecastCache.put("london", response("200"));
+        forecastCache.ttlSeconds = 600;
+        forecastCache.put("paris", response("200"));
+        for (int i = 0; i < 3; i++) refresher.recordRequest("London");
+        for (int i = 0; i < 2; i++) refresher.recordRequest("Paris");
+        refresher.recordRequest("Atlantis");
+
+        assertEquals(1, refresher.refreshDue());
+        submitted.forEach(Runnable::run);
+
+        verify(weatherService).refreshWeatherForecast("London");
+        verifyNoMoreInteractions(weatherService);
+    }
+
+    @Test
+    void testHotCityIdsAreRefreshedById() {
+        forecastCache.ttlSeconds = 200;
+        forecastCache.put(WeatherService.cityIdKey(5746545), response("200"));
+        when(weatherService.refreshWeatherForecastById(5746545)).thenReturn(response("200"));
+        refresher.recordRequest(5746545);
+
+        assertEquals(1, refresher.refreshDue());
+        submitted.forEach(Runnable::run);
+
+        verify(weatherService).refreshWeatherForecastById(5746545);
+        verify(weatherService, never()).refreshWeatherForecast(anyString());
+    }
+
+    @Test
+    void testCityIsNotSubmittedTwiceWhileInFlight() {
+        refresher.warmCities = List.of("London");
+
+        assertEquals(1, refresher.refreshDue());
+        assertEquals(0, refresher.refreshDue());
+        submitted.forEach(Runnable::run);
+        assertEquals(1, refresher.refreshDue());
+    }
+
+    @Test
+    void testRejectedRefreshesAreRetriedOnTheNextRun() {
+        AtomicBoolean reject = new AtomicBoolean(true);
+        ForecastRefresher bounded = new ForecastRefresher(weatherService, forecastCache, task -> {
+            if (reject.get()) throw new RejectedExecutionException("full");
+            submitted.add(task);
+        }, new SimpleMeterRegistry());
+        bounded.intervalSeconds = 0;
+        bounded.warmCities = List.of("London");
+        bounded.init();
+
+        assertEquals(0, bounded.refreshDue());
+        reject.set(false);
+        assertEquals(1, bounded.refreshDue());
+    }
+
+    private static WeatherResponse response(String cod) {
+        WeatherResponse wr = new WeatherResponse();
+        wr.setCod(cod);
+        return wr;
+    }
+}
@@ -0,0 +1,252 @@
+package com.weather.prediction.service.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.model.ForecastData;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.ForecastSubscriptions;
+import com.weather.prediction.service.WeatherService;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ForecastSubscriptionsTest {
+
+    @Mock
+    private WeatherService weatherService;
+
+    private ForecastCache forecastCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private List<RecordingEmitter> emitters;
+
+    private Executor executor;
+
+    private List<Runnable> closes;
+
+    private ForecastSubscriptions subscriptions;
+
+    @BeforeEach
+    void init() {
+        MockitoAnnotations.openMocks(this);
+        forecastCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        forecastCache.init();
+        meterRegistry = new SimpleMeterRegistry();
+        emitters = new ArrayList<>();
+        executor = Runnable::run;
+        closes = new ArrayList<>();
+        subscriptions = new ForecastSubscriptions(weatherService, forecastCache, new ObjectMapper(),
+                task -> executor.execute(task), closes::add, meterRegistry) {
+            @Override
+            protected SseEmitter createEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        subscriptions.heartbeatSeconds = 0;
+        subscriptions.sendTimeoutMs = 0;
+        subscriptions.bufferSize = 2;
+        subscriptions.init();
+        when(weatherService.getWeatherForecastAsync(anyString(), anyLong())).thenAnswer(inv -> {
+            String city = inv.getArgument(0);
+            return CompletableFuture.completedFuture("Atlantis".equals(city) ? response(city, "404") : forecast(city, "umbrella"));
+        });
+    }
+
+    @Test
+    void testSubscriptionStartsWithCurrentForecasts() {
+        subscriptions.subscribe(List.of("London", " london ", "Paris"), List.of(), false);
+
+        RecordingEmitter emitter = emitters.get(0);
+        assertEquals(2, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("event:forecast"));
+        assertTrue(emitter.events.get(0).contains("\"city\":\"London\""));
+        assertEquals(2, subscriptions.refreshers().size());
+        assertEquals(1, subscriptions.size());
+    }
+
+    @Test
+    void testOnlyChangedForecastsArePushed() {
+        subscriptions.subscribe(List.of("London"), List.of(), false);
+        subscriptions.subscribe(List.of("London"), List.of(), true);
+        RecordingEmitter all = emitters.get(0);
+        RecordingEmitter alertsOnly = emitters.get(1);
+
+        forecastCache.put("london", forecast("London", "umbrella"));
+        assertEquals(1, all.events.size());
+
+        WeatherResponse warmer = forecast("London", "umbrella");
+        warmer.getForecastData().get(0).setMax_temp(300);
+        forecastCache.put("london", warmer);
+        assertEquals(2, all.events.size());
+        assertEquals(1, alertsOnly.events.size());
+
+        forecastCache.put("london", forecast("London", "sunscreen"));
+        forecastCache.put("paris", forecast("Paris", "sunscreen"));
+        assertEquals(3, all.events.size());
+        assertEquals(2, alertsOnly.events.size());
+        assertTrue(alertsOnly.events.get(1).contains("sunscreen"));
+    }
+
+    @Test
+    void testSlowSubscriberIsDropped() {
+        List<Runnable> stalled = new ArrayList<>();
+        executor = stalled::add;
+        subscriptions.subscribe(List.of("London"), List.of(), false);
+        subscriptions.subscribe(List.of("London"), List.of(), false);
+        stalled.get(1).run();
+        stalled.remove(1);
+
+        // first subscriber: 1 initial event, room for 1 + bufferSize
+        for (int i = 0; i < 3; i++) forecastCache.put("london", forecast("London", "alert " + i));
+
+        assertEquals(1, subscriptions.size());
+        assertEquals(1, meterRegistry.counter("weather.subscriptions.dropped", "reason", "slow").count());
+        closes.forEach(Runnable::run);
+        assertTrue(emitters.get(0).completed);
+        executor = Runnable::run;
+        stalled.forEach(Runnable::run);
+        assertEquals(4, emitters.get(1).events.size());
+    }
+
+    @Test
+    void testSubscriberStuckInSendIsDropped() throws Exception {
+        subscriptions.sendTimeoutMs = 50;
+        executor = task -> new Thread(task).start();
+        subscriptions.subscribe(List.of("London"), List.of(), false);
+        RecordingEmitter stuck = emitters.get(0);
+        stuck.release = new CountDownLatch(1);
+        forecastCache.put("london", forecast("London", "storm"));
+        try {
+            assertTrue(stuck.blocked.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+
+            forecastCache.put("london", forecast("London", "hail"));
+
+            assertEquals(0, subscriptions.size());
+            assertEquals(1, meterRegistry.counter("weather.subscriptions.dropped", "reason", "slow").count());
+            assertEquals(1, closes.size());
+        } finally {
+            stuck.release.countDown();
+        }
+    }
+
+    @Test
+    void testSubscriptionIsReturnedBeforeLookupsComplete() {
+        CompletableFuture<WeatherResponse> lookup = new CompletableFuture<>();
+        when(weatherService.getWeatherForecastAsync(eq("Paris"), anyLong())).thenReturn(lookup);
+
+        subscriptions.subscribe(List.of("Paris"), List.of(), false);
+        assertTrue(emitters.get(0).events.isEmpty());
+        assertEquals(1, subscriptions.size());
+
+        lookup.complete(forecast("Paris", "umbrella"));
+        assertEquals(1, emitters.get(0).events.size());
+        assertEquals(Set.of("paris"), subscriptions.refreshers().keySet());
+    }
+
+    @Test
+    void testUnknownCitiesAreReportedAndNotSubscribed() {
+        subscriptions.subscribe(List.of("Atlantis"), List.of(), false);
+
+        assertTrue(emitters.get(0).events.get(0).contains("event:error"));
+        assertTrue(emitters.get(0).completed);
+        assertEquals(0, subscriptions.size());
+        assertTrue(subscriptions.refreshers().isEmpty());
+    }
+
+    @Test
+    void testSubscriptionByCityId() {
+        when(weatherService.getWeatherForecastByIdAsync(eq(5746545), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(forecast("Portland, OR, US", "umbrella")));
+
+        subscriptions.subscribe(List.of(), List.of(5746545, 5746545), false);
+        forecastCache.put(WeatherService.cityIdKey(5746545), forecast("Portland, OR, US", "windy"));
+
+        assertEquals(2, emitters.get(0).events.size());
+        assertEquals(Set.of("id:5746545"), subscriptions.refreshers().keySet());
+    }
+
+    @Test
+    void testSubscriptionLimits() {
+        subscriptions.maxCities = 2;
+        assertThrows(IllegalArgumentException.class, () -> subscriptions.subscribe(List.of(" "), List.of(), false));
+        assertThrows(IllegalArgumentException.class, () -> subscriptions.subscribe(List.of("a", "b"), List.of(1), false));
+
+        subscriptions.maxSubscribers = 1;
+        subscriptions.subscribe(List.of("London"), List.of(), false);
+        assertThrows(IllegalStateException.class, () -> subscriptions.subscribe(List.of("Paris"), List.of(), false));
+    }
+
+    private static WeatherResponse forecast(String city, String alert) {
+        WeatherResponse response = response(city, "200");
+        response.setForecastData(List.of(new ForecastData(280, 290, "2026-10-18", new ArrayList<>(List.of(alert)))));
+        return response;
+    }
+
+    private static WeatherResponse response(String city, String cod) {
+        WeatherResponse response = new WeatherResponse();
+        response.setCity(city);
+        response.setCod(cod);
+        return response;
+    }
+
+    /**
+     * Records the text of each event instead of writing it to a connection.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        final List<String> events = new ArrayList<>();
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+
+        /** When set, sends block until it is released, like a client that stopped reading. */
+        volatile CountDownLatch release;
+
+        boolean completed;
+
+        @Override
+        public synchronized void send(Set<ResponseBodyEmitter.DataWithMediaType> items) throws IOException {
+            if (release != null) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            events.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+}
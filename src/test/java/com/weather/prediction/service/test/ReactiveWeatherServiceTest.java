@@ -0,0 +1,173 @@
+package com.weather.prediction.service.test;
+
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.constant.Message;
+import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.service.ReactiveWeatherService;
+import com.weather.prediction.service.WeatherService;
+import com.weather.prediction.support.StubForecastServer;
+import com.weather.prediction.utils.AsyncRetry;
+import com.weather.prediction.utils.ReactiveApiUtils;
+import com.weather.prediction.utils.SingleFlight;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReactiveWeatherServiceTest {
+
+    private StubForecastServer stub;
+
+    private SingleFlight singleFlight;
+
+    private ForecastCache forecastCache;
+
+    private WeatherService weatherService;
+
+    private ReactiveWeatherService reactiveWeatherService;
+
+    @BeforeAll
+    void init() {
+        stub = new StubForecastServer("/payloads/forecast-40.json", 32).unknownCities(Set.of("Atlantis")).start();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+        forecastCache = new ForecastCache(Runnable::run, singleFlight);
+        forecastCache.init();
+        weatherService = new WeatherService(List.of(new RainCondition()), null, forecastCache, meterRegistry);
+        weatherService.url = stub.forecastUrl();
+        weatherService.key = "test-api-key";
+        weatherService.cnt = "40";
+        AsyncRetry asyncRetry = new AsyncRetry(Runnable::run, meterRegistry);
+        asyncRetry.initialBackoffMs = 1;
+        ReactiveApiUtils reactiveApiUtils = new ReactiveApiUtils(WebClient.create(), asyncRetry,
+                CircuitBreaker.ofDefaults("test"), Bulkhead.ofDefaults("test"), meterRegistry);
+        reactiveWeatherService = new ReactiveWeatherService(weatherService, reactiveApiUtils, forecastCache);
+    }
+
+    @AfterAll
+    void close() {
+        stub.close();
+    }
+
+    @BeforeEach
+    void reset() {
+        forecastCache.invalidateAll();
+        stub.resetRequestCount();
+        stub.latencyMs(0).errorRate(0);
+    }
+
+    @Test
+    void testForecastIsAggregatedAndCached() {
+        WeatherResponse wr = reactiveWeatherService.getWeatherForecast("London").block(Duration.ofSeconds(10));
+
+        assertEquals("200", wr.getCod());
+        assertEquals(3, wr.getForecastData().size());
+        assertSame(wr, forecastCache.getEntry("london").getResponse());
+
+        assertSame(wr, reactiveWeatherService.getWeatherForecast(" LONDON ").block(Duration.ofSeconds(10)));
+        assertEquals(1, stub.requestCount());
+    }
+
+    @Test
+    void testUpstreamErrorBodyIsPassedThrough() {
+        WeatherResponse wr = reactiveWeatherService.getWeatherForecast("Atlantis").block(Duration.ofSeconds(10));
+
+        assertEquals("404", wr.getCod());
+        assertEquals("city not found", wr.getMessage());
+        assertNull(forecastCache.getEntry("atlantis"));
+    }
+
+    @Test
+    void testServerErrorIsPassedThroughWithoutRetry() {
+        stub.errorRate(1);
+
+        WeatherResponse wr = reactiveWeatherService.getWeatherForecast("Paris").block(Duration.ofSeconds(10));
+
+        assertEquals("500", wr.getCod());
+        assertEquals("Internal error", wr.getMessage());
+        assertEquals(1, stub.requestCount());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneUpstreamCall() {
+        stub.latencyMs(200);
+
+        List<WeatherResponse> responses = Flux.range(0, 20)
+                .flatMap(i -> reactiveWeatherService.getWeatherForecast("Berlin"))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(20, responses.size());
+        assertTrue(responses.stream().allMatch(wr -> "200".equals(wr.getCod())));
+        assertEquals(1, stub.requestCount());
+    }
+
+    @Test
+    void testMissJoinsBlockingLookupInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherResponse loaded = new WeatherResponse();
+        loaded.setCod("200");
+        loaded.setCity("Madrid");
+        CompletableFuture<WeatherResponse> blocking = CompletableFuture.supplyAsync(() -> forecastCache.get("madrid", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loaded;
+        }));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.inFlightCount() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+
+        CompletableFuture<WeatherResponse> reactive = reactiveWeatherService.getWeatherForecast("Madrid").toFuture();
+        release.countDown();
+
+        assertSame(loaded, blocking.get(10, TimeUnit.SECONDS));
+        assertEquals("Madrid", reactive.get(10, TimeUnit.SECONDS).getCity());
+        assertEquals(0, stub.requestCount());
+    }
+
+    @Test
+    void testOpenCircuitFallsBackToLastKnownGood() throws InterruptedException {
+        ForecastCache expiringCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        expiringCache.ttlSeconds = 0;
+        expiringCache.staleWhileRevalidateSeconds = 0;
+        expiringCache.init();
+        WeatherService service = new WeatherService(List.of(new RainCondition()), null, expiringCache, new SimpleMeterRegistry());
+        service.url = stub.forecastUrl();
+        service.key = "test-api-key";
+        service.cnt = "40";
+        CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("open");
+        ReactiveWeatherService reactive = new ReactiveWeatherService(service, new ReactiveApiUtils(WebClient.create(),
+                new AsyncRetry(Runnable::run, new SimpleMeterRegistry()), circuitBreaker, Bulkhead.ofDefaults("test"),
+                new SimpleMeterRegistry()), expiringCache);
+
+        WeatherResponse good = reactive.getWeatherForecast("Rome").block(Duration.ofSeconds(10));
+        Thread.sleep(5); // with ttl 0 the entry is still servable within the millisecond it was fetched
+        circuitBreaker.transitionToForcedOpenState();
+        WeatherResponse wr = reactive.getWeatherForecast("Rome").block(Duration.ofSeconds(10));
+
+        assertEquals("200", good.getCod());
+        assertTrue(wr.isStale());
+        assertEquals(Message.STALE_DATA, wr.getMessage());
+        assertEquals(good.getForecastData(), wr.getForecastData());
+        assertEquals(1, stub.requestCount());
+    }
+}
@@ -2,24 +2,47 @@ package com.weather.prediction.service.test;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.weather.prediction.cache.ForecastCache;
+import com.weather.prediction.cache.NegativeCache;
 import com.weather.prediction.conditions.WeatherCondition;
+import com.weather.prediction.conditions.impl.HighWindCondition;
+import com.weather.prediction.conditions.impl.RainCondition;
+import com.weather.prediction.conditions.rules.AlertRuleEngine;
 import com.weather.prediction.constant.Message;
 import com.weather.prediction.exception.CustomRuntimeException;
 import com.weather.prediction.model.ForecastData;
 import com.weather.prediction.model.WeatherResponse;
+import com.weather.prediction.parser.ForecastParser;
+import com.weather.prediction.parser.ForecastPayload;
 
+import com.weather.prediction.service.CityDirectory;
 import com.weather.prediction.service.WeatherService;
 import com.weather.prediction.utils.ApiUtils;
+import com.weather.prediction.utils.Geohash;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientResponseException;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -28,6 +51,10 @@ public class WeatherServiceTest {
 
     private WeatherService weatherService;
 
+    private ForecastCache forecastCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
     @Mock
     private ApiUtils apiUtils;
 
@@ -39,19 +66,33 @@ public class WeatherServiceTest {
     private final String apiUrl = "http://test.api.url";
     private final String apiCnt = "40";
 
+    private static final String EMPTY_FORECAST = """
+            {
+                "cod": "200",
+                "message": 0,
+                "list": []
+            }
+            """;
+
     @BeforeAll
     void init() {
         MockitoAnnotations.openMocks(this);
-        weatherService = new WeatherService(List.of(weatherCondition), apiUtils);
+        meterRegistry = new SimpleMeterRegistry();
+        forecastCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        forecastCache.init();
+        weatherService = new WeatherService(List.of(weatherCondition), apiUtils, forecastCache, meterRegistry);
         weatherService.url = apiUrl;
         weatherService.key = apiKey;
         weatherService.cnt = apiCnt;
+        weatherService.init();
     }
 
 
     @BeforeEach
     void reset(){
         Mockito.reset(apiUtils);
+        when(apiUtils.deadlineWithin(any())).thenAnswer(invocation -> System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        forecastCache.invalidateAll();
     }
 
     @Test
@@ -80,7 +121,7 @@ public class WeatherServiceTest {
             }
             """;
 
-        when(apiUtils.callGetApiWithRetry(anyString())).thenReturn(mockResponse);
+        stubResponse(mockResponse);
         when(weatherCondition.isApplicable(any())).thenReturn(false);
 
         WeatherResponse response = weatherService.getWeatherForecast(testCity);
@@ -117,14 +158,48 @@ public class WeatherServiceTest {
             }
             """;
 
-        when(apiUtils.callGetApiWithRetry(anyString())).thenReturn(mockResponse);
+        stubResponse(mockResponse);
         when(weatherCondition.isApplicable(any())).thenReturn(true);
         when(weatherCondition.getAlert()).thenReturn("Carry Umbrella");
+        double alertsBefore = meterRegistry.get("weather.forecast.alerts").counter().count();
+        double slotsBefore = meterRegistry.get("weather.forecast.slots").summary().totalAmount();
 
         WeatherResponse response = weatherService.getWeatherForecast(testCity);
 
         assertEquals(1, response.getForecastData().get(0).getAlerts().size());
         assertEquals("Carry Umbrella", response.getForecastData().get(0).getAlerts().get(0));
+        assertEquals(alertsBefore + 1, meterRegistry.get("weather.forecast.alerts").counter().count());
+        assertEquals(slotsBefore + 2, meterRegistry.get("weather.forecast.slots").summary().totalAmount());
+        assertTrue(meterRegistry.get("weather.forecast.parse").timer().count() > 0);
+    }
+
+    @Test
+    void testGetWeatherForecast_BucketsByCityLocalDay() throws Exception {
+        String mockResponse = """
+            {
+                "cod": "200",
+                "message": 0,
+                "list": [
+                    {"dt": 1754283600, "main": {"temp": 297.0}, "weather": []},
+                    {"dt": 1754006400, "main": {"temp": 300.0}, "weather": []},
+                    {"dt": 1754073000, "main": {"temp": 290.0}, "weather": []},
+                    {"dt": 1754370000, "main": {"temp": 500.0}, "weather": []},
+                    {"dt": 1754110800, "main": {"temp": 295.0}, "weather": []},
+                    {"dt": 1754197200, "main": {"temp": 296.0}, "weather": []}
+                ],
+                "city": {"name": "Guwahati", "timezone": 19800}
+            }
+            """;
+
+        stubResponse(mockResponse);
+        when(weatherCondition.isApplicable(any())).thenReturn(false);
+
+        List<ForecastData> days = weatherService.getWeatherForecast(testCity).getForecastData();
+
+        assertEquals(List.of("2025-08-02", "2025-08-03", "2025-08-04"), days.stream().map(ForecastData::getDt_txt).toList());
+        assertEquals(290, days.get(0).getMin_temp());
+        assertEquals(295, days.get(0).getMax_temp());
+        assertEquals(297, days.get(2).getMax_temp());
     }
 
     @Test
@@ -137,7 +212,7 @@ public class WeatherServiceTest {
             }
             """;
 
-        when(apiUtils.callGetApiWithRetry(anyString())).thenReturn(mockResponse);
+        stubResponse(mockResponse);
 
         WeatherResponse response = weatherService.getWeatherForecast(testCity);
 
@@ -149,8 +224,8 @@ public class WeatherServiceTest {
 
     @Test
     void testGetWeatherForecast_ResourceAccessException() throws Exception {
-        when(apiUtils.callGetApiWithRetry(anyString()))
-                .thenThrow(new ResourceAccessException("Service unavailable"));
+        when(apiUtils.callGetApiAsync(anyString(), any(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new ResourceAccessException("Service unavailable")));
 
         WeatherResponse response = weatherService.getWeatherForecast(testCity);
 
@@ -158,4 +233,203 @@ public class WeatherServiceTest {
         assertEquals(Message.SERVICE_UNAVAILABLE, response.getMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testGetWeatherForecast_ServedFromCache() throws Exception {
+        String mockResponse = """
+            {
+                "cod": "200",
+                "message": 0,
+                "list": []
+            }
+            """;
+
+        stubResponse(mockResponse);
+
+        WeatherResponse first = weatherService.getWeatherForecast(testCity);
+        WeatherResponse second = weatherService.getWeatherForecast(" " + testCity.toUpperCase() + " ");
+
+        assertSame(first, second);
+        verify(apiUtils, times(1)).callGetApiAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecast_ErrorsAreNotCached() throws Exception {
+        when(apiUtils.callGetApiAsync(anyString(), any(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new ResourceAccessException("Service unavailable")));
+
+        weatherService.getWeatherForecast(testCity);
+        weatherService.getWeatherForecast(testCity);
+
+        verify(apiUtils, times(2)).callGetApiAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecast_ServesStaleWhenUpstreamUnavailable() throws Exception {
+        ForecastCache expiringCache = new ForecastCache(Runnable::run, new SingleFlight(new SimpleMeterRegistry()));
+        expiringCache.ttlSeconds = 0;
+        expiringCache.staleWhileRevalidateSeconds = 0;
+        expiringCache.init();
+        WeatherService service = new WeatherService(List.of(weatherCondition), apiUtils, expiringCache, new SimpleMeterRegistry());
+        service.url = apiUrl;
+        service.key = apiKey;
+        service.cnt = apiCnt;
+
+        stubResponse("""
+            {
+                "cod": "200",
+                "message": 0,
+                "list": []
+            }
+            """);
+        WeatherResponse fresh = service.getWeatherForecast(testCity);
+        assertFalse(fresh.isStale());
+
+        doReturn(CompletableFuture.failedFuture(new ResourceAccessException("Service unavailable")))
+                .when(apiUtils).callGetApiAsync(anyString(), any(), anyLong());
+        WeatherResponse stale = service.getWeatherForecast(testCity);
+
+        assertEquals("200", stale.getCod());
+        assertTrue(stale.isStale());
+        assertEquals(Message.STALE_DATA, stale.getMessage());
+        assertEquals(fresh.getForecastData(), stale.getForecastData());
+    }
+
+    @Test
+    void testGetWeatherForecastByCoordinates_SharesCellFetchedForItsCentre() throws Exception {
+        stubResponse(EMPTY_FORECAST);
+        double[] centre = Geohash.decode(Geohash.encode(51.5074, -0.1278, 6));
+
+        WeatherResponse first = weatherService.getWeatherForecast(centre[0] + 0.001, centre[1] - 0.002);
+        WeatherResponse second = weatherService.getWeatherForecast(centre[0] - 0.001, centre[1] + 0.002);
+
+        assertEquals("200", first.getCod());
+        assertSame(first, second);
+        assertEquals(String.format(Locale.ROOT, "%.5f,%.5f", centre[0], centre[1]), first.getCity());
+        verify(apiUtils, times(1)).callGetApiAsync(
+                eq(String.format(Locale.ROOT, "%s?lat=%.6f&lon=%.6f&appid=%s&cnt=%s", apiUrl, centre[0], centre[1], apiKey, apiCnt)), any(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecastByCoordinates_ServesNearestCachedCell() throws Exception {
+        stubResponse(EMPTY_FORECAST);
+        double[] centre = Geohash.decode(Geohash.encode(48.8566, 2.3522, 6));
+        WeatherResponse cached = weatherService.getWeatherForecast(centre[0], centre[1]);
+
+        double neighbourLat = centre[0] + Geohash.cellHeightDegrees(6);
+        WeatherResponse nearby = weatherService.getWeatherForecast(neighbourLat, centre[1]);
+        WeatherResponse far = weatherService.getWeatherForecast(centre[0] + 0.05, centre[1]);
+
+        assertSame(cached, nearby);
+        assertSame(cached, weatherService.getCachedForecast(neighbourLat, centre[1]).getResponse());
+        assertNotSame(cached, far);
+        verify(apiUtils, times(2)).callGetApiAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecastByCoordinates_SkipsEvictedCells() throws Exception {
+        stubResponse(EMPTY_FORECAST);
+        double[] centre = Geohash.decode(Geohash.encode(40.7128, -74.0060, 6));
+        weatherService.getWeatherForecast(centre[0], centre[1]);
+        forecastCache.invalidateAll();
+
+        weatherService.getWeatherForecast(centre[0] + Geohash.cellHeightDegrees(6), centre[1]);
+
+        verify(apiUtils, times(2)).callGetApiAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecastByCoordinates_EvictedCellsLeaveTheIndex() throws Exception {
+        stubResponse(EMPTY_FORECAST);
+        weatherService.getWeatherForecast(35.6762, 139.6503);
+        weatherService.getWeatherForecast(-33.8688, 151.2093);
+        assertEquals(2, meterRegistry.get("weather.geo.cells").gauge().value());
+
+        forecastCache.invalidateAll();
+
+        assertEquals(0, meterRegistry.get("weather.geo.cells").gauge().value());
+    }
+
+    @Test
+    void testGetWeatherForecast_UnknownCityIsAnsweredFromNegativeCache() throws Exception {
+        WeatherService service = new WeatherService(List.of(weatherCondition), apiUtils, forecastCache, new SimpleMeterRegistry());
+        service.url = apiUrl;
+        service.key = apiKey;
+        service.cnt = apiCnt;
+        NegativeCache negativeCache = new NegativeCache(new SimpleMeterRegistry());
+        negativeCache.init();
+        service.setNegativeCache(negativeCache);
+        when(apiUtils.callGetApiAsync(anyString(), any(), anyLong())).thenReturn(CompletableFuture.failedFuture(new RestClientResponseException(
+                "Not Found", HttpStatus.NOT_FOUND, "Not Found", null,
+                "{\"cod\":\"404\",\"message\":\"city not found\"}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8)));
+
+        WeatherResponse first = service.getWeatherForecast("Atlantis");
+        WeatherResponse second = service.getWeatherForecast(" ATLANTIS ");
+
+        assertEquals("404", first.getCod());
+        assertEquals("city not found", first.getMessage());
+        assertEquals("404", second.getCod());
+        assertEquals(Message.CITY_NOT_FOUND, second.getMessage());
+        assertEquals(" ATLANTIS ", second.getCity());
+        verify(apiUtils, times(1)).callGetApiAsync(anyString(), any(), anyLong());
+    }
+
+    @Test
+    void testGetWeatherForecastById_FetchesByCanonicalId() throws Exception {
+        CityDirectory cityDirectory = new CityDirectory();
+        cityDirectory.init();
+        weatherService.setCityDirectory(cityDirectory);
+        try {
+            stubResponse(EMPTY_FORECAST);
+
+            WeatherResponse first = weatherService.getWeatherForecastById(5746545);
+            WeatherResponse second = weatherService.getWeatherForecastById(5746545);
+            WeatherResponse unknown = weatherService.getWeatherForecastById(1);
+
+            assertEquals("200", first.getCod());
+            assertEquals("Portland, OR, US", first.getCity());
+            assertSame(first, second);
+            assertSame(first, weatherService.getCachedForecastById(5746545).getResponse());
+            assertEquals("404", unknown.getCod());
+            assertEquals(Message.CITY_NOT_FOUND, unknown.getMessage());
+            verify(apiUtils, times(1)).callGetApiAsync(
+                    eq(apiUrl + "?id=5746545&appid=" + apiKey + "&cnt=" + apiCnt), any(), anyLong());
+        } finally {
+            weatherService.setCityDirectory(null);
+        }
+    }
+
+    @Test
+    void testAggregate_ConfiguredRulesAddAndReplaceConditions(@TempDir Path dir) throws Exception {
+        Path rules = dir.resolve("alert-rules.json");
+        Files.writeString(rules, """
+                [{"name": "HighWindCondition", "alert": "Gale warning", "when": {"field": "wind_speed", "op": ">", "value": 10}},
+                 {"name": "Mild", "alert": "Mild day", "when": {"field": "temp_c", "op": "<", "value": 25}}]
+                """);
+        AlertRuleEngine engine = new AlertRuleEngine(new SimpleMeterRegistry());
+        engine.path = rules.toUri().toString();
+        engine.init();
+        WeatherService service = new WeatherService(List.of(new HighWindCondition(), new RainCondition()), apiUtils, forecastCache,
+                new SimpleMeterRegistry());
+        service.setAlertRuleEngine(engine);
+        ForecastPayload payload = ForecastParser.parse(new ByteArrayInputStream("""
+                {"cod": "200", "city": {"timezone": 0}, "list": [
+                  {"dt": 1754006400, "main": {"temp": 290.0}, "wind": {"speed": 1.0}},
+                  {"dt": 1754092800, "main": {"temp": 290.0}, "wind": {"speed": 8.0}, "rain": {"3h": 1.0}},
+                  {"dt": 1754179200, "main": {"temp": 300.0}, "wind": {"speed": 12.0}}]}
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        List<ForecastData> days = service.aggregate(payload);
+
+        assertEquals(List.of("Carry umbrella", "Mild day"), days.get(0).getAlerts());
+        assertEquals(List.of("Gale warning"), days.get(1).getAlerts());
+    }
+
+    private void stubResponse(String body) throws Exception {
+        when(apiUtils.callGetApiAsync(anyString(), any(), anyLong())).thenAnswer(invocation -> {
+            ResponseExtractor<?> extractor = invocation.getArgument(1);
+            return CompletableFuture.completedFuture(
+                    extractor.extractData(new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK)));
+        });
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.weather.prediction.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the OpenWeatherMap {@code /data/2.5/forecast} endpoint, serving a recorded
+ * payload from the test classpath. Used by benchmarks and load tests so they never hit the real API.
+ *
+ * Each response is delayed by a sample of the configured {@link Latency} and can be turned, at
+ * configurable rates, into a 500, a 401 ("Invalid API key") or a 404 ("city not found") with the
+ * upstream's error body. Cities listed in {@link #unknownCities(Set)} always get a 404.
+ */
+public class StubForecastServer implements AutoCloseable {
+
+    public static final String FORECAST_PATH = "/data/2.5/forecast";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final byte[] payload;
+
+    private final byte[] gzipPayload;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final ConcurrentHashMap<Integer, AtomicLong> responses = new ConcurrentHashMap<>();
+
+    private volatile Latency latency = Latency.fixed(0);
+
+    private volatile double errorRate;
+
+    private volatile double unauthorizedRate;
+
+    private volatile double notFoundRate;
+
+    private volatile Set<String> unknownCities = Set.of();
+
+    /**
+     * Distribution of the delay before the stub answers, in milliseconds.
+     */
+    @FunctionalInterface
+    public interface Latency {
+
+        long sampleMs();
+
+        static Latency fixed(long millis) {
+            return () -> millis;
+        }
+
+        static Latency uniform(long minMs, long maxMs) {
+            return () -> ThreadLocalRandom.current().nextLong(minMs, maxMs + 1);
+        }
+
+        /**
+         * Log-normal with the given median; {@code sigma} around 0.5 gives a realistic long tail.
+         */
+        static Latency logNormal(double medianMs, double sigma) {
+            return () -> Math.round(medianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+
+        /**
+         * {@code base}, except that a fraction {@code probability} of responses take {@code slowMs}.
+         */
+        static Latency withTail(Latency base, double probability, long slowMs) {
+            return () -> ThreadLocalRandom.current().nextDouble() < probability ? slowMs : base.sampleMs();
+        }
+
+        /**
+         * Parses {@code fixed:MS}, {@code uniform:MIN:MAX} or {@code lognormal:MEDIAN:SIGMA}, each optionally
+         * followed by {@code ,tail:PROBABILITY:MS}; a plain number is a fixed latency.
+         */
+        static Latency parse(String spec) {
+            String[] parts = spec.split(",");
+            String[] base = parts[0].split(":");
+            Latency latency = switch (base[0]) {
+                case "fixed" -> fixed(Long.parseLong(base[1]));
+                case "uniform" -> uniform(Long.parseLong(base[1]), Long.parseLong(base[2]));
+                case "lognormal" -> logNormal(Double.parseDouble(base[1]), Double.parseDouble(base[2]));
+                default -> fixed(Long.parseLong(base[0]));
+            };
+            for (int i = 1; i < parts.length; i++) {
+                String[] tail = parts[i].split(":");
+                if (!tail[0].equals("tail")) throw new IllegalArgumentException("Unknown latency modifier " + parts[i]);
+                latency = withTail(latency, Double.parseDouble(tail[1]), Long.parseLong(tail[2]));
+            }
+            return latency;
+        }
+    }
+
+    public StubForecastServer(String payloadResource, int threads) {
+        this.payload = readResource(payloadResource);
+        this.gzipPayload = gzip(payload);
+        // headers and body are written separately; without TCP_NODELAY every response waits on a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext(FORECAST_PATH, this::handle);
+    }
+
+    public StubForecastServer start() {
+        server.start();
+        return this;
+    }
+
+    public StubForecastServer latencyMs(long latencyMs) {
+        return latency(Latency.fixed(latencyMs));
+    }
+
+    public StubForecastServer latency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** Fraction of requests answered with a 500. */
+    public StubForecastServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /** Fraction of requests answered with a 401. */
+    public StubForecastServer unauthorizedRate(double unauthorizedRate) {
+        this.unauthorizedRate = unauthorizedRate;
+        return this;
+    }
+
+    /** Fraction of requests answered with a 404. */
+    public StubForecastServer notFoundRate(double notFoundRate) {
+        this.notFoundRate = notFoundRate;
+        return this;
+    }
+
+    /** Cities (matched case-insensitively on {@code q}) that always get a 404. */
+    public StubForecastServer unknownCities(Set<String> unknownCities) {
+        this.unknownCities = unknownCities.stream().map(c -> c.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        return this;
+    }
+
+    public String forecastUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + FORECAST_PATH;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of responses sent with the given status code
+     */
+    public long responseCount(int status) {
+        AtomicLong count = responses.get(status);
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetRequestCount() {
+        requests.set(0);
+        responses.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep(latency.sampleMs());
+            int status = status(exchange);
+            responses.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if (status != 200) {
+                byte[] error = errorBody(status);
+                exchange.sendResponseHeaders(status, error.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(error);
+                }
+                return;
+            }
+            boolean gzip = acceptsGzip(exchange);
+            byte[] body = gzip ? gzipPayload : payload;
+            if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private int status(HttpExchange exchange) {
+        String city = queryParam(exchange, "q");
+        if (city != null && unknownCities.contains(city.toLowerCase(Locale.ROOT))) return 404;
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < errorRate) return 500;
+        if (roll < errorRate + unauthorizedRate) return 401;
+        if (roll < errorRate + unauthorizedRate + notFoundRate) return 404;
+        return 200;
+    }
+
+    private static byte[] errorBody(int status) {
+        String body = switch (status) {
+            case 401 -> "{\"cod\":401,\"message\":\"Invalid API key. Please see https://openweathermap.org/faq#error401 for more info.\"}";
+            case 404 -> "{\"cod\":\"404\",\"message\":\"city not found\"}";
+            default -> "{\"cod\":\"500\",\"message\":\"Internal error\"}";
+        };
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static byte[] readResource(String resource) {
+        try (InputStream in = StubForecastServer.class.getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalArgumentException("Missing resource " + resource);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String readResourceAsString(String resource) {
+        return new String(readResource(resource), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
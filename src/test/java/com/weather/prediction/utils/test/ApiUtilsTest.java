@@ -1,20 +1,32 @@
 package com.weather.prediction.utils.test;
 
 import com.weather.prediction.utils.ApiUtils;
+import com.weather.prediction.utils.AsyncRetry;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.CompletionException;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -26,13 +38,23 @@ public class ApiUtilsTest {
 
     private ApiUtils apiUtils;
 
+    private AsyncRetry asyncRetry;
+
+    private CircuitBreaker circuitBreaker;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private final String testUrl = "http://test.api/weather";
     private final String successResponse = "{\"status\":\"success\"}";
 
     @BeforeEach
     void init() {
         MockitoAnnotations.openMocks(this);
-        apiUtils = new ApiUtils(restTemplate);
+        asyncRetry = new AsyncRetry(Runnable::run, new SimpleMeterRegistry());
+        asyncRetry.initialBackoffMs = 1;
+        circuitBreaker = CircuitBreaker.ofDefaults("test");
+        meterRegistry = new SimpleMeterRegistry();
+        apiUtils = new ApiUtils(restTemplate, asyncRetry, circuitBreaker, Bulkhead.ofDefaults("test"), meterRegistry);
 
     }
 
@@ -65,13 +87,65 @@ public class ApiUtilsTest {
     }
 
     @Test
-    void testCallGetApiWithRetry_SuccessFirstAttempt() throws RestClientException {
-        when(restTemplate.getForObject(eq(testUrl), eq(String.class)))
+    void testCallGetApiAsync_SuccessFirstAttempt() throws RestClientException {
+        ResponseExtractor<String> extractor = response -> "unused";
+        when(restTemplate.execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor)))
                 .thenReturn(successResponse);
 
-        String result = apiUtils.callGetApiWithRetry(testUrl);
+        String result = apiUtils.callGetApiAsync(testUrl, extractor, asyncRetry.deadlineFromNow()).join();
 
         assertEquals(successResponse, result);
-        verify(restTemplate, times(1)).getForObject(testUrl, String.class);
+        verify(restTemplate, times(1)).execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor));
+    }
+
+    @Test
+    void testCallGetApiAsync_RetriesIoErrors() throws RestClientException {
+        ResponseExtractor<String> extractor = response -> "unused";
+        when(restTemplate.execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor)))
+                .thenThrow(new ResourceAccessException("connection reset"))
+                .thenReturn(successResponse);
+
+        String result = apiUtils.callGetApiAsync(testUrl, extractor, asyncRetry.deadlineFromNow()).join();
+
+        assertEquals(successResponse, result);
+        verify(restTemplate, times(2)).execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor));
+        assertEquals(1, meterRegistry.get("weather.upstream.latency").tag("outcome", "io_error").timer().count());
+        assertEquals(1, meterRegistry.get("weather.upstream.latency").tag("outcome", "200").timer().count());
+    }
+
+    @Test
+    void testCallGetApiAsync_DoesNotRetryHttpErrors() {
+        ResponseExtractor<String> extractor = response -> "unused";
+        when(restTemplate.execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> apiUtils.callGetApiAsync(testUrl, extractor, asyncRetry.deadlineFromNow()).join());
+        assertInstanceOf(HttpClientErrorException.class, e.getCause());
+        verify(restTemplate, times(1)).execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor));
+        assertEquals(1, meterRegistry.get("weather.upstream.latency").tag("outcome", "404").timer().count());
+    }
+
+    @Test
+    void testCallGetApiAsync_GivesUpAfterMaxAttempts() {
+        ResponseExtractor<String> extractor = response -> "unused";
+        when(restTemplate.execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor)))
+                .thenThrow(new ResourceAccessException("connection refused"));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> apiUtils.callGetApiAsync(testUrl, extractor, asyncRetry.deadlineFromNow()).join());
+        assertInstanceOf(ResourceAccessException.class, e.getCause());
+        verify(restTemplate, times(3)).execute(eq(testUrl), eq(HttpMethod.GET), isNull(), eq(extractor));
+    }
+
+    @Test
+    void testCallGetApiAsync_FailsFastWhenCircuitOpen() {
+        ResponseExtractor<String> extractor = response -> "unused";
+        circuitBreaker.transitionToOpenState();
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> apiUtils.callGetApiAsync(testUrl, extractor, asyncRetry.deadlineFromNow()).join());
+        assertInstanceOf(CallNotPermittedException.class, e.getCause());
+        verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(), ArgumentMatchers.<ResponseExtractor<String>>any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.utils.AsyncRetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AsyncRetryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AsyncRetry asyncRetry;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        asyncRetry = new AsyncRetry(Runnable::run, meterRegistry);
+        asyncRetry.initialBackoffMs = 10;
+        asyncRetry.maxBackoffMs = 40;
+    }
+
+    @Test
+    void testBackoffIsJitteredAndCapped() {
+        for (int retry = 1; retry <= 10; retry++) {
+            long delay = asyncRetry.backoffMs(retry);
+            assertTrue(delay >= 0 && delay <= Math.min(40, 10 * (1L << (retry - 1))), "delay " + delay);
+        }
+    }
+
+    @Test
+    void testRetriesUntilSuccessAndRecordsMetrics() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> result = asyncRetry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) throw new IllegalStateException("flaky");
+            return "ok";
+        }, IllegalStateException.class::isInstance, asyncRetry.deadlineFromNow());
+
+        assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, meterRegistry.get("weather.upstream.retries").counter().count());
+        assertEquals(2, meterRegistry.get("weather.upstream.backoff").timer().count());
+    }
+
+    @Test
+    void testNoRetryPastDeadline() {
+        asyncRetry.initialBackoffMs = 10_000;
+        asyncRetry.maxBackoffMs = 10_000;
+        AtomicInteger attempts = new AtomicInteger();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+
+        CompletableFuture<String> result = asyncRetry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("down");
+        }, IllegalStateException.class::isInstance, deadline);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException || e.getCause() instanceof TimeoutException);
+        assertTrue(attempts.get() <= 2);
+    }
+
+    @Test
+    void testPermitPendingAtDeadlineIsCancelledAndCallNotMade() throws Exception {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = asyncRetry.execute(() -> permit, () -> {
+            attempts.incrementAndGet();
+            return "late";
+        }, e -> true, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(permit.isCancelled());
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    void testRefusedPermitFailsTheCall() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = asyncRetry.execute(
+                () -> CompletableFuture.failedFuture(new IllegalArgumentException("shed")),
+                () -> {
+                    attempts.incrementAndGet();
+                    return "ok";
+                }, IllegalStateException.class::isInstance, asyncRetry.deadlineFromNow());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    void testFutureTimesOutAtDeadline() {
+        CompletableFuture<String> result = asyncRetry.execute(() -> "never", e -> true, System.nanoTime());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+    }
+}
@@ -0,0 +1,55 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.utils.BloomFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BloomFilterTest {
+
+    @Test
+    void testMightContain_NoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("city-" + i);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("city-" + i));
+        }
+        assertTrue(filter.insertions() > 9_900, "insertions: " + filter.insertions());
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.put("city-" + i);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other-" + i)) falsePositives++;
+        }
+
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFalsePositiveProbability(), 0.005);
+    }
+
+    @Test
+    void testPut_ReportsWhetherTheKeyWasNew() {
+        BloomFilter filter = new BloomFilter(100, 0.001);
+
+        assertFalse(filter.mightContain("atlantis"));
+        assertTrue(filter.put("atlantis"));
+        assertFalse(filter.put("atlantis"));
+        assertTrue(filter.mightContain("atlantis"));
+        assertEquals(1, filter.insertions());
+        assertFalse(filter.isFull());
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
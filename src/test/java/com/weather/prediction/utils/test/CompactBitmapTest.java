@@ -0,0 +1,90 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.utils.CompactBitmap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CompactBitmapTest {
+
+    @Test
+    void testAddRemoveContains_MatchBitSetAcrossContainerKinds() {
+        CompactBitmap bitmap = new CompactBitmap();
+        BitSet expected = new BitSet();
+        Random random = new Random(42);
+        // dense in the first chunk (bitmap container), sparse in the others (array containers)
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextBoolean() ? random.nextInt(20_000) : random.nextInt(1 << 20);
+            boolean remove = random.nextInt(4) == 0;
+            if (remove) {
+                assertEquals(expected.get(value), bitmap.remove(value));
+                expected.clear(value);
+            } else {
+                assertEquals(!expected.get(value), bitmap.add(value));
+                expected.set(value);
+            }
+        }
+
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        for (int value = 0; value < 1 << 20; value++) {
+            assertEquals(expected.get(value), bitmap.contains(value), "value " + value);
+        }
+    }
+
+    @Test
+    void testNextValue_IteratesInOrder() {
+        CompactBitmap bitmap = new CompactBitmap();
+        BitSet expected = new BitSet();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(300_000);
+            bitmap.add(value);
+            expected.set(value);
+        }
+
+        int value = bitmap.nextValue(0);
+        for (int next = expected.nextSetBit(0); next >= 0; next = expected.nextSetBit(next + 1)) {
+            assertEquals(next, value);
+            value = bitmap.nextValue(value + 1);
+        }
+        assertEquals(-1, value);
+        assertEquals(expected.nextSetBit(123_456), bitmap.nextValue(123_456));
+    }
+
+    @Test
+    void testOr_AddsAllValues() {
+        CompactBitmap first = new CompactBitmap();
+        CompactBitmap second = new CompactBitmap();
+        for (int i = 0; i < 10_000; i++) first.add(i * 2);
+        for (int i = 0; i < 100; i++) second.add(i * 3);
+        second.add(70_000);
+
+        first.or(second);
+
+        assertEquals(10_000 + 50 + 1, first.cardinality());
+        assertTrue(first.contains(3));
+        assertTrue(first.contains(70_000));
+        assertTrue(first.contains(19_998));
+        assertFalse(first.contains(5));
+    }
+
+    @Test
+    void testRemove_EmptiesAndShrinks() {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int i = 0; i < 10_000; i++) bitmap.add(i);
+        long dense = bitmap.sizeInBytes();
+        for (int i = 0; i < 9_990; i++) bitmap.remove(i);
+
+        assertEquals(10, bitmap.cardinality());
+        assertTrue(bitmap.sizeInBytes() < dense, bitmap.sizeInBytes() + " >= " + dense);
+        for (int i = 9_990; i < 10_000; i++) bitmap.remove(i);
+        assertTrue(bitmap.isEmpty());
+        assertEquals(-1, bitmap.nextValue(0));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+}
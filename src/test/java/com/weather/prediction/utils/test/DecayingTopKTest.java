@@ -0,0 +1,91 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.utils.DecayingTopK;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DecayingTopKTest {
+
+    @Test
+    void testTopIsOrderedByCount() {
+        MutableClock clock = new MutableClock();
+        DecayingTopK<String> topK = new DecayingTopK<>(60_000, 100, clock);
+        record(topK, "london", 5);
+        record(topK, "paris", 3);
+        record(topK, "berlin", 1);
+
+        List<DecayingTopK.Entry<String>> top = topK.top(2);
+
+        assertEquals(List.of("london", "paris"), top.stream().map(DecayingTopK.Entry::key).toList());
+        assertEquals(5, top.get(0).count(), 1e-9);
+        assertEquals("London", top.get(0).value());
+    }
+
+    @Test
+    void testCountsHalveEveryHalfLife() {
+        MutableClock clock = new MutableClock();
+        DecayingTopK<String> topK = new DecayingTopK<>(60_000, 100, clock);
+        record(topK, "london", 8);
+        clock.millis += 60_000;
+        record(topK, "paris", 5);
+
+        List<DecayingTopK.Entry<String>> top = topK.top(2);
+
+        assertEquals("paris", top.get(0).key());
+        assertEquals(4, top.get(1).count(), 1e-9);
+    }
+
+    @Test
+    void testTableIsBoundedAndPrunedByTop() {
+        MutableClock clock = new MutableClock();
+        DecayingTopK<String> topK = new DecayingTopK<>(60_000, 4, clock);
+        record(topK, "a", 4);
+        record(topK, "b", 3);
+        record(topK, "c", 2);
+        record(topK, "d", 1);
+        record(topK, "e", 10);
+
+        assertEquals(4, topK.size());
+        assertTrue(topK.top(4).stream().noneMatch(entry -> entry.key().equals("e")));
+
+        topK.top(1);
+        assertEquals(2, topK.size());
+        record(topK, "e", 10);
+        assertEquals("e", topK.top(1).get(0).key());
+    }
+
+    private static void record(DecayingTopK<String> topK, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            topK.record(key, Character.toUpperCase(key.charAt(0)) + key.substring(1));
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        long millis = 1_700_000_000_000L;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
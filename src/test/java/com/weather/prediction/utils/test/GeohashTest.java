@@ -0,0 +1,81 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.utils.GeoCellIndex;
+import com.weather.prediction.utils.Geohash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class GeohashTest {
+
+    @Test
+    void testEncode_KnownHashes() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", Geohash.encode(42.605, -5.603, 5));
+        assertEquals("gcpvj0", Geohash.encode(51.5074, -0.1278, 6));
+    }
+
+    @Test
+    void testDecode_ReturnsCentreOfTheCell() {
+        double[] centre = Geohash.decode("ezs42");
+
+        assertEquals(42.605, centre[0], Geohash.cellHeightDegrees(5) / 2);
+        assertEquals(-5.603, centre[1], Geohash.cellWidthDegrees(5) / 2);
+        assertEquals("ezs42", Geohash.encode(centre[0], centre[1], 5));
+    }
+
+    @Test
+    void testCellSize() {
+        assertEquals(180.0 / 32768, Geohash.cellHeightDegrees(6));
+        assertEquals(360.0 / 32768, Geohash.cellWidthDegrees(6));
+        assertEquals(180.0 / 4, Geohash.cellHeightDegrees(1));
+        assertEquals(360.0 / 8, Geohash.cellWidthDegrees(1));
+    }
+
+    @Test
+    void testDistanceMeters() {
+        assertEquals(343_500, Geohash.distanceMeters(51.5074, -0.1278, 48.8566, 2.3522), 1_000);
+        assertEquals(0, Geohash.distanceMeters(10, 20, 10, 20));
+    }
+
+    @Test
+    void testEncode_RejectsInvalidPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Geohash.encode(0, 0, 13));
+    }
+
+    @Test
+    void testCellIndex_NearestWithinRadiusNearestFirst() {
+        GeoCellIndex index = new GeoCellIndex(6, 2000);
+        String london = index.cell(51.5074, -0.1278);
+        String nearby = index.cell(51.5150, -0.1278);
+        String outside = index.cell(51.5400, -0.1278);
+        index.add(london);
+        index.add(nearby);
+        index.add(outside);
+        index.add(london);
+
+        assertEquals(3, index.size());
+        assertEquals(List.of(nearby, london), index.nearest(51.5140, -0.1278));
+
+        index.remove(nearby);
+        assertEquals(List.of(london), index.nearest(51.5140, -0.1278));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testCellIndex_FindsCellsAcrossBucketAndAntimeridianBoundaries() {
+        GeoCellIndex index = new GeoCellIndex(6, 5000);
+        String east = index.cell(0.001, 179.99);
+        String south = index.cell(-0.001, 179.99);
+        index.add(east);
+        index.add(south);
+
+        assertEquals(2, index.nearest(0, -179.99).size());
+        assertTrue(index.nearest(1, 179.99).isEmpty());
+    }
+}
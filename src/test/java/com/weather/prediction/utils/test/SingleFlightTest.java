@@ -0,0 +1,160 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.exception.UpstreamTimeoutException;
+import com.weather.prediction.utils.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SingleFlight singleFlight;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentCallsShareOneResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("london", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "forecast";
+            })));
+        }
+        waitFor(() -> collapsed() == 7);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("forecast", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void testExecute_FailureIsSharedWithWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("london", () -> {
+            await(release);
+            throw new IllegalStateException("upstream failed");
+        }));
+        waitFor(() -> singleFlight.inFlightCount() == 1);
+        Future<String> waiter = executor.submit(() -> singleFlight.execute("london", () -> "unused"));
+        waitFor(() -> collapsed() == 1);
+        release.countDown();
+
+        Exception e = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testExecute_WaiterTimesOut() throws Exception {
+        singleFlight.waitTimeoutMs = 50;
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> singleFlight.execute("london", () -> {
+            await(release);
+            return "forecast";
+        }));
+        waitFor(() -> singleFlight.inFlightCount() == 1);
+
+        assertThrows(UpstreamTimeoutException.class, () -> singleFlight.execute("london", () -> "unused"));
+        assertEquals(1.0, meterRegistry.get("weather.singleflight.calls").tag("role", "timeout").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void testExecuteAsync_JoinsBlockingCallAndIsJoinedByIt() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<String> blocking = executor.submit(() -> singleFlight.execute("london", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "forecast";
+        }));
+        waitFor(() -> singleFlight.inFlightCount() == 1);
+
+        CompletableFuture<String> joined = singleFlight.executeAsync("london", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("unused");
+        });
+        release.countDown();
+
+        assertEquals("forecast", joined.get(5, TimeUnit.SECONDS));
+        assertEquals("forecast", blocking.get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> leader = singleFlight.executeAsync("paris", () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        Future<String> waiter = executor.submit(() -> singleFlight.execute("paris", () -> "unused"));
+        waitFor(() -> collapsed() == 2);
+        pending.complete("forecast");
+
+        assertEquals("forecast", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("forecast", waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void testExecute_DifferentKeysDoNotCollapse() {
+        assertEquals("a", singleFlight.execute("london", () -> "a"));
+        assertEquals("b", singleFlight.execute("paris", () -> "b"));
+        assertEquals(0.0, collapsed());
+    }
+
+    private double collapsed() {
+        return meterRegistry.get("weather.singleflight.calls").tag("role", "collapsed").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,239 @@
+package com.weather.prediction.utils.test;
+
+import com.weather.prediction.exception.UpstreamRateLimitedException;
+import com.weather.prediction.utils.UpstreamPriority;
+import com.weather.prediction.utils.UpstreamRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UpstreamRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private MutableClock clock;
+
+    private UpstreamRateLimiter limiter;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock();
+        limiter = new UpstreamRateLimiter(meterRegistry, clock);
+        limiter.callsPerMinute = 3;
+        limiter.callsPerDay = 1000;
+    }
+
+    @AfterEach
+    void shutdown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void testAcquire_GrantsBurstThenWaitsForRefill() {
+        limiter.interactiveMaxWaitMs = 60_000;
+        limiter.init();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.acquire(UpstreamPriority.INTERACTIVE).isDone());
+        }
+        CompletableFuture<Void> waiting = limiter.acquire(UpstreamPriority.INTERACTIVE);
+        assertFalse(waiting.isDone());
+        assertEquals(1.0, meterRegistry.get("weather.ratelimit.queued").tag("priority", "interactive").gauge().value());
+
+        clock.advance(19_000);
+        limiter.drain();
+        assertFalse(waiting.isDone());
+
+        clock.advance(1_000);
+        limiter.drain();
+        assertTrue(waiting.isDone());
+        assertFalse(waiting.isCompletedExceptionally());
+        assertEquals(0.0, meterRegistry.get("weather.ratelimit.queued").tag("priority", "interactive").gauge().value());
+    }
+
+    @Test
+    void testDrain_GrantsInteractiveBeforeBatchBeforeBackground() {
+        limiter.callsPerMinute = 1;
+        limiter.backgroundMaxWaitMs = 600_000;
+        limiter.batchMaxWaitMs = 600_000;
+        limiter.interactiveMaxWaitMs = 600_000;
+        limiter.init();
+        assertTrue(limiter.acquire(UpstreamPriority.INTERACTIVE).isDone());
+
+        CompletableFuture<Void> background = limiter.acquire(UpstreamPriority.BACKGROUND);
+        CompletableFuture<Void> batch = limiter.acquire(UpstreamPriority.BATCH);
+        CompletableFuture<Void> interactive = limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        clock.advance(60_000);
+        limiter.drain();
+        assertTrue(interactive.isDone());
+        assertFalse(batch.isDone());
+        assertFalse(background.isDone());
+
+        clock.advance(60_000);
+        limiter.drain();
+        assertTrue(batch.isDone());
+        assertFalse(background.isDone());
+
+        clock.advance(60_000);
+        limiter.drain();
+        assertTrue(background.isDone());
+        assertEquals(120_000, meterRegistry.get("weather.ratelimit.wait").tag("priority", "batch").timer()
+                .max(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testDrain_RejectsWaitersPastTheirMaxWait() {
+        limiter.callsPerMinute = 1;
+        limiter.interactiveMaxWaitMs = 2_000;
+        limiter.init();
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        CompletableFuture<Void> waiting = limiter.acquire(UpstreamPriority.INTERACTIVE);
+        clock.advance(2_000);
+        limiter.drain();
+
+        CompletionException e = assertThrows(CompletionException.class, waiting::join);
+        assertInstanceOf(UpstreamRateLimitedException.class, e.getCause());
+        assertEquals(1.0, rejected("interactive", "timeout"));
+    }
+
+    @Test
+    void testAcquire_FullQueueShedsNewestLowestPriority() {
+        limiter.callsPerMinute = 1;
+        limiter.maxQueue = 2;
+        limiter.init();
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        CompletableFuture<Void> first = limiter.acquire(UpstreamPriority.BACKGROUND);
+        CompletableFuture<Void> second = limiter.acquire(UpstreamPriority.BACKGROUND);
+        CompletableFuture<Void> interactive = limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        assertFalse(first.isDone());
+        assertTrue(second.isCompletedExceptionally());
+        assertFalse(interactive.isDone());
+
+        CompletableFuture<Void> batch = limiter.acquire(UpstreamPriority.BATCH);
+        CompletableFuture<Void> third = limiter.acquire(UpstreamPriority.BACKGROUND);
+
+        assertTrue(first.isCompletedExceptionally());
+        assertFalse(batch.isDone());
+        assertTrue(third.isCompletedExceptionally());
+        assertEquals(2.0, rejected("background", "shed"));
+        assertEquals(1.0, rejected("background", "queue_full"));
+    }
+
+    @Test
+    void testAcquire_CancelledWaiterFreesItsPlaceInTheQueue() {
+        limiter.callsPerMinute = 1;
+        limiter.maxQueue = 1;
+        limiter.init();
+        limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        CompletableFuture<Void> cancelled = limiter.acquire(UpstreamPriority.BACKGROUND);
+        cancelled.cancel(false);
+        CompletableFuture<Void> next = limiter.acquire(UpstreamPriority.BACKGROUND);
+
+        assertFalse(next.isDone());
+        assertEquals(1.0, meterRegistry.get("weather.ratelimit.queued").tag("priority", "background").gauge().value());
+        assertTrue(meterRegistry.find("weather.ratelimit.rejected").counters().isEmpty());
+    }
+
+    @Test
+    void testAcquire_KeepsDailyReserveForInteractiveCalls() {
+        limiter.callsPerMinute = 100;
+        limiter.callsPerDay = 10;
+        limiter.backgroundReservePercent = 50;
+        limiter.init();
+        for (int i = 0; i < 5; i++) limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        assertTrue(limiter.acquire(UpstreamPriority.BACKGROUND).isDone());
+        CompletableFuture<Void> background = limiter.acquire(UpstreamPriority.BACKGROUND);
+
+        assertTrue(background.isCompletedExceptionally());
+        assertEquals(1.0, rejected("background", "quota"));
+        assertFalse(limiter.acquire(UpstreamPriority.INTERACTIVE).isCompletedExceptionally());
+        assertEquals(3.0, meterRegistry.get("weather.ratelimit.tokens").tag("bucket", "day").gauge().value(), 0.01);
+    }
+
+    @Test
+    void testThrottled_EmptiesMinuteBucket() {
+        limiter.init();
+
+        limiter.throttled();
+
+        assertEquals(0.0, meterRegistry.get("weather.ratelimit.tokens").tag("bucket", "minute").gauge().value());
+        assertEquals(1.0, meterRegistry.get("weather.upstream.throttled").counter().count());
+        assertFalse(limiter.acquire(UpstreamPriority.INTERACTIVE).isDone());
+    }
+
+    @Test
+    void testAcquire_FailsWhenShed() {
+        limiter.callsPerMinute = 1;
+        limiter.maxQueue = 0;
+        limiter.init();
+        assertTrue(limiter.acquire(UpstreamPriority.INTERACTIVE).isDone());
+
+        CompletableFuture<Void> shed = limiter.acquire(UpstreamPriority.INTERACTIVE);
+
+        CompletionException e = assertThrows(CompletionException.class, shed::join);
+        assertInstanceOf(UpstreamRateLimitedException.class, e.getCause());
+    }
+
+    @Test
+    void testAcquire_DisabledAlwaysGrants() {
+        limiter.enabled = false;
+        limiter.init();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.acquire(UpstreamPriority.BACKGROUND).isDone());
+        }
+    }
+
+    private double rejected(String priority, String reason) {
+        return meterRegistry.get("weather.ratelimit.rejected").tag("priority", priority).tag("reason", reason).counter().count();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}